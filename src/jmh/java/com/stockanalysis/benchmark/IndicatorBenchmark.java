@@ -0,0 +1,80 @@
+package com.stockanalysis.benchmark;
+
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.service.IndicatorState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Indicator computation over synthetic random-walk histories.
+ * {@code replayHistory} is the cold-start cost of building a symbol's state;
+ * {@code updateOneQuote} is the steady-state cost paid per incoming quote.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class IndicatorBenchmark {
+
+    @Param({"50", "500", "50000"})
+    private int rows;
+
+    private double[] closes;
+    private double[] highs;
+    private double[] lows;
+    private long[] volumes;
+
+    private IndicatorState warmState;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        closes = new double[rows];
+        highs = new double[rows];
+        lows = new double[rows];
+        volumes = new long[rows];
+
+        double price = 1000;
+        for (int i = 0; i < rows; i++) {
+            price = Math.max(1, price + random.nextGaussian() * 5);
+            closes[i] = price;
+            highs[i] = price + random.nextDouble() * 5;
+            lows[i] = price - random.nextDouble() * 5;
+            volumes[i] = 100_000 + random.nextInt(1_000_000);
+        }
+
+        warmState = new IndicatorState();
+        for (int i = 0; i < rows; i++) {
+            warmState.update(i, closes[i], highs[i], lows[i], volumes[i]);
+        }
+    }
+
+    @Benchmark
+    public StockData replayHistory() {
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < rows; i++) {
+            state.update(i, closes[i], highs[i], lows[i], volumes[i]);
+        }
+        StockData stockData = new StockData();
+        state.applyTo(stockData);
+        return stockData;
+    }
+
+    @Benchmark
+    public StockData updateOneQuote() {
+        int i = next++ % rows;
+        warmState.update(rows + next, closes[i], highs[i], lows[i], volumes[i]);
+        StockData stockData = new StockData();
+        warmState.applyTo(stockData);
+        return stockData;
+    }
+}
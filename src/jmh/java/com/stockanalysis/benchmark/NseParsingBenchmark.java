@@ -0,0 +1,41 @@
+package com.stockanalysis.benchmark;
+
+import com.stockanalysis.model.NseQuote;
+import com.stockanalysis.service.NseResponseParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streaming decode of a recorded NSE {@code quote-equity} payload, as performed on
+ * every response body.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NseParsingBenchmark {
+
+    private final NseResponseParser parser = new NseResponseParser();
+    private byte[] quotePayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (InputStream in = NseParsingBenchmark.class.getResourceAsStream("/quote-equity.json")) {
+            quotePayload = in.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public NseQuote readQuote() throws IOException {
+        return parser.readQuote(new ByteArrayInputStream(quotePayload));
+    }
+}
@@ -0,0 +1,110 @@
+package com.stockanalysis.benchmark;
+
+import com.stockanalysis.model.QuoteSource;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataBatchInserter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row-at-a-time inserts (what {@code saveAll} issues per quote into the AUTO_INCREMENT table)
+ * against the single JDBC batch the write-behind writer issues through
+ * {@link StockDataBatchInserter}, on an embedded H2 database in MySQL mode. Both go through the
+ * inserter's statement, so they bind the same columns and read back the generated ids; Spring
+ * and Hibernate start-up stay out of the measurement. H2 runs in-process, so the gap shown here
+ * leaves out the per-statement network round trip a MySQL server adds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PersistenceBenchmark {
+    @Param({"50", "500"})
+    private int rows;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private StockDataBatchInserter inserter;
+    private List<StockData> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:bench;MODE=MySQL;DB_CLOSE_DELAY=-1", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // The columns Hibernate generates for StockData, keyed by AUTO_INCREMENT as on MySQL
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS stock_data (id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                "symbol VARCHAR(255), source VARCHAR(16), company_name VARCHAR(255), industry VARCHAR(255), " +
+                "current_price DECIMAL(38,2), open DECIMAL(38,2), day_high DECIMAL(38,2), day_low DECIMAL(38,2), " +
+                "previous_close DECIMAL(38,2), chg DECIMAL(38,2), change_percent DECIMAL(38,2), volume BIGINT, " +
+                "vwap DECIMAL(38,2), week_high DECIMAL(38,2), week_low DECIMAL(38,2), upper_circuit DECIMAL(38,2), " +
+                "lower_circuit DECIMAL(38,2), last_update_time TIMESTAMP, ma20 DECIMAL(38,2), ma50 DECIMAL(38,2), " +
+                "rsi DECIMAL(38,2), market_cap DECIMAL(38,2), macd DECIMAL(38,2), signal_line DECIMAL(38,2), " +
+                "macd_histogram DECIMAL(38,2), bollinger_upper DECIMAL(38,2), bollinger_middle DECIMAL(38,2), " +
+                "bollinger_lower DECIMAL(38,2), stochastick DECIMAL(38,2), stochasticd DECIMAL(38,2), " +
+                "atr DECIMAL(38,2), mfi DECIMAL(38,2), created_at TIMESTAMP, high DECIMAL(38,2), low DECIMAL(38,2))");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_stock_data_symbol_time ON stock_data (symbol, last_update_time, id)");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_stock_data_time ON stock_data (last_update_time)");
+        inserter = new StockDataBatchInserter(jdbcTemplate);
+    }
+
+    /** Starts every iteration from an empty table, so later iterations do not pay for a bigger index. */
+    @Setup(Level.Iteration)
+    public void truncate() {
+        jdbcTemplate.execute("TRUNCATE TABLE stock_data");
+    }
+
+    /** Fresh snapshots for every invocation, since the inserter writes the generated ids into them. */
+    @Setup(Level.Invocation)
+    public void snapshots() {
+        LocalDateTime now = LocalDateTime.now();
+        batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            batch.add(snapshot(i, now));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public void singleInserts() {
+        for (StockData row : batch) {
+            inserter.insertAll(List.of(row));
+        }
+    }
+
+    @Benchmark
+    public void batchedInserts() {
+        inserter.insertAll(batch);
+    }
+
+    private static StockData snapshot(int i, LocalDateTime time) {
+        BigDecimal price = BigDecimal.valueOf(1000 + i % 100);
+        StockData stockData = new StockData();
+        stockData.setSymbol("SYM" + (i % 50));
+        stockData.setSource(QuoteSource.NSE);
+        stockData.setCurrentPrice(price);
+        stockData.setDayHigh(price.add(BigDecimal.TEN));
+        stockData.setDayLow(price.subtract(BigDecimal.TEN));
+        stockData.setVolume(100_000L + i);
+        stockData.setLastUpdateTime(time);
+        return stockData;
+    }
+}
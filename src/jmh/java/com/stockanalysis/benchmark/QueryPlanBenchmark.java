@@ -0,0 +1,172 @@
+package com.stockanalysis.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot {@code stock_data} queries on a large table, with and without
+ * {@code idx_stock_data_symbol_time} and {@code idx_stock_data_time}, on an embedded H2 database in
+ * MySQL mode. The plan of every query is printed once per trial, so the output shows which index
+ * each one uses next to its latency.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryPlanBenchmark {
+    private static final int SYMBOLS = 200;
+    private static final int TICKS_PER_SYMBOL = 2500;
+    private static final int PAGE_SIZE = 100;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 6, 9, 15);
+
+    // Native equivalents of StockDataRepository.findHistoryPage, streamAllSince (as the rollup uses it,
+    // a few minutes back) and findFirstUpdateTime, and the grouped derived table of findLatestPerSymbol.
+    // Its join back to stock_data is left out: without an index H2 re-runs the derived table for every
+    // outer row, which does not finish on a table this size.
+    private static final String HISTORY_PAGE = "SELECT * FROM stock_data WHERE symbol = ? AND last_update_time >= ? " +
+            "AND (last_update_time < ? OR (last_update_time = ? AND id < ?)) " +
+            "ORDER BY last_update_time DESC, id DESC LIMIT " + PAGE_SIZE;
+    private static final String LATEST_PER_SYMBOL = "SELECT symbol, MAX(last_update_time) AS last_update_time " +
+            "FROM stock_data GROUP BY symbol";
+    private static final String RECENT = "SELECT * FROM stock_data WHERE last_update_time >= ? " +
+            "AND current_price IS NOT NULL ORDER BY symbol, last_update_time, id";
+    private static final String FIRST_UPDATE = "SELECT MIN(last_update_time) FROM stock_data WHERE symbol = ?";
+
+    @Param({"false", "true"})
+    private boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement historyPage;
+    private PreparedStatement latestPerSymbol;
+    private PreparedStatement recent;
+    private PreparedStatement firstUpdate;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        // H2 would otherwise hand back the cached result of a statement re-run with the same parameters
+        connection = DriverManager.getConnection("jdbc:h2:mem:plans-" + indexed + ";MODE=MySQL;OPTIMIZE_REUSE_RESULTS=FALSE");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE stock_data (id BIGINT AUTO_INCREMENT PRIMARY KEY, symbol VARCHAR(255), " +
+                    "current_price DECIMAL(38,2), volume BIGINT, last_update_time TIMESTAMP)");
+        }
+        connection.setAutoCommit(false);
+        // Ticks arrive interleaved across symbols, as they do from the exchange polls
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO stock_data (symbol, current_price, volume, last_update_time) VALUES (?, ?, ?, ?)")) {
+            for (int t = 0; t < TICKS_PER_SYMBOL; t++) {
+                Timestamp time = Timestamp.valueOf(START.plusMinutes(t));
+                for (int s = 0; s < SYMBOLS; s++) {
+                    insert.setString(1, symbol(s));
+                    insert.setBigDecimal(2, BigDecimal.valueOf(1000 + (t + s) % 100));
+                    insert.setLong(3, 100_000L + t);
+                    insert.setTimestamp(4, time);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            if (indexed) {
+                statement.execute("CREATE INDEX idx_stock_data_symbol_time ON stock_data (symbol, last_update_time, id)");
+                statement.execute("CREATE INDEX idx_stock_data_time ON stock_data (last_update_time)");
+            }
+            statement.execute("ANALYZE");
+        }
+
+        historyPage = connection.prepareStatement(HISTORY_PAGE);
+        latestPerSymbol = connection.prepareStatement(LATEST_PER_SYMBOL);
+        recent = connection.prepareStatement(RECENT);
+        firstUpdate = connection.prepareStatement(FIRST_UPDATE);
+        Timestamp start = Timestamp.valueOf(START);
+        explain("historyPage", HISTORY_PAGE, symbol(0), start, start, start, Long.MAX_VALUE);
+        explain("latestPerSymbol", LATEST_PER_SYMBOL);
+        explain("recentTicks", RECENT, start);
+        explain("firstUpdateTime", FIRST_UPDATE, symbol(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    private static String symbol(int s) {
+        return "SYM" + s;
+    }
+
+    private void explain(String name, String sql, Object... parameters) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+            for (int p = 0; p < parameters.length; p++) {
+                statement.setObject(p + 1, parameters[p]);
+            }
+            try (ResultSet plan = statement.executeQuery()) {
+                plan.next();
+                System.out.println("indexed=" + indexed + " " + name + ":\n" + plan.getString(1));
+            }
+        }
+    }
+
+    private static int count(PreparedStatement statement) throws SQLException {
+        int rows = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /** One page from the middle of a symbol's history, as a client paging back from a cursor sees it. */
+    @Benchmark
+    public int historyPage() throws SQLException {
+        int s = next++ % SYMBOLS;
+        Timestamp cursor = Timestamp.valueOf(START.plusMinutes(TICKS_PER_SYMBOL / 2));
+        historyPage.setString(1, symbol(s));
+        historyPage.setTimestamp(2, Timestamp.valueOf(START));
+        historyPage.setTimestamp(3, cursor);
+        historyPage.setTimestamp(4, cursor);
+        historyPage.setLong(5, Long.MAX_VALUE);
+        return count(historyPage);
+    }
+
+    @Benchmark
+    public int latestPerSymbol() throws SQLException {
+        return count(latestPerSymbol);
+    }
+
+    /** The last five minutes of ticks across all symbols, what each rollup pass reads. */
+    @Benchmark
+    public int recentTicks() throws SQLException {
+        recent.setTimestamp(1, Timestamp.valueOf(START.plusMinutes(TICKS_PER_SYMBOL - 5)));
+        return count(recent);
+    }
+
+    @Benchmark
+    public Timestamp firstUpdateTime() throws SQLException {
+        firstUpdate.setString(1, symbol(next++ % SYMBOLS));
+        try (ResultSet resultSet = firstUpdate.executeQuery()) {
+            resultSet.next();
+            return resultSet.getTimestamp(1);
+        }
+    }
+}
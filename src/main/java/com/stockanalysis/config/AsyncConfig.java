@@ -0,0 +1,60 @@
+package com.stockanalysis.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executors that asynchronous controller endpoints hand their blocking work to, so servlet
+ * threads are released while a request waits on an exchange or the database. Each pool has a
+ * fixed size and a bounded queue: when a slow upstream fills the upstream pool, further
+ * upstream requests are rejected immediately instead of tying up threads that cheap
+ * endpoints and database reads still need.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${stock.async.request-timeout-ms:180000}")
+    private long requestTimeoutMs;
+
+    /** Yahoo Finance, NSE and BSE calls, including the indicator update and persistence hand-off that follow them. */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService upstreamExecutor(MeterRegistry meterRegistry,
+                                            @Value("${stock.async.upstream.threads:64}") int threads,
+                                            @Value("${stock.async.upstream.queue-capacity:256}") int queueCapacity) {
+        return boundedExecutor("upstream", threads, queueCapacity, meterRegistry);
+    }
+
+    /** Database and archive reads, and other request-scoped compute such as backtests. */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService queryExecutor(MeterRegistry meterRegistry,
+                                         @Value("${stock.async.query.threads:16}") int threads,
+                                         @Value("${stock.async.query.queue-capacity:256}") int queueCapacity) {
+        return boundedExecutor("query", threads, queueCapacity, meterRegistry);
+    }
+
+    private static ExecutorService boundedExecutor(String name, int threads, int queueCapacity,
+                                                   MeterRegistry meterRegistry) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name(name + "-", 0).daemon(true).factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, name);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        // Backstop only; every asynchronous endpoint applies its own, shorter timeout
+        configurer.setDefaultTimeout(requestTimeoutMs);
+    }
+}
@@ -1,19 +1,61 @@
 package com.stockanalysis.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stockanalysis.model.ArchivedHistory;
+import com.stockanalysis.model.BacktestRequest;
+import com.stockanalysis.model.BacktestResult;
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.CorrelationResult;
+import com.stockanalysis.model.HistoryPage;
+import com.stockanalysis.model.RecomputeStatus;
+import com.stockanalysis.model.ScreenRequest;
+import com.stockanalysis.model.ScreenResult;
+import com.stockanalysis.model.StockBar;
 import com.stockanalysis.model.StockData;
 import com.stockanalysis.service.StockService;
+import com.stockanalysis.service.BacktestService;
+import com.stockanalysis.service.CorrelationService;
+import com.stockanalysis.service.ExchangeHttpException;
+import com.stockanalysis.service.ExchangeUnavailableException;
+import com.stockanalysis.service.IndicatorRecomputeService;
 import com.stockanalysis.service.NSEClientService;
+import com.stockanalysis.service.QuoteStreamService;
+import com.stockanalysis.service.ScreenerService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/stocks")
 public class StockController {
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
 
     @Autowired
     private StockService stockService;
@@ -21,51 +63,326 @@ public class StockController {
     @Autowired
     private NSEClientService nseClientService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private QuoteStreamService quoteStreamService;
+
+    @Autowired
+    private IndicatorRecomputeService indicatorRecomputeService;
+
+    @Autowired
+    private ScreenerService screenerService;
+
+    @Autowired
+    private BacktestService backtestService;
+
+    @Autowired
+    private CorrelationService correlationService;
+
+    @Value("${stock.batch.max-symbols:500}")
+    private int maxBatchSymbols;
+
+    @Value("${stock.stream.max-symbols:200}")
+    private int maxStreamSymbols;
+
+    @Value("${stock.correlation.max-pairs:100}")
+    private int maxCorrelationPairs;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("upstreamExecutor")
+    private ExecutorService upstreamExecutor;
+
+    @Autowired
+    @Qualifier("queryExecutor")
+    private ExecutorService queryExecutor;
+
+    @Value("${stock.async.timeout-ms.quote:5000}")
+    private long quoteTimeoutMs;
+
+    @Value("${stock.async.timeout-ms.batch:15000}")
+    private long batchTimeoutMs;
+
+    @Value("${stock.async.timeout-ms.exchange:8000}")
+    private long exchangeTimeoutMs;
+
+    @Value("${stock.async.timeout-ms.exchange-all:60000}")
+    private long exchangeAllTimeoutMs;
+
+    @Value("${stock.async.timeout-ms.query:10000}")
+    private long queryTimeoutMs;
+
+    @Value("${stock.async.timeout-ms.backtest:120000}")
+    private long backtestTimeoutMs;
+
     @GetMapping("/{symbol}")
-    public ResponseEntity<StockData> getStockData(@PathVariable String symbol) {
-        StockData stockData = stockService.getStockData(symbol);
-        return ResponseEntity.ok(stockData);
+    public CompletableFuture<ResponseEntity<StockData>> getStockData(@PathVariable String symbol) {
+        return async("quote", upstreamExecutor, quoteTimeoutMs,
+                () -> ResponseEntity.ok(stockService.getStockData(symbol)),
+                () -> stockService.getLastKnownStockData(symbol));
     }
 
-    @GetMapping("/nse/{symbol}")
-    public ResponseEntity<Map<String, Object>> getNSEStockData(@PathVariable String symbol) {
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<Map<String, StockData>>> getBatchStockData(@RequestBody List<String> symbols) {
+        if (symbols == null || symbols.isEmpty() || symbols.size() > maxBatchSymbols) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return async("batch", upstreamExecutor, batchTimeoutMs,
+                () -> ResponseEntity.ok(stockService.getStockData(symbols)),
+                () -> {
+                    Map<String, StockData> lastKnown = new LinkedHashMap<>();
+                    for (String symbol : symbols) {
+                        StockData data = stockService.getLastKnownStockData(symbol);
+                        if (data != null) {
+                            lastKnown.put(symbol, data);
+                        }
+                    }
+                    return lastKnown.isEmpty() ? null : lastKnown;
+                });
+    }
+
+    @PostMapping("/screen")
+    public ResponseEntity<ScreenResult> screen(@RequestBody ScreenRequest request) {
         try {
-            Map<String, Object> nseData = nseClientService.getStockQuote(symbol);
-            return ResponseEntity.ok(nseData);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            return ResponseEntity.ok(screenerService.screen(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamQuotes(@RequestParam List<String> symbols) {
+        if (symbols.isEmpty() || symbols.size() > maxStreamSymbols) {
+            return ResponseEntity.badRequest().build();
         }
+        try {
+            return ResponseEntity.ok(quoteStreamService.subscribe(symbols));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    @GetMapping("/nse/{symbol}")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getNSEStockData(@PathVariable String symbol) {
+        return async("nse_quote", upstreamExecutor, exchangeTimeoutMs,
+                () -> ResponseEntity.ok(nseClientService.getStockQuote(symbol)),
+                () -> nseClientService.getStaleQuote(symbol));
     }
 
     @GetMapping("/nse/all")
-    public ResponseEntity<List<Map<String, Object>>> getAllNSEStocks() {
+    public CompletableFuture<ResponseEntity<List<Map<String, Object>>>> getAllNSEStocks() {
+        return async("nse_all", upstreamExecutor, exchangeAllTimeoutMs,
+                () -> ResponseEntity.ok(nseClientService.getAllStockDetails()),
+                () -> null);
+    }
+
+    /**
+     * Runs {@code call} on {@code executor}, so the servlet thread is released while it waits
+     * on upstream or database I/O. If the call times out or the executor is full, the
+     * response is the {@code lastKnown} body marked stale, or 504/503 without one. Other
+     * failures are mapped by {@link #exchangeError}. A call that times out is cancelled: it is
+     * dropped from the queue if it has not started, and its thread is interrupted otherwise,
+     * which aborts in-flight exchange requests and backtests.
+     */
+    private <T> CompletableFuture<ResponseEntity<T>> async(String endpoint, ExecutorService executor, long timeoutMs,
+                                                          Callable<ResponseEntity<T>> call,
+                                                          Supplier<T> lastKnown) {
+        CompletableFuture<ResponseEntity<T>> future = new CompletableFuture<>();
+        Future<?> task;
         try {
-            List<Map<String, Object>> allStocks = nseClientService.getAllStockDetails();
-            return ResponseEntity.ok(allStocks);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
+            task = executor.submit(() -> {
+                try {
+                    future.complete(call.call());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(degraded(endpoint, "rejected", lastKnown));
         }
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((response, e) -> {
+                    if (e instanceof TimeoutException) {
+                        task.cancel(true);
+                    }
+                });
+        return future.exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            if (cause instanceof TimeoutException) {
+                return degraded(endpoint, "timeout", lastKnown);
+            }
+            return exchangeError(cause);
+        });
     }
 
-    @GetMapping("/{symbol}/technical")
-    public ResponseEntity<Map<String, Object>> getTechnicalIndicators(@PathVariable String symbol) {
-        StockData stockData = stockService.getLatestStockData(symbol);
-        if (stockData == null) {
-            return ResponseEntity.notFound().build();
+    private <T> ResponseEntity<T> degraded(String endpoint, String reason, Supplier<T> lastKnown) {
+        meterRegistry.counter("stock.http.degraded", "endpoint", endpoint, "reason", reason).increment();
+        T body = lastKnown.get();
+        if (body != null) {
+            return ResponseEntity.ok().header(HttpHeaders.WARNING, STALE_WARNING).body(body);
+        }
+        if ("rejected".equals(reason)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
         }
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).build();
+    }
 
-        Map<String, Object> technicalData = stockService.getTechnicalIndicators(stockData);
-        return ResponseEntity.ok(technicalData);
+    /** 503 with Retry-After when the exchange is shedding load, 502 when it failed, 500 otherwise. */
+    private static <T> ResponseEntity<T> exchangeError(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ExchangeUnavailableException unavailable) {
+                long retryAfterSeconds = Math.max(1, (unavailable.getRetryAfterMillis() + 999) / 1000);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                        .build();
+            }
+            if (cause instanceof ExchangeHttpException) {
+                return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+            }
+        }
+        return ResponseEntity.internalServerError().build();
+    }
+
+    @GetMapping("/{symbol}/technical")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> getTechnicalIndicators(@PathVariable String symbol) {
+        return async("technical", queryExecutor, queryTimeoutMs, () -> {
+            StockData stockData = stockService.getLatestStockData(symbol);
+            if (stockData == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Map<String, Object> technicalData = stockService.getTechnicalIndicators(stockData);
+            return ResponseEntity.ok(technicalData);
+        }, () -> {
+            StockData lastKnown = stockService.getLastKnownStockData(symbol);
+            return lastKnown != null ? stockService.getTechnicalIndicators(lastKnown) : null;
+        });
     }
 
     @GetMapping("/{symbol}/history")
-    public ResponseEntity<List<StockData>> getStockHistory(
+    public CompletableFuture<ResponseEntity<List<StockData>>> getStockHistory(
+            @PathVariable String symbol,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        return async("history", queryExecutor, queryTimeoutMs, () -> {
+            if (startDate != null && endDate != null) {
+                return ResponseEntity.ok(stockService.getHistoricalDataBetweenDates(symbol, startDate, endDate));
+            }
+            if (startDate != null) {
+                return ResponseEntity.ok(stockService.getHistoricalData(symbol, startDate));
+            }
+            return ResponseEntity.ok(stockService.getStockHistory(symbol));
+        }, () -> null);
+    }
+
+    @GetMapping("/{symbol}/history/archive")
+    public CompletableFuture<ResponseEntity<ArchivedHistory>> getArchivedHistory(
+            @PathVariable String symbol,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        return async("archive", queryExecutor, queryTimeoutMs,
+                () -> ResponseEntity.ok(stockService.getArchivedHistory(symbol, startDate, endDate)),
+                () -> null);
+    }
+
+    @GetMapping("/{symbol}/bars")
+    public CompletableFuture<ResponseEntity<List<StockBar>>> getBars(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "1d") String resolution,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        BarResolution barResolution;
+        try {
+            barResolution = BarResolution.fromCode(resolution);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+        return async("bars", queryExecutor, queryTimeoutMs,
+                () -> ResponseEntity.ok(stockService.getBars(symbol, barResolution, startDate, endDate)),
+                () -> null);
+    }
+
+    @GetMapping("/{symbol}/correlations")
+    public ResponseEntity<CorrelationResult> getCorrelations(
             @PathVariable String symbol,
-            @RequestParam(required = false) LocalDateTime startDate) {
-        if (startDate != null) {
-            return ResponseEntity.ok(stockService.getHistoricalData(symbol, startDate));
+            @RequestParam(defaultValue = "10") int k) {
+        if (k < 1 || k > maxCorrelationPairs) {
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(stockService.getStockHistory(symbol));
+        CorrelationResult result = correlationService.getCorrelations(symbol, k);
+        return result != null ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/{symbol}/history/page")
+    public CompletableFuture<ResponseEntity<HistoryPage>> getStockHistoryPage(
+            @PathVariable String symbol,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int limit) {
+        return async("history_page", queryExecutor, queryTimeoutMs, () -> {
+            try {
+                return ResponseEntity.ok(stockService.getHistoryPage(symbol, startDate, endDate, cursor, limit));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }, () -> null);
+    }
+
+    @GetMapping(value = "/{symbol}/history/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamStockHistory(
+            @PathVariable String symbol,
+            @RequestParam(required = false) LocalDateTime startDate,
+            @RequestParam(required = false) LocalDateTime endDate) {
+        StreamingResponseBody body = outputStream -> {
+            ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            stockService.streamHistory(symbol, startDate, endDate, data -> {
+                try {
+                    writer.writeValue(outputStream, data);
+                    outputStream.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            outputStream.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    @PostMapping("/indicators/recompute")
+    public ResponseEntity<RecomputeStatus> recomputeIndicators(@RequestParam(required = false) List<String> symbols) {
+        try {
+            return ResponseEntity.accepted().body(indicatorRecomputeService.start(symbols));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(indicatorRecomputeService.getStatus());
+        }
+    }
+
+    @GetMapping("/indicators/recompute/status")
+    public ResponseEntity<RecomputeStatus> getRecomputeStatus() {
+        return ResponseEntity.ok(indicatorRecomputeService.getStatus());
+    }
+
+    @PostMapping("/backtest")
+    public CompletableFuture<ResponseEntity<BacktestResult>> backtest(@RequestBody BacktestRequest request) {
+        return async("backtest", queryExecutor, backtestTimeoutMs, () -> {
+            try {
+                return ResponseEntity.ok(backtestService.run(request));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().build();
+            }
+        }, () -> null);
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(stockService.getCacheStats());
     }
 
     @GetMapping("/tracked")
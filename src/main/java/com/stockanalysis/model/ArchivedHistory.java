@@ -0,0 +1,14 @@
+package com.stockanalysis.model;
+
+/**
+ * Columnar history read from the tick archive, oldest first.
+ * Timestamps are epoch milliseconds; all arrays have the same length.
+ */
+public record ArchivedHistory(String symbol,
+                              long[] timestamps,
+                              double[] open,
+                              double[] high,
+                              double[] low,
+                              double[] close,
+                              long[] volume) {
+}
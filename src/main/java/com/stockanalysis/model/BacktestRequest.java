@@ -0,0 +1,20 @@
+package com.stockanalysis.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A backtest sweep: every symbol is run once per parameter set.
+ * {@code source} is {@code history} (stored snapshots, the default), {@code archive} (the tick
+ * archive) or a bar resolution code such as {@code 1d}.
+ */
+public record BacktestRequest(List<String> symbols,
+                              String strategy,
+                              List<Map<String, Double>> parameterSets,
+                              String source,
+                              LocalDateTime startDate,
+                              LocalDateTime endDate,
+                              Double initialCapital,
+                              Double commissionPercent) {
+}
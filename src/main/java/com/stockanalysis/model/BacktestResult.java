@@ -0,0 +1,11 @@
+package com.stockanalysis.model;
+
+import java.util.List;
+
+/** All runs of a backtest sweep with its throughput, counted in simulated bars across every run. */
+public record BacktestResult(List<BacktestRun> runs,
+                             List<String> failedSymbols,
+                             long barsProcessed,
+                             double elapsedSeconds,
+                             double barsPerSecond) {
+}
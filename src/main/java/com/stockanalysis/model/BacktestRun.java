@@ -0,0 +1,17 @@
+package com.stockanalysis.model;
+
+import java.util.List;
+import java.util.Map;
+
+/** Outcome of one strategy and parameter set on one symbol. {@code trades} may be truncated; {@code tradeCount} is not. */
+public record BacktestRun(String symbol,
+                          String strategy,
+                          Map<String, Double> parameters,
+                          int bars,
+                          int tradeCount,
+                          double finalEquity,
+                          double returnPercent,
+                          double maxDrawdownPercent,
+                          double winRatePercent,
+                          List<BacktestTrade> trades) {
+}
@@ -0,0 +1,13 @@
+package com.stockanalysis.model;
+
+import java.time.LocalDateTime;
+
+/** One round trip of a long-only backtest; a position still open at the end is closed at the last price. */
+public record BacktestTrade(LocalDateTime entryTime,
+                            double entryPrice,
+                            LocalDateTime exitTime,
+                            double exitPrice,
+                            double quantity,
+                            double profitLoss,
+                            double returnPercent) {
+}
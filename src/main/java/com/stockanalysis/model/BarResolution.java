@@ -0,0 +1,47 @@
+package com.stockanalysis.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/** Bar sizes produced by the rollup job, from finest to coarsest. */
+public enum BarResolution {
+    ONE_MINUTE("1m", Duration.ofMinutes(1)),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1)),
+    ONE_DAY("1d", Duration.ofDays(1));
+
+    private final String code;
+    private final Duration duration;
+
+    BarResolution(String code, Duration duration) {
+        this.code = code;
+        this.duration = duration;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /** Start of the bar that contains {@code time}. */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        if (this == ONE_DAY) {
+            return time.toLocalDate().atStartOfDay();
+        }
+        long seconds = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(seconds - Math.floorMod(seconds, duration.getSeconds()), 0, ZoneOffset.UTC);
+    }
+
+    public static BarResolution fromCode(String code) {
+        for (BarResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown bar resolution: " + code);
+    }
+}
@@ -0,0 +1,26 @@
+package com.stockanalysis.model;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One row of the BSE {@code GetMarketData} table.
+ */
+public record BseMarketQuote(
+        String scripCode,
+        String symbol,
+        BigDecimal currentPrice,
+        BigDecimal change,
+        BigDecimal changePercent) {
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> stockData = new HashMap<>();
+        stockData.put("scripCode", scripCode);
+        stockData.put("symbol", symbol);
+        stockData.put("currentPrice", currentPrice);
+        stockData.put("change", change);
+        stockData.put("changePercent", changePercent);
+        return stockData;
+    }
+}
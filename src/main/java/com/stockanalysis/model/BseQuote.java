@@ -0,0 +1,34 @@
+package com.stockanalysis.model;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fields decoded from a BSE {@code StockReachGraph} response.
+ */
+public record BseQuote(
+        String scripCode,
+        BigDecimal currentPrice,
+        BigDecimal dayHigh,
+        BigDecimal dayLow,
+        BigDecimal previousClose,
+        BigDecimal change,
+        BigDecimal changePercent,
+        long volume,
+        BigDecimal tradedValue) {
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> stockData = new HashMap<>();
+        stockData.put("scripCode", scripCode);
+        stockData.put("currentPrice", currentPrice);
+        stockData.put("dayHigh", dayHigh);
+        stockData.put("dayLow", dayLow);
+        stockData.put("previousClose", previousClose);
+        stockData.put("change", change);
+        stockData.put("changePercent", changePercent);
+        stockData.put("volume", volume);
+        stockData.put("tradedValue", tradedValue);
+        return stockData;
+    }
+}
@@ -0,0 +1,7 @@
+package com.stockanalysis.model;
+
+/** Correlation and covariance of the windowed returns of a pair of symbols. */
+public record CorrelationPair(String symbol,
+                              double correlation,
+                              double covariance) {
+}
@@ -0,0 +1,16 @@
+package com.stockanalysis.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The pairs most and least correlated with {@code symbol}, over the last {@code observations}
+ * returns of {@code resolution} bars ending at the bar starting at {@code asOf}.
+ */
+public record CorrelationResult(String symbol,
+                                String resolution,
+                                int observations,
+                                LocalDateTime asOf,
+                                List<CorrelationPair> mostCorrelated,
+                                List<CorrelationPair> leastCorrelated) {
+}
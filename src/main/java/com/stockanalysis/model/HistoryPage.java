@@ -0,0 +1,10 @@
+package com.stockanalysis.model;
+
+import java.util.List;
+
+/**
+ * One page of a symbol's history, newest first.
+ * {@code nextCursor} is null when there are no older rows.
+ */
+public record HistoryPage(List<StockData> data, String nextCursor) {
+}
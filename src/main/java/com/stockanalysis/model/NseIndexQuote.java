@@ -0,0 +1,50 @@
+package com.stockanalysis.model;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One row of an NSE {@code equity-stockIndices} response.
+ * The row for the index itself has {@code priority} 1; constituents have 0.
+ */
+public record NseIndexQuote(
+        String symbol,
+        String companyName,
+        String industry,
+        BigDecimal currentPrice,
+        BigDecimal open,
+        BigDecimal dayHigh,
+        BigDecimal dayLow,
+        BigDecimal previousClose,
+        BigDecimal change,
+        BigDecimal changePercent,
+        long volume,
+        BigDecimal yearHigh,
+        BigDecimal yearLow,
+        String lastUpdateTime,
+        int priority) {
+
+    public boolean isIndexRow() {
+        return priority > 0;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> stockData = new HashMap<>();
+        stockData.put("symbol", symbol);
+        stockData.put("companyName", companyName);
+        stockData.put("industry", industry);
+        stockData.put("currentPrice", currentPrice);
+        stockData.put("open", open);
+        stockData.put("dayHigh", dayHigh);
+        stockData.put("dayLow", dayLow);
+        stockData.put("previousClose", previousClose);
+        stockData.put("change", change);
+        stockData.put("changePercent", changePercent);
+        stockData.put("volume", volume);
+        stockData.put("weekHigh", yearHigh);
+        stockData.put("weekLow", yearLow);
+        stockData.put("lastUpdateTime", lastUpdateTime);
+        return stockData;
+    }
+}
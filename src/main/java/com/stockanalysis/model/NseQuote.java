@@ -0,0 +1,50 @@
+package com.stockanalysis.model;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Fields decoded from an NSE {@code quote-equity} response.
+ */
+public record NseQuote(
+        String symbol,
+        String companyName,
+        String industry,
+        BigDecimal currentPrice,
+        BigDecimal open,
+        BigDecimal dayHigh,
+        BigDecimal dayLow,
+        BigDecimal previousClose,
+        BigDecimal change,
+        BigDecimal changePercent,
+        long volume,
+        BigDecimal vwap,
+        BigDecimal weekHigh,
+        BigDecimal weekLow,
+        BigDecimal upperCircuit,
+        BigDecimal lowerCircuit,
+        String lastUpdateTime) {
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> stockData = new HashMap<>();
+        stockData.put("symbol", symbol);
+        stockData.put("companyName", companyName);
+        stockData.put("industry", industry);
+        stockData.put("currentPrice", currentPrice);
+        stockData.put("open", open);
+        stockData.put("dayHigh", dayHigh);
+        stockData.put("dayLow", dayLow);
+        stockData.put("previousClose", previousClose);
+        stockData.put("change", change);
+        stockData.put("changePercent", changePercent);
+        stockData.put("volume", volume);
+        stockData.put("vwap", vwap);
+        stockData.put("weekHigh", weekHigh);
+        stockData.put("weekLow", weekLow);
+        stockData.put("upperCircuit", upperCircuit);
+        stockData.put("lowerCircuit", lowerCircuit);
+        stockData.put("lastUpdateTime", lastUpdateTime);
+        return stockData;
+    }
+}
@@ -0,0 +1,7 @@
+package com.stockanalysis.model;
+
+/** Upstream a snapshot was fetched from, and therefore where the symbol is refreshed. */
+public enum QuoteSource {
+    YAHOO,
+    NSE
+}
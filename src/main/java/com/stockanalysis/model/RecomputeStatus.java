@@ -0,0 +1,20 @@
+package com.stockanalysis.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of an indicator recompute job.
+ * {@code symbols} maps each symbol to PENDING, RUNNING, DONE or FAILED.
+ */
+public record RecomputeStatus(boolean running,
+                              LocalDateTime startedAt,
+                              LocalDateTime finishedAt,
+                              int totalSymbols,
+                              int completedSymbols,
+                              List<String> failedSymbols,
+                              long rowsProcessed,
+                              double rowsPerSecond,
+                              Map<String, String> symbols) {
+}
@@ -0,0 +1,59 @@
+package com.stockanalysis.model;
+
+import java.util.function.Function;
+
+/** Latest-snapshot fields that screens can filter and sort on, named as in the JSON response. */
+public enum ScreenField {
+    CURRENT_PRICE("currentPrice", StockData::getCurrentPrice),
+    OPEN("open", StockData::getOpen),
+    DAY_HIGH("dayHigh", StockData::getDayHigh),
+    DAY_LOW("dayLow", StockData::getDayLow),
+    PREVIOUS_CLOSE("previousClose", StockData::getPreviousClose),
+    CHANGE("change", StockData::getChange),
+    CHANGE_PERCENT("changePercent", StockData::getChangePercent),
+    VOLUME("volume", StockData::getVolume),
+    VWAP("vwap", StockData::getVwap),
+    WEEK_HIGH("weekHigh", StockData::getWeekHigh),
+    WEEK_LOW("weekLow", StockData::getWeekLow),
+    MARKET_CAP("marketCap", StockData::getMarketCap),
+    MA20("ma20", StockData::getMa20),
+    MA50("ma50", StockData::getMa50),
+    RSI("rsi", StockData::getRsi),
+    MACD("macd", StockData::getMacd),
+    SIGNAL_LINE("signalLine", StockData::getSignalLine),
+    MACD_HISTOGRAM("macdHistogram", StockData::getMacdHistogram),
+    BOLLINGER_UPPER("bollingerUpper", StockData::getBollingerUpper),
+    BOLLINGER_MIDDLE("bollingerMiddle", StockData::getBollingerMiddle),
+    BOLLINGER_LOWER("bollingerLower", StockData::getBollingerLower),
+    STOCHASTIC_K("stochasticK", StockData::getStochasticK),
+    STOCHASTIC_D("stochasticD", StockData::getStochasticD),
+    ATR("atr", StockData::getAtr),
+    MFI("mfi", StockData::getMfi);
+
+    private final String code;
+    private final Function<StockData, Number> extractor;
+
+    ScreenField(String code, Function<StockData, Number> extractor) {
+        this.code = code;
+        this.extractor = extractor;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    /** The field's value, or NaN when it is missing so that no comparison matches it. */
+    public double valueOf(StockData data) {
+        Number value = extractor.apply(data);
+        return value != null ? value.doubleValue() : Double.NaN;
+    }
+
+    public static ScreenField fromCode(String code) {
+        for (ScreenField field : values()) {
+            if (field.code.equalsIgnoreCase(code)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown screen field: " + code);
+    }
+}
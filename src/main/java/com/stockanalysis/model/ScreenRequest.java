@@ -0,0 +1,18 @@
+package com.stockanalysis.model;
+
+import java.util.List;
+
+/**
+ * A composable screen: all conditions must hold, matches are optionally sorted by one field
+ * and cut to {@code limit}. For example {@code rsi < 30 AND macd > signalLine} is
+ * {@code [{"field":"rsi","op":"<","value":30}, {"field":"macd","op":">","other":"signalLine"}]}.
+ */
+public record ScreenRequest(List<Condition> conditions,
+                            String sortBy,
+                            Boolean descending,
+                            Integer limit) {
+
+    /** Compares {@code field} with either a constant {@code value} or another field {@code other}. */
+    public record Condition(String field, String op, Double value, String other) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.stockanalysis.model;
+
+import java.util.List;
+
+/** Screen matches together with how many snapshots were scanned and how long the scan took. */
+public record ScreenResult(int scanned,
+                           int matched,
+                           long elapsedMicros,
+                           List<StockSnapshotView> results) {
+}
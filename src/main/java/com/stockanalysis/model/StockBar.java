@@ -0,0 +1,50 @@
+package com.stockanalysis.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * OHLCV bar aggregated from raw snapshots. {@code tradeDate} is the partition key of the
+ * {@code stock_bar} table (see {@code db/stock_bar_partitions.sql}).
+ */
+@Data
+@Entity
+@Table(name = "stock_bar",
+        uniqueConstraints = @UniqueConstraint(name = "uk_stock_bar_bucket",
+                columnNames = {"symbol", "resolution", "bucket_start", "trade_date"}),
+        indexes = @Index(name = "idx_stock_bar_resolution_bucket", columnList = "resolution, bucket_start"))
+@Getter
+@Setter
+public class StockBar {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_bar_seq")
+    @SequenceGenerator(name = "stock_bar_seq", sequenceName = "stock_bar_seq", allocationSize = 50)
+    private Long id;
+
+    private String symbol;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private BarResolution resolution;
+
+    @Column(name = "bucket_start")
+    private LocalDateTime bucketStart;
+
+    @Column(name = "trade_date")
+    private LocalDate tradeDate;
+
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private Long volume;
+
+    @Column(name = "sample_count")
+    private Integer sampleCount;
+}
@@ -10,7 +10,10 @@ import java.time.LocalDateTime;
 
 @Data
 @Entity
-@Table(name = "stock_data")
+@Table(name = "stock_data", indexes = {
+        @Index(name = "idx_stock_data_symbol_time", columnList = "symbol, last_update_time, id"),
+        @Index(name = "idx_stock_data_time", columnList = "last_update_time")
+})
 @Getter
 @Setter
 public class StockData {
@@ -19,6 +22,11 @@ public class StockData {
     private Long id;
 
     private String symbol;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private QuoteSource source;
+
     private String companyName;
     private String industry;
 
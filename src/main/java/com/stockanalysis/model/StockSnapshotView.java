@@ -0,0 +1,23 @@
+package com.stockanalysis.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Narrow read-only view of a stock snapshot used by the screeners, so screening
+ * queries only select the columns they return instead of hydrating full entities.
+ */
+public interface StockSnapshotView {
+    Long getId();
+    String getSymbol();
+    BigDecimal getCurrentPrice();
+    BigDecimal getChange();
+    BigDecimal getChangePercent();
+    Long getVolume();
+    BigDecimal getRsi();
+    BigDecimal getMacd();
+    BigDecimal getSignalLine();
+    BigDecimal getBollingerUpper();
+    BigDecimal getBollingerLower();
+    LocalDateTime getLastUpdateTime();
+}
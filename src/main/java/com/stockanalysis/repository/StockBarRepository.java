@@ -0,0 +1,40 @@
+package com.stockanalysis.repository;
+
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.StockBar;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface StockBarRepository extends JpaRepository<StockBar, Long> {
+    @Query("SELECT b FROM StockBar b WHERE b.symbol = ?1 AND b.resolution = ?2 " +
+            "AND b.bucketStart >= ?3 AND b.bucketStart <= ?4 ORDER BY b.bucketStart ASC")
+    List<StockBar> findBars(String symbol, BarResolution resolution, LocalDateTime startDate, LocalDateTime endDate);
+
+    @Query("SELECT b FROM StockBar b WHERE b.symbol = ?1 AND b.resolution = ?2 ORDER BY b.bucketStart DESC LIMIT ?3")
+    List<StockBar> findLastNBars(String symbol, BarResolution resolution, int n);
+
+    @Query("SELECT b FROM StockBar b WHERE b.resolution = ?1 AND b.bucketStart >= ?2 ORDER BY b.symbol, b.bucketStart")
+    List<StockBar> findAllSince(BarResolution resolution, LocalDateTime since);
+
+    interface LatestBucket {
+        String getSymbol();
+        LocalDateTime getBucketStart();
+    }
+
+    @Query("SELECT b.symbol AS symbol, MAX(b.bucketStart) AS bucketStart FROM StockBar b " +
+            "WHERE b.resolution = ?1 GROUP BY b.symbol")
+    List<LatestBucket> findLatestBucketStarts(BarResolution resolution);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM StockBar b WHERE b.resolution = ?1 AND b.tradeDate < ?2")
+    int deleteOlderThan(BarResolution resolution, LocalDate tradeDate);
+}
@@ -0,0 +1,127 @@
+package com.stockanalysis.repository;
+
+import com.stockanalysis.model.StockData;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Inserts quote snapshots as one JDBC batch. Hibernate cannot batch inserts into an
+ * AUTO_INCREMENT table, since it needs each generated id before the next row, so
+ * {@code saveAll} would send one INSERT per row. Here every row is added to a single prepared
+ * statement and executed once; with {@code rewriteBatchedStatements=true} Connector/J sends the
+ * batch as one multi-row INSERT, so a batch costs one round trip. The generated ids are read
+ * back into the snapshots.
+ */
+@Repository
+public class StockDataBatchInserter {
+    private static final String INSERT = "INSERT INTO stock_data (symbol, source, company_name, industry, "
+            + "current_price, open, day_high, day_low, previous_close, chg, change_percent, volume, vwap, "
+            + "week_high, week_low, upper_circuit, lower_circuit, last_update_time, ma20, ma50, rsi, market_cap, "
+            + "macd, signal_line, macd_histogram, bollinger_upper, bollinger_middle, bollinger_lower, "
+            + "stochastick, stochasticd, atr, mfi, created_at, high, low) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public StockDataBatchInserter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Inserts {@code rows} in one statement execution and sets their ids. All rows commit or none do. */
+    @Transactional
+    public void insertAll(List<StockData> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS)) {
+                for (StockData row : rows) {
+                    if (row.getCreatedAt() == null) {
+                        row.setCreatedAt(now);
+                    }
+                    bind(statement, row);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (int i = 0; i < rows.size() && keys.next(); i++) {
+                        rows.get(i).setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void bind(PreparedStatement statement, StockData row) throws SQLException {
+        int i = 1;
+        statement.setString(i++, row.getSymbol());
+        statement.setString(i++, row.getSource() != null ? row.getSource().name() : null);
+        statement.setString(i++, row.getCompanyName());
+        statement.setString(i++, row.getIndustry());
+        setDecimal(statement, i++, row.getCurrentPrice());
+        setDecimal(statement, i++, row.getOpen());
+        setDecimal(statement, i++, row.getDayHigh());
+        setDecimal(statement, i++, row.getDayLow());
+        setDecimal(statement, i++, row.getPreviousClose());
+        setDecimal(statement, i++, row.getChange());
+        setDecimal(statement, i++, row.getChangePercent());
+        if (row.getVolume() != null) {
+            statement.setLong(i++, row.getVolume());
+        } else {
+            statement.setNull(i++, Types.BIGINT);
+        }
+        setDecimal(statement, i++, row.getVwap());
+        setDecimal(statement, i++, row.getWeekHigh());
+        setDecimal(statement, i++, row.getWeekLow());
+        setDecimal(statement, i++, row.getUpperCircuit());
+        setDecimal(statement, i++, row.getLowerCircuit());
+        setTimestamp(statement, i++, row.getLastUpdateTime());
+        setDecimal(statement, i++, row.getMa20());
+        setDecimal(statement, i++, row.getMa50());
+        setDecimal(statement, i++, row.getRsi());
+        setDecimal(statement, i++, row.getMarketCap());
+        setDecimal(statement, i++, row.getMacd());
+        setDecimal(statement, i++, row.getSignalLine());
+        setDecimal(statement, i++, row.getMacdHistogram());
+        setDecimal(statement, i++, row.getBollingerUpper());
+        setDecimal(statement, i++, row.getBollingerMiddle());
+        setDecimal(statement, i++, row.getBollingerLower());
+        setDecimal(statement, i++, row.getStochasticK());
+        setDecimal(statement, i++, row.getStochasticD());
+        setDecimal(statement, i++, row.getAtr());
+        setDecimal(statement, i++, row.getMfi());
+        setTimestamp(statement, i++, row.getCreatedAt());
+        setDecimal(statement, i++, row.getHigh());
+        setDecimal(statement, i, row.getLow());
+    }
+
+    private static void setDecimal(PreparedStatement statement, int index, BigDecimal value) throws SQLException {
+        if (value != null) {
+            statement.setBigDecimal(index, value);
+        } else {
+            statement.setNull(index, Types.DECIMAL);
+        }
+    }
+
+    private static void setTimestamp(PreparedStatement statement, int index, LocalDateTime value) throws SQLException {
+        if (value != null) {
+            statement.setTimestamp(index, Timestamp.valueOf(value));
+        } else {
+            statement.setNull(index, Types.TIMESTAMP);
+        }
+    }
+}
@@ -1,12 +1,18 @@
 package com.stockanalysis.repository;
 
 import com.stockanalysis.model.StockData;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface StockDataRepository extends JpaRepository<StockData, Long> {
@@ -19,8 +25,51 @@ public interface StockDataRepository extends JpaRepository<StockData, Long> {
     @Query("SELECT s FROM StockData s WHERE s.symbol = ?1 AND s.lastUpdateTime >= ?2 AND s.lastUpdateTime <= ?3")
     List<StockData> findHistoricalDataBetweenDates(String symbol, LocalDateTime startDate, LocalDateTime endDate);
 
-    @Query("SELECT DISTINCT s.symbol FROM StockData s")
-    List<String> findAllTrackedSymbols();
+    // Keyset pagination: rows strictly older than the (lastUpdateTime, id) cursor, newest first
+    @Query("SELECT s FROM StockData s WHERE s.symbol = ?1 AND s.lastUpdateTime >= ?2 " +
+            "AND (s.lastUpdateTime < ?3 OR (s.lastUpdateTime = ?3 AND s.id < ?4)) " +
+            "ORDER BY s.lastUpdateTime DESC, s.id DESC")
+    List<StockData> findHistoryPage(String symbol, LocalDateTime startDate, LocalDateTime cursorTime, Long cursorId, Pageable pageable);
+
+    // Keyset pagination: rows strictly newer than the (lastUpdateTime, id) cursor, oldest first
+    @Query("SELECT s FROM StockData s WHERE s.symbol = ?1 " +
+            "AND (s.lastUpdateTime > ?2 OR (s.lastUpdateTime = ?2 AND s.id > ?3)) " +
+            "ORDER BY s.lastUpdateTime ASC, s.id ASC")
+    List<StockData> findHistoryChunk(String symbol, LocalDateTime cursorTime, Long cursorId, Pageable pageable);
+
+    // With useCursorFetch=true MySQL Connector/J reads through a server-side cursor this many rows at a
+    // time instead of buffering the result set; unlike an Integer.MIN_VALUE fetch size it is valid on any driver
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT s FROM StockData s WHERE s.symbol = ?1 AND s.lastUpdateTime >= ?2 AND s.lastUpdateTime <= ?3 " +
+            "ORDER BY s.lastUpdateTime ASC, s.id ASC")
+    Stream<StockData> streamHistory(String symbol, LocalDateTime startDate, LocalDateTime endDate);
+
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT s FROM StockData s WHERE s.lastUpdateTime >= ?1 AND s.currentPrice IS NOT NULL " +
+            "ORDER BY s.symbol, s.lastUpdateTime, s.id")
+    Stream<StockData> streamAllSince(LocalDateTime since);
+
+    @Query("SELECT MIN(s.lastUpdateTime) FROM StockData s WHERE s.symbol = ?1")
+    LocalDateTime findFirstUpdateTime(String symbol);
+
+    // Deleted in chunks so retention never holds long locks on the hot table
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM stock_data WHERE symbol = ?1 AND last_update_time < ?2 LIMIT ?3", nativeQuery = true)
+    int deleteOlderThan(String symbol, LocalDateTime cutoff, int limit);
+
+    // The GROUP BY derived table is a loose index scan over (symbol, last_update_time): one probe per
+    // symbol instead of a MAX subquery evaluated for every row of the table
+    @Query(value = "SELECT s.* FROM stock_data s JOIN (SELECT symbol, MAX(last_update_time) AS last_update_time " +
+            "FROM stock_data GROUP BY symbol) latest " +
+            "ON s.symbol = latest.symbol AND s.last_update_time = latest.last_update_time", nativeQuery = true)
+    List<StockData> findLatestPerSymbol();
 
     @Query("SELECT s FROM StockData s WHERE s.lastUpdateTime >= ?1")
     List<StockData> findAllRecentData(LocalDateTime since);
@@ -30,32 +79,4 @@ public interface StockDataRepository extends JpaRepository<StockData, Long> {
 
     @Query("SELECT s FROM StockData s WHERE s.currentPrice >= ?1")
     List<StockData> findStocksAbovePrice(BigDecimal price);
-
-    @Query("SELECT s FROM StockData s WHERE s.changePercent >= ?1 ORDER BY s.changePercent DESC")
-    List<StockData> findTopGainers(BigDecimal minChangePercent);
-
-    @Query("SELECT s FROM StockData s WHERE s.changePercent <= ?1 ORDER BY s.changePercent ASC")
-    List<StockData> findTopLosers(BigDecimal maxChangePercent);
-
-    @Query("SELECT s FROM StockData s WHERE s.volume >= ?1 ORDER BY s.volume DESC")
-    List<StockData> findHighVolumeStocks(Long minVolume);
-
-    // Technical Analysis related queries
-    @Query("SELECT s FROM StockData s WHERE s.rsi <= ?1")
-    List<StockData> findOversoldStocks(BigDecimal rsiThreshold);
-
-    @Query("SELECT s FROM StockData s WHERE s.rsi >= ?1")
-    List<StockData> findOverboughtStocks(BigDecimal rsiThreshold);
-
-    @Query("SELECT s FROM StockData s WHERE s.macd > s.signalLine")
-    List<StockData> findStocksWithBullishMACD();
-
-    @Query("SELECT s FROM StockData s WHERE s.macd < s.signalLine")
-    List<StockData> findStocksWithBearishMACD();
-
-    @Query("SELECT s FROM StockData s WHERE s.currentPrice <= s.bollingerLower")
-    List<StockData> findStocksBelowBollingerLower();
-
-    @Query("SELECT s FROM StockData s WHERE s.currentPrice >= s.bollingerUpper")
-    List<StockData> findStocksAboveBollingerUpper();
 }
\ No newline at end of file
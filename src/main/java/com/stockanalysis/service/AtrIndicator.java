@@ -0,0 +1,54 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** 14-period Average True Range with Wilder smoothing. */
+public class AtrIndicator implements Indicator {
+    private static final int PERIOD = 14;
+    private static final List<Field> FIELDS = List.of(new Field("atr", StockData::getAtr, StockData::setAtr));
+
+    @Override
+    public String name() {
+        return "atr";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new AtrCalculator();
+    }
+
+    private static final class AtrCalculator implements Calculator {
+        private long samples;
+        private double atr;
+
+        @Override
+        public void update(IndicatorContext context) {
+            samples++;
+            if (samples <= PERIOD) {
+                atr += context.trueRange() / PERIOD;
+            } else {
+                atr = (atr * (PERIOD - 1) + context.trueRange()) / PERIOD;
+            }
+        }
+
+        @Override
+        public double value(int field) {
+            return samples >= PERIOD ? atr : Double.NaN;
+        }
+
+        @Override
+        public Calculator copy() {
+            AtrCalculator copy = new AtrCalculator();
+            copy.samples = samples;
+            copy.atr = atr;
+            return copy;
+        }
+    }
+}
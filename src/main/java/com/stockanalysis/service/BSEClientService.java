@@ -1,101 +1,113 @@
 package com.stockanalysis.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import com.stockanalysis.model.BseMarketQuote;
+import com.stockanalysis.model.BseQuote;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.io.IOException;
-import java.math.BigDecimal;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * BSE quotes and market data behind the same rate limiter and circuit breaker as NSE.
+ * BSE quotes are not persisted, so the last-known fallback while BSE is unavailable is the
+ * last quote this process fetched for the scrip code; after a restart there is none until the
+ * first successful fetch.
+ */
 @Service
 public class BSEClientService {
     private static final String BSE_BASE_URL = "https://api.bseindia.com/BseIndiaAPI/api/";
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
+    private static final Map<String, String> BSE_HEADERS = Map.of(
+            "User-Agent", "Mozilla/5.0",
+            "Accept", "application/json");
+
+    private final BseResponseParser responseParser = new BseResponseParser();
+    private final ExchangeHttpClient httpClient;
+    private final MeterRegistry meterRegistry;
+    private final ExchangeGuard guard;
+    private final Map<String, BseQuote> lastKnownQuotes = new ConcurrentHashMap<>();
+
+    public BSEClientService(ExchangeHttpClient httpClient,
+                            MeterRegistry meterRegistry,
+                            @Value("${bse.rate-limit.permits-per-second:3}") double permitsPerSecond,
+                            @Value("${bse.rate-limit.burst:5}") int burst,
+                            @Value("${bse.rate-limit.acquire-timeout-ms:2000}") long acquireTimeoutMs,
+                            @Value("${bse.circuit.failure-threshold:5}") int failureThreshold,
+                            @Value("${bse.circuit.open-duration-ms:30000}") long openDurationMs) {
+        this.httpClient = httpClient;
+        this.meterRegistry = meterRegistry;
+        this.guard = new ExchangeGuard("bse", new TokenBucket(permitsPerSecond, burst),
+                new CircuitBreaker(failureThreshold, openDurationMs), acquireTimeoutMs, meterRegistry);
+    }
 
+    /**
+     * Fetches a live quote. While BSE is unavailable (circuit open or rate limit exhausted) the
+     * last quote fetched for the scrip code is returned instead, marked {@code "stale": true};
+     * without one, {@link ExchangeUnavailableException} is thrown.
+     */
     public Map<String, Object> getStockQuote(String scripCode) throws IOException {
         String url = BSE_BASE_URL + "StockReachGraph/w?scripcode=" + scripCode;
-
-        HttpGet request = new HttpGet(url);
-        request.addHeader("User-Agent", "Mozilla/5.0");
-        request.addHeader("Accept", "application/json");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
 
         try {
-            String response = httpClient.execute(request, response1 -> {
-                if (response1.getCode() != 200) {
-                    throw new IOException("Failed to fetch BSE data: HTTP error code " + response1.getCode());
-                }
-                return new String(response1.getEntity().getContent().readAllBytes());
-            });
-
-            JsonNode root = objectMapper.readTree(response);
-            Map<String, Object> stockData = new HashMap<>();
-
-            stockData.put("scripCode", scripCode);
-            stockData.put("currentPrice", parseBigDecimal(root.path("CurrentPrice").asText()));
-            stockData.put("dayHigh", parseBigDecimal(root.path("High").asText()));
-            stockData.put("dayLow", parseBigDecimal(root.path("Low").asText()));
-            stockData.put("previousClose", parseBigDecimal(root.path("PrevClose").asText()));
-            stockData.put("change", parseBigDecimal(root.path("Change").asText()));
-            stockData.put("changePercent", parseBigDecimal(root.path("PerChange").asText()));
-            stockData.put("volume", root.path("Volume").asLong());
-            stockData.put("tradedValue", parseBigDecimal(root.path("TurnOver").asText()));
-
-            return stockData;
+            BseQuote quote = guard.execute("quote:" + scripCode,
+                    () -> httpClient.get(url, BSE_HEADERS, body -> responseParser.readQuote(scripCode, body)));
+
+            outcome = "success";
+            lastKnownQuotes.put(scripCode, quote);
+            return quote.toMap();
+        } catch (ExchangeUnavailableException e) {
+            Map<String, Object> lastKnown = getStaleQuote(scripCode);
+            if (lastKnown == null) {
+                outcome = "rejected";
+                throw e;
+            }
+            outcome = "fallback";
+            return lastKnown;
         } catch (Exception e) {
             throw new IOException("Error fetching BSE data: " + e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("exchange.fetch", "exchange", "bse", "operation", "quote", "outcome", outcome));
         }
     }
 
+    /** The last quote fetched for {@code scripCode}, marked stale, or null when there is none. */
+    public Map<String, Object> getStaleQuote(String scripCode) {
+        BseQuote lastKnown = lastKnownQuotes.get(scripCode);
+        if (lastKnown == null) {
+            return null;
+        }
+        Map<String, Object> quoteData = lastKnown.toMap();
+        quoteData.put("stale", true);
+        return quoteData;
+    }
+
     public List<Map<String, Object>> getAllStockDetails() throws IOException {
         // BSE provides market data through different APIs
         // This is a sample implementation that would need to be adjusted based on actual BSE API access
         String url = BSE_BASE_URL + "homepage/GetMarketData";
-
-        HttpGet request = new HttpGet(url);
-        request.addHeader("User-Agent", "Mozilla/5.0");
-        request.addHeader("Accept", "application/json");
-
-        List<Map<String, Object>> allStocks = new ArrayList<>();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
 
         try {
-            String response = httpClient.execute(request, response1 -> {
-                if (response1.getCode() != 200) {
-                    throw new IOException("Failed to fetch BSE market data: HTTP error code " + response1.getCode());
-                }
-                return new String(response1.getEntity().getContent().readAllBytes());
-            });
-
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode stocks = root.path("Table");
-
-            for (JsonNode stock : stocks) {
-                Map<String, Object> stockData = new HashMap<>();
-                stockData.put("scripCode", stock.path("scripcode").asText());
-                stockData.put("symbol", stock.path("scripname").asText());
-                stockData.put("currentPrice", parseBigDecimal(stock.path("ltradert").asText()));
-                stockData.put("change", parseBigDecimal(stock.path("change").asText()));
-                stockData.put("changePercent", parseBigDecimal(stock.path("pchange").asText()));
-                allStocks.add(stockData);
-            }
+            List<BseMarketQuote> quotes = guard.execute("market",
+                    () -> httpClient.get(url, BSE_HEADERS, responseParser::readMarketData));
+
+            outcome = "success";
+            return quotes.stream()
+                    .map(BseMarketQuote::toMap)
+                    .toList();
+        } catch (ExchangeUnavailableException e) {
+            outcome = "rejected";
+            throw e;
         } catch (Exception e) {
             throw new IOException("Error fetching BSE market data: " + e.getMessage(), e);
-        }
-
-        return allStocks;
-    }
-
-    private BigDecimal parseBigDecimal(String value) {
-        try {
-            return new BigDecimal(value.replace(",", ""));
-        } catch (Exception e) {
-            return BigDecimal.ZERO;
+        } finally {
+            sample.stop(meterRegistry.timer("exchange.fetch", "exchange", "bse", "operation", "market", "outcome", outcome));
         }
     }
 }
@@ -0,0 +1,400 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BacktestRequest;
+import com.stockanalysis.model.BacktestResult;
+import com.stockanalysis.model.BacktestRun;
+import com.stockanalysis.model.BacktestTrade;
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockBarRepository;
+import com.stockanalysis.repository.StockDataRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Replays stored history through a {@link BacktestStrategy}.
+ * Each symbol's history is loaded once into primitive arrays, oldest first, and run once
+ * through {@link IndicatorState} to record the indicators as of every bar's close. Every
+ * parameter set then runs over those shared columns as its own task on a dedicated
+ * {@link ForkJoinPool}, so a sweep of symbols × parameter sets computes indicators once per
+ * symbol and uses every core. A bar's indicators only depend on bars up to it, and a signal
+ * is filled at the next bar's close, so no run can look ahead. Interrupting the caller of
+ * {@link #run} cancels the sweep: loads and runs check a shared flag and stop early.
+ */
+@Service
+public class BacktestService {
+    private static final Logger logger = LoggerFactory.getLogger(BacktestService.class);
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    // Bars simulated between checks of the cancel flag
+    private static final int CANCEL_CHECK_MASK = 4095;
+
+    private final StockDataRepository stockDataRepository;
+    private final StockBarRepository stockBarRepository;
+    private final TickArchive tickArchive;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final int maxRuns;
+    private final int maxTradesPerRun;
+
+    public BacktestService(StockDataRepository stockDataRepository,
+                           StockBarRepository stockBarRepository,
+                           TickArchive tickArchive,
+                           @Value("${stock.backtest.parallelism:0}") int parallelism,
+                           @Value("${stock.backtest.chunk-size:5000}") int chunkSize,
+                           @Value("${stock.backtest.max-runs:10000}") int maxRuns,
+                           @Value("${stock.backtest.max-trades-per-run:500}") int maxTradesPerRun) {
+        this.stockDataRepository = stockDataRepository;
+        this.stockBarRepository = stockBarRepository;
+        this.tickArchive = tickArchive;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.chunkSize = chunkSize;
+        this.maxRuns = maxRuns;
+        this.maxTradesPerRun = maxTradesPerRun;
+    }
+
+    /**
+     * Runs the sweep and waits for it. Invalid requests throw {@link IllegalArgumentException};
+     * an interrupt while waiting cancels the sweep and throws {@link CancellationException}.
+     */
+    public BacktestResult run(BacktestRequest request) {
+        if (request.symbols() == null || request.symbols().isEmpty()) {
+            throw new IllegalArgumentException("At least one symbol is required");
+        }
+        List<Map<String, Double>> parameterSets = request.parameterSets() == null || request.parameterSets().isEmpty()
+                ? List.of(Map.of())
+                : request.parameterSets();
+        if ((long) request.symbols().size() * parameterSets.size() > maxRuns) {
+            throw new IllegalArgumentException("A sweep may contain at most " + maxRuns + " runs");
+        }
+        // Validate every parameter set up front rather than failing inside the pool
+        parameterSets.forEach(params -> BacktestStrategy.create(request.strategy(), params));
+        String source = request.source() != null ? request.source() : "history";
+        BarResolution resolution = "history".equalsIgnoreCase(source) || "archive".equalsIgnoreCase(source)
+                ? null
+                : BarResolution.fromCode(source);
+        LocalDateTime startDate = request.startDate() != null ? request.startDate() : MIN_DATE;
+        LocalDateTime endDate = request.endDate() != null ? request.endDate() : MAX_DATE;
+        double capital = request.initialCapital() != null ? request.initialCapital() : 100_000;
+        double commission = request.commissionPercent() != null ? request.commissionPercent() / 100 : 0;
+
+        long start = System.nanoTime();
+        ConcurrentLinkedQueue<String> failed = new ConcurrentLinkedQueue<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<CompletableFuture<List<BacktestRun>>> perSymbol = request.symbols().stream()
+                .map(symbol -> CompletableFuture
+                        .supplyAsync(() -> load(symbol, source, resolution, startDate, endDate, cancelled), pool)
+                        .thenCompose(series -> runAll(symbol, series, request.strategy(), parameterSets,
+                                capital, commission, cancelled))
+                        .exceptionally(e -> {
+                            if (!cancelled.get()) {
+                                logger.error("Backtest failed for {}", symbol,
+                                        e instanceof CompletionException ? e.getCause() : e);
+                            }
+                            failed.add(symbol);
+                            return List.of();
+                        }))
+                .toList();
+
+        try {
+            CompletableFuture.allOf(perSymbol.toArray(CompletableFuture[]::new)).get();
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            logger.info("Backtest of {} symbols cancelled after {} ms", request.symbols().size(),
+                    (System.nanoTime() - start) / 1_000_000);
+            throw new CancellationException("Backtest cancelled");
+        } catch (ExecutionException e) {
+            // Every symbol's failure is recorded above, so the sweep itself cannot fail
+            throw new IllegalStateException(e.getCause());
+        }
+        List<BacktestRun> runs = new ArrayList<>();
+        perSymbol.forEach(future -> runs.addAll(future.join()));
+        long bars = runs.stream().mapToLong(BacktestRun::bars).sum();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        double barsPerSecond = seconds > 0 ? bars / seconds : 0;
+        logger.info("Backtest of {} runs over {} bars finished in {} ms at {} bars/s",
+                runs.size(), bars, Math.round(seconds * 1000), Math.round(barsPerSecond));
+        return new BacktestResult(runs, List.copyOf(failed), bars, seconds, barsPerSecond);
+    }
+
+    private CompletableFuture<List<BacktestRun>> runAll(String symbol, Series series, String strategy,
+                                                        List<Map<String, Double>> parameterSets,
+                                                        double capital, double commission, AtomicBoolean cancelled) {
+        List<CompletableFuture<BacktestRun>> runs = parameterSets.stream()
+                .map(params -> CompletableFuture.supplyAsync(
+                        () -> simulate(symbol, series, strategy, params, capital, commission, cancelled), pool))
+                .toList();
+        return CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new))
+                .thenApply(done -> runs.stream().map(CompletableFuture::join).toList());
+    }
+
+    private BacktestRun simulate(String symbol, Series series, String strategyName, Map<String, Double> params,
+                                 double capital, double commission, AtomicBoolean cancelled) {
+        BacktestStrategy strategy = BacktestStrategy.create(strategyName, params);
+        SeriesBar bar = new SeriesBar(series);
+        List<BacktestTrade> trades = new ArrayList<>();
+        int tradeCount = 0;
+        int wins = 0;
+
+        double cash = capital;
+        double quantity = 0;
+        double entryPrice = 0;
+        double entryCost = 0;
+        long entryTime = 0;
+        double peak = capital;
+        double maxDrawdown = 0;
+        BacktestStrategy.Signal pending = BacktestStrategy.Signal.HOLD;
+
+        for (int i = 0; i < series.size; i++) {
+            if ((i & CANCEL_CHECK_MASK) == 0) {
+                checkCancelled(cancelled);
+            }
+            double price = series.closes[i];
+
+            // Fill the previous bar's signal at this bar's price
+            if (pending == BacktestStrategy.Signal.BUY && quantity == 0 && price > 0) {
+                entryCost = cash;
+                quantity = cash * (1 - commission) / price;
+                cash = 0;
+                entryPrice = price;
+                entryTime = series.timestamps[i];
+            } else if (pending == BacktestStrategy.Signal.SELL && quantity > 0) {
+                cash = quantity * price * (1 - commission);
+                if (tradeCount++ < maxTradesPerRun) {
+                    trades.add(trade(entryTime, entryPrice, series.timestamps[i], price, quantity, entryCost, cash));
+                }
+                wins += cash > entryCost ? 1 : 0;
+                quantity = 0;
+            }
+
+            bar.index = i;
+            pending = strategy.onBar(bar);
+
+            double equity = cash + quantity * price;
+            peak = Math.max(peak, equity);
+            maxDrawdown = Math.max(maxDrawdown, peak > 0 ? (peak - equity) / peak : 0);
+        }
+
+        if (quantity > 0) {
+            double price = series.closes[series.size - 1];
+            cash = quantity * price * (1 - commission);
+            if (tradeCount++ < maxTradesPerRun) {
+                trades.add(trade(entryTime, entryPrice, series.timestamps[series.size - 1], price, quantity, entryCost, cash));
+            }
+            wins += cash > entryCost ? 1 : 0;
+        }
+
+        return new BacktestRun(symbol, strategyName, params, series.size, tradeCount, cash,
+                (cash - capital) * 100 / capital, maxDrawdown * 100,
+                tradeCount > 0 ? wins * 100.0 / tradeCount : 0, trades);
+    }
+
+    private static BacktestTrade trade(long entryTime, double entryPrice, long exitTime, double exitPrice,
+                                       double quantity, double entryCost, double proceeds) {
+        return new BacktestTrade(toDateTime(entryTime), entryPrice, toDateTime(exitTime), exitPrice, quantity,
+                proceeds - entryCost, entryCost > 0 ? (proceeds - entryCost) * 100 / entryCost : 0);
+    }
+
+    private static void checkCancelled(AtomicBoolean cancelled) {
+        if (cancelled.get()) {
+            throw new CancellationException("Backtest cancelled");
+        }
+    }
+
+    private Series load(String symbol, String source, BarResolution resolution,
+                        LocalDateTime startDate, LocalDateTime endDate, AtomicBoolean cancelled) {
+        checkCancelled(cancelled);
+        Series series = new Series();
+        if (resolution != null) {
+            for (StockBar bar : stockBarRepository.findBars(symbol, resolution, startDate, endDate)) {
+                if (bar.getClose() != null) {
+                    series.add(toMillis(bar.getBucketStart()), bar.getClose().doubleValue(),
+                            bar.getHigh().doubleValue(), bar.getLow().doubleValue(),
+                            bar.getVolume() != null ? bar.getVolume() : 0L);
+                }
+            }
+        } else if ("archive".equalsIgnoreCase(source)) {
+            TickRange ticks = tickArchive.scan(symbol, toMillis(startDate), toMillis(endDate));
+            for (int i = 0; i < ticks.size(); i++) {
+                series.add(ticks.timestamp(i), ticks.close(i), ticks.high(i), ticks.low(i), ticks.volume(i));
+            }
+        } else {
+            loadHistory(symbol, startDate, endDate, series, cancelled);
+        }
+        checkCancelled(cancelled);
+        series.computeIndicators();
+        return series;
+    }
+
+    private void loadHistory(String symbol, LocalDateTime startDate, LocalDateTime endDate, Series series,
+                             AtomicBoolean cancelled) {
+        LocalDateTime cursorTime = startDate;
+        long cursorId = Long.MIN_VALUE;
+        while (true) {
+            checkCancelled(cancelled);
+            List<StockData> chunk = stockDataRepository.findHistoryChunk(symbol, cursorTime, cursorId,
+                    PageRequest.of(0, chunkSize));
+            for (StockData row : chunk) {
+                if (row.getLastUpdateTime().isAfter(endDate)) {
+                    return;
+                }
+                if (row.getCurrentPrice() != null) {
+                    double close = row.getCurrentPrice().doubleValue();
+                    series.add(toMillis(row.getLastUpdateTime()), close,
+                            row.getHigh() != null ? row.getHigh().doubleValue() : close,
+                            row.getLow() != null ? row.getLow().doubleValue() : close,
+                            row.getVolume() != null ? row.getVolume() : 0L);
+                }
+            }
+            if (chunk.size() < chunkSize) {
+                return;
+            }
+            StockData last = chunk.get(chunk.size() - 1);
+            cursorTime = last.getLastUpdateTime();
+            cursorId = last.getId();
+        }
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime toDateTime(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), (int) Math.floorMod(millis, 1000) * 1_000_000,
+                ZoneOffset.UTC);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * One symbol's history as growable primitive columns, oldest first, plus the indicators
+     * strategies read as of each bar's close; shared read-only by the symbol's runs.
+     */
+    static final class Series {
+        private long[] timestamps = new long[256];
+        private double[] closes = new double[256];
+        private double[] highs = new double[256];
+        private double[] lows = new double[256];
+        private long[] volumes = new long[256];
+        private int size;
+
+        private double[] rsi;
+        private double[] macd;
+        private double[] signalLine;
+        private double[] bollingerUpper;
+        private double[] ma20;
+        private double[] stochasticK;
+        private double[] stochasticD;
+
+        void add(long timestamp, double close, double high, double low, long volume) {
+            if (size == timestamps.length) {
+                int capacity = size * 2;
+                timestamps = Arrays.copyOf(timestamps, capacity);
+                closes = Arrays.copyOf(closes, capacity);
+                highs = Arrays.copyOf(highs, capacity);
+                lows = Arrays.copyOf(lows, capacity);
+                volumes = Arrays.copyOf(volumes, capacity);
+            }
+            timestamps[size] = timestamp;
+            closes[size] = close;
+            highs[size] = high;
+            lows[size] = low;
+            volumes[size] = volume;
+            size++;
+        }
+
+        void computeIndicators() {
+            rsi = new double[size];
+            macd = new double[size];
+            signalLine = new double[size];
+            bollingerUpper = new double[size];
+            ma20 = new double[size];
+            stochasticK = new double[size];
+            stochasticD = new double[size];
+            IndicatorState state = new IndicatorState();
+            for (int i = 0; i < size; i++) {
+                state.update(timestamps[i], closes[i], highs[i], lows[i], volumes[i]);
+                rsi[i] = state.getRsi();
+                macd[i] = state.getMacd();
+                signalLine[i] = state.getSignal();
+                bollingerUpper[i] = state.getBollingerUpper();
+                ma20[i] = state.getMa20();
+                stochasticK[i] = state.getStochasticK();
+                stochasticD[i] = state.getStochasticD();
+            }
+        }
+    }
+
+    /** A run's cursor over its symbol's series. */
+    private static final class SeriesBar implements BacktestStrategy.Bar {
+        private final Series series;
+        private int index;
+
+        SeriesBar(Series series) {
+            this.series = series;
+        }
+
+        @Override
+        public double close() {
+            return series.closes[index];
+        }
+
+        @Override
+        public double rsi() {
+            return series.rsi[index];
+        }
+
+        @Override
+        public double macd() {
+            return series.macd[index];
+        }
+
+        @Override
+        public double signalLine() {
+            return series.signalLine[index];
+        }
+
+        @Override
+        public double bollingerUpper() {
+            return series.bollingerUpper[index];
+        }
+
+        @Override
+        public double ma20() {
+            return series.ma20[index];
+        }
+
+        @Override
+        public double stochasticK() {
+            return series.stochasticK[index];
+        }
+
+        @Override
+        public double stochasticD() {
+            return series.stochasticD[index];
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.stockanalysis.service;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A long-only trading rule evaluated once per bar, with the indicators as of that bar's close.
+ * Implementations may keep state between bars (for example to detect crossovers), so every
+ * backtest run gets its own instance from {@link #create}.
+ */
+public interface BacktestStrategy {
+
+    enum Signal { BUY, SELL, HOLD }
+
+    /** The current bar's close and the indicators as of that close; NaN while warming up. */
+    interface Bar {
+        double close();
+
+        double rsi();
+
+        double macd();
+
+        double signalLine();
+
+        double bollingerUpper();
+
+        double ma20();
+
+        double stochasticK();
+
+        double stochasticD();
+    }
+
+    Signal onBar(Bar bar);
+
+    /**
+     * Creates a strategy by name. Unknown names and parameters are rejected with
+     * {@link IllegalArgumentException}; missing parameters take their defaults.
+     */
+    static BacktestStrategy create(String name, Map<String, Double> parameters) {
+        Map<String, Double> params = parameters != null ? parameters : Map.of();
+        return switch (name == null ? "" : name.toLowerCase()) {
+            case "rsi" -> {
+                requireKnown(name, params, Set.of("oversold", "overbought"));
+                yield new RsiThreshold(params.getOrDefault("oversold", 30.0), params.getOrDefault("overbought", 70.0));
+            }
+            case "macd" -> {
+                requireKnown(name, params, Set.of());
+                yield new MacdCrossover();
+            }
+            case "bollinger" -> {
+                requireKnown(name, params, Set.of());
+                yield new BollingerBreakout();
+            }
+            case "stochastic" -> {
+                requireKnown(name, params, Set.of("oversold", "overbought"));
+                yield new StochasticCrossover(params.getOrDefault("oversold", 20.0), params.getOrDefault("overbought", 80.0));
+            }
+            default -> throw new IllegalArgumentException("Unknown strategy: " + name);
+        };
+    }
+
+    private static void requireKnown(String name, Map<String, Double> params, Set<String> known) {
+        for (String key : params.keySet()) {
+            if (!known.contains(key)) {
+                throw new IllegalArgumentException("Unknown parameter for " + name + ": " + key);
+            }
+        }
+    }
+
+    /** Buys when RSI drops below {@code oversold} and sells when it rises above {@code overbought}. */
+    record RsiThreshold(double oversold, double overbought) implements BacktestStrategy {
+        @Override
+        public Signal onBar(Bar bar) {
+            double rsi = bar.rsi();
+            if (rsi < oversold) {
+                return Signal.BUY;
+            }
+            return rsi > overbought ? Signal.SELL : Signal.HOLD;
+        }
+    }
+
+    /** Buys when MACD crosses above its signal line and sells when it crosses below. */
+    final class MacdCrossover implements BacktestStrategy {
+        private double previousSpread = Double.NaN;
+
+        @Override
+        public Signal onBar(Bar bar) {
+            double spread = bar.macd() - bar.signalLine();
+            Signal signal = Signal.HOLD;
+            if (previousSpread <= 0 && spread > 0) {
+                signal = Signal.BUY;
+            } else if (previousSpread >= 0 && spread < 0) {
+                signal = Signal.SELL;
+            }
+            previousSpread = spread;
+            return signal;
+        }
+    }
+
+    /** Buys on a close above the upper band and sells once the close falls back below the middle band. */
+    final class BollingerBreakout implements BacktestStrategy {
+        @Override
+        public Signal onBar(Bar bar) {
+            if (bar.close() > bar.bollingerUpper()) {
+                return Signal.BUY;
+            }
+            return bar.close() < bar.ma20() ? Signal.SELL : Signal.HOLD;
+        }
+    }
+
+    /**
+     * Buys when %K crosses above %D in oversold territory and sells when it crosses below
+     * %D in overbought territory.
+     */
+    final class StochasticCrossover implements BacktestStrategy {
+        private final double oversold;
+        private final double overbought;
+        private double previousSpread = Double.NaN;
+
+        StochasticCrossover(double oversold, double overbought) {
+            this.oversold = oversold;
+            this.overbought = overbought;
+        }
+
+        @Override
+        public Signal onBar(Bar bar) {
+            double k = bar.stochasticK();
+            double spread = k - bar.stochasticD();
+            Signal signal = Signal.HOLD;
+            if (previousSpread <= 0 && spread > 0 && k < oversold) {
+                signal = Signal.BUY;
+            } else if (previousSpread >= 0 && spread < 0 && k > overbought) {
+                signal = Signal.SELL;
+            }
+            previousSpread = spread;
+            return signal;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.model.StockData;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Indicator state that advances one period per bar instead of one per quote.
+ * Quotes are folded into the bar of their time bucket; when a quote opens a new bucket the
+ * previous bar is committed to the underlying {@link IndicatorState}. Indicators written for
+ * a quote are a preview: the committed state plus the in-progress bar, so MA20 at a daily
+ * resolution always means the last 20 days including today so far.
+ * A null resolution keeps the per-quote behaviour: every quote is its own period.
+ */
+public class BarIndicatorState {
+    private final BarResolution resolution;
+    private final IndicatorState completed;
+
+    private LocalDateTime bucketStart;
+    private double high;
+    private double low;
+    private double close;
+    private long volume;
+    private long lastCumulativeVolume = -1;
+
+    public BarIndicatorState(BarResolution resolution, IndicatorSet indicators) {
+        this.resolution = resolution;
+        this.completed = new IndicatorState(indicators);
+    }
+
+    /** Replays a raw snapshot as one period; only meaningful without a resolution. */
+    public synchronized void addTick(StockData data) {
+        completed.update(data);
+    }
+
+    /** Replays archived ticks as one period each; only meaningful without a resolution. */
+    public synchronized void addTicks(TickRange ticks) {
+        ticks.replayInto(completed);
+    }
+
+    /** Replays a persisted bar. Bars must be added oldest first, before any live quotes. */
+    public synchronized void addBar(StockBar bar) {
+        if (bar.getClose() == null) {
+            return;
+        }
+        commitBar();
+        bucketStart = bar.getBucketStart();
+        high = bar.getHigh().doubleValue();
+        low = bar.getLow().doubleValue();
+        close = bar.getClose().doubleValue();
+        volume = bar.getVolume() != null ? bar.getVolume() : 0L;
+    }
+
+    /** Folds the quote into its bar and writes the resulting indicators back into it. */
+    public synchronized void update(StockData quote) {
+        if (resolution == null) {
+            completed.update(quote);
+            completed.applyTo(quote);
+            return;
+        }
+        LocalDateTime time = quote.getLastUpdateTime() != null ? quote.getLastUpdateTime() : LocalDateTime.now();
+        LocalDateTime quoteBucket = resolution.bucketStart(time);
+        double price = quote.getCurrentPrice().doubleValue();
+
+        // Late quotes for an already committed bucket are folded into the current bar
+        if (bucketStart == null || quoteBucket.isAfter(bucketStart)) {
+            commitBar();
+            bucketStart = quoteBucket;
+            high = price;
+            low = price;
+            volume = 0;
+        }
+        high = Math.max(high, price);
+        low = Math.min(low, price);
+        close = price;
+        addVolume(quote.getVolume(), time);
+
+        completed.preview(epochMillis(bucketStart), close, high, low, volume, quote);
+    }
+
+    private void addVolume(Long cumulativeVolume, LocalDateTime time) {
+        if (cumulativeVolume == null) {
+            return;
+        }
+        if (resolution == BarResolution.ONE_DAY) {
+            // Quotes carry the day's cumulative volume, which is exactly the daily bar's volume
+            volume = cumulativeVolume;
+        } else if (lastCumulativeVolume >= 0 && cumulativeVolume >= lastCumulativeVolume) {
+            volume += cumulativeVolume - lastCumulativeVolume;
+        }
+        // A drop means the day rolled over and the counter restarted
+        lastCumulativeVolume = cumulativeVolume;
+    }
+
+    private void commitBar() {
+        if (bucketStart != null) {
+            completed.update(epochMillis(bucketStart), close, high, low, volume);
+            bucketStart = null;
+        }
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
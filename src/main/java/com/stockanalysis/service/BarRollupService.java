@@ -0,0 +1,343 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockBarRepository;
+import com.stockanalysis.repository.StockDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Aggregates raw snapshots into OHLCV bars and enforces retention.
+ * One-minute bars are built from raw ticks; coarser resolutions are built from the
+ * one-minute bars, so raw rows only need to be kept until they have been rolled up.
+ * <p>
+ * Progress is tracked per symbol, because exchanges stamp quotes with their own clocks and a
+ * lagging symbol must not be skipped by another symbol's newer bars. Each run re-aggregates
+ * only the symbols that received ticks, from the start of their newest one-minute bar, which
+ * keeps the still-open bar up to date. The first run of a process rolls up every symbol from
+ * its oldest stored tick, so rows written before a restart or a deployment always become bars
+ * before retention may delete them.
+ */
+@Service
+public class BarRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(BarRollupService.class);
+    private static final int DELETE_CHUNK_SIZE = 10_000;
+
+    /**
+     * Where a symbol's next run resumes: the start of its newest one-minute bar, the last tick
+     * before that bar (the bar's first volume delta is taken against it) and the newest tick
+     * rolled up so far.
+     */
+    private record Progress(LocalDateTime minuteBucket, StockData seed, LocalDateTime lastTick) {
+    }
+
+    private final StockDataRepository stockDataRepository;
+    private final StockBarRepository stockBarRepository;
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final int rawRetentionDays;
+    private final int minuteBarRetentionDays;
+    private final int fiveMinuteBarRetentionDays;
+
+    private final Map<String, Progress> progress = new ConcurrentHashMap<>();
+    private volatile boolean backfilled;
+
+    public BarRollupService(StockDataRepository stockDataRepository,
+                            StockBarRepository stockBarRepository,
+                            LatestSnapshotStore latestSnapshotStore,
+                            @Value("${stock.bars.raw-retention-days:7}") int rawRetentionDays,
+                            @Value("${stock.bars.retention-days.1m:30}") int minuteBarRetentionDays,
+                            @Value("${stock.bars.retention-days.5m:365}") int fiveMinuteBarRetentionDays) {
+        this.stockDataRepository = stockDataRepository;
+        this.stockBarRepository = stockBarRepository;
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.rawRetentionDays = rawRetentionDays;
+        this.minuteBarRetentionDays = minuteBarRetentionDays;
+        this.fiveMinuteBarRetentionDays = fiveMinuteBarRetentionDays;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.bars.rollup-interval-ms:60000}")
+    @Transactional
+    public void rollUp() {
+        long start = System.currentTimeMillis();
+        Collection<StockData> latest = latestSnapshotStore.getAll();
+        Map<String, LocalDateTime> starts = pendingStarts(latest);
+        Map<String, Progress> advanced = new HashMap<>();
+        int written = 0;
+
+        if (!starts.isEmpty()) {
+            LocalDateTime since = Collections.min(starts.values());
+            List<StockBar> minuteBars;
+            try (Stream<StockData> ticks = stockDataRepository.streamAllSince(since)) {
+                minuteBars = aggregateTicks(ticks, starts, advanced);
+            }
+            written = upsert(BarResolution.ONE_MINUTE, since, minuteBars);
+
+            for (BarResolution resolution : BarResolution.values()) {
+                if (resolution == BarResolution.ONE_MINUTE) {
+                    continue;
+                }
+                // Every coarser bar containing a re-aggregated minute is rebuilt from its first minute
+                Map<String, LocalDateTime> resolutionStarts = new HashMap<>();
+                starts.forEach((symbol, minute) -> resolutionStarts.put(symbol, resolution.bucketStart(minute)));
+                LocalDateTime resolutionSince = Collections.min(resolutionStarts.values());
+                List<StockBar> source = stockBarRepository.findAllSince(BarResolution.ONE_MINUTE, resolutionSince).stream()
+                        .filter(bar -> {
+                            LocalDateTime from = resolutionStarts.get(bar.getSymbol());
+                            return from != null && !bar.getBucketStart().isBefore(from);
+                        })
+                        .toList();
+                written += upsert(resolution, resolutionSince, aggregateBars(source, resolution));
+            }
+
+            // Symbols without priced ticks yet: remember what was seen so they are not rescanned every run
+            for (Map.Entry<String, LocalDateTime> entry : starts.entrySet()) {
+                advanced.computeIfAbsent(entry.getKey(), symbol -> idle(symbol, entry.getValue()));
+            }
+        }
+
+        boolean sawEverySymbol = !latest.isEmpty();
+        afterCommit(() -> {
+            progress.putAll(advanced);
+            if (sawEverySymbol) {
+                backfilled = true;
+            }
+        });
+        logger.debug("Rolled up {} bars for {} symbols in {} ms", written, starts.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /** Symbols with ticks newer than their last run, mapped to the minute their roll-up resumes from. */
+    private Map<String, LocalDateTime> pendingStarts(Collection<StockData> latest) {
+        Map<String, LocalDateTime> starts = new HashMap<>();
+        for (StockData snapshot : latest) {
+            String symbol = snapshot.getSymbol();
+            Progress symbolProgress = progress.get(symbol);
+            if (symbolProgress == null) {
+                LocalDateTime first = stockDataRepository.findFirstUpdateTime(symbol);
+                if (first != null) {
+                    starts.put(symbol, BarResolution.ONE_MINUTE.bucketStart(first));
+                }
+            } else if (snapshot.getLastUpdateTime() != null
+                    && snapshot.getLastUpdateTime().isAfter(symbolProgress.lastTick())) {
+                starts.put(symbol, symbolProgress.minuteBucket());
+            }
+        }
+        return starts;
+    }
+
+    private Progress idle(String symbol, LocalDateTime start) {
+        Progress previous = progress.get(symbol);
+        StockData snapshot = latestSnapshotStore.get(symbol);
+        LocalDateTime seen = snapshot != null && snapshot.getLastUpdateTime() != null
+                ? snapshot.getLastUpdateTime()
+                : start;
+        return new Progress(start, previous != null ? previous.seed() : null, seen);
+    }
+
+    /** Progress only moves once the bars it describes are committed. */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Ticks must arrive ordered by symbol and time. Ticks of symbols without a start are skipped,
+     * and ticks before a symbol's start only seed the volume delta of its first new tick.
+     */
+    private List<StockBar> aggregateTicks(Stream<StockData> ticks, Map<String, LocalDateTime> starts,
+                                          Map<String, Progress> advanced) {
+        List<StockBar> bars = new ArrayList<>();
+        String symbol = null;
+        LocalDateTime from = null;
+        StockBar bar = null;
+        StockData previous = null;
+        StockData bucketSeed = null;
+
+        for (Iterator<StockData> it = ticks.iterator(); it.hasNext(); ) {
+            StockData tick = it.next();
+            if (tick.getLastUpdateTime() == null) {
+                continue;
+            }
+            if (!tick.getSymbol().equals(symbol)) {
+                symbol = tick.getSymbol();
+                from = starts.get(symbol);
+                Progress symbolProgress = progress.get(symbol);
+                previous = symbolProgress != null ? symbolProgress.seed() : null;
+                bar = null;
+            }
+            if (from == null) {
+                continue;
+            }
+            if (tick.getLastUpdateTime().isBefore(from)) {
+                previous = tick;
+                continue;
+            }
+            LocalDateTime bucketStart = BarResolution.ONE_MINUTE.bucketStart(tick.getLastUpdateTime());
+            if (bar == null || !bar.getBucketStart().equals(bucketStart)) {
+                bar = newBar(symbol, BarResolution.ONE_MINUTE, bucketStart, tick.getCurrentPrice());
+                bars.add(bar);
+                bucketSeed = previous;
+            }
+            BigDecimal price = tick.getCurrentPrice();
+            bar.setHigh(bar.getHigh().max(price));
+            bar.setLow(bar.getLow().min(price));
+            bar.setClose(price);
+            bar.setVolume(bar.getVolume() + volumeDelta(previous, tick));
+            bar.setSampleCount(bar.getSampleCount() + 1);
+            previous = tick;
+            advanced.put(symbol, new Progress(bucketStart, bucketSeed, tick.getLastUpdateTime()));
+        }
+        return bars;
+    }
+
+    /**
+     * Quotes carry the cumulative volume of the trading day, so a tick contributes the
+     * increase over the previous tick of the same symbol and day.
+     */
+    private static long volumeDelta(StockData previous, StockData tick) {
+        if (previous == null || tick.getVolume() == null || previous.getVolume() == null
+                || !previous.getSymbol().equals(tick.getSymbol())
+                || !previous.getLastUpdateTime().toLocalDate().equals(tick.getLastUpdateTime().toLocalDate())) {
+            return 0;
+        }
+        return Math.max(0, tick.getVolume() - previous.getVolume());
+    }
+
+    /** Source bars must be ordered by symbol and bucket start. */
+    private static List<StockBar> aggregateBars(List<StockBar> source, BarResolution resolution) {
+        List<StockBar> bars = new ArrayList<>();
+        StockBar bar = null;
+        for (StockBar sourceBar : source) {
+            LocalDateTime bucketStart = resolution.bucketStart(sourceBar.getBucketStart());
+            if (bar == null || !bar.getSymbol().equals(sourceBar.getSymbol()) || !bar.getBucketStart().equals(bucketStart)) {
+                bar = newBar(sourceBar.getSymbol(), resolution, bucketStart, sourceBar.getOpen());
+                bars.add(bar);
+            }
+            bar.setHigh(bar.getHigh().max(sourceBar.getHigh()));
+            bar.setLow(bar.getLow().min(sourceBar.getLow()));
+            bar.setClose(sourceBar.getClose());
+            bar.setVolume(bar.getVolume() + sourceBar.getVolume());
+            bar.setSampleCount(bar.getSampleCount() + sourceBar.getSampleCount());
+        }
+        return bars;
+    }
+
+    private static StockBar newBar(String symbol, BarResolution resolution, LocalDateTime bucketStart, BigDecimal open) {
+        StockBar bar = new StockBar();
+        bar.setSymbol(symbol);
+        bar.setResolution(resolution);
+        bar.setBucketStart(bucketStart);
+        bar.setTradeDate(bucketStart.toLocalDate());
+        bar.setOpen(open);
+        bar.setHigh(open);
+        bar.setLow(open);
+        bar.setClose(open);
+        bar.setVolume(0L);
+        bar.setSampleCount(0);
+        return bar;
+    }
+
+    /** Replaces the bars from {@code since} onwards with freshly aggregated ones. */
+    private int upsert(BarResolution resolution, LocalDateTime since, List<StockBar> bars) {
+        if (bars.isEmpty()) {
+            return 0;
+        }
+        Map<String, StockBar> existing = new HashMap<>();
+        for (StockBar bar : stockBarRepository.findAllSince(resolution, since)) {
+            existing.put(key(bar), bar);
+        }
+
+        List<StockBar> toSave = new ArrayList<>(bars.size());
+        for (StockBar bar : bars) {
+            StockBar target = existing.get(key(bar));
+            if (target == null) {
+                toSave.add(bar);
+                continue;
+            }
+            target.setOpen(bar.getOpen());
+            target.setHigh(bar.getHigh());
+            target.setLow(bar.getLow());
+            target.setClose(bar.getClose());
+            target.setVolume(bar.getVolume());
+            target.setSampleCount(bar.getSampleCount());
+            toSave.add(target);
+        }
+        stockBarRepository.saveAll(toSave);
+        return toSave.size();
+    }
+
+    private static String key(StockBar bar) {
+        return bar.getSymbol() + '|' + bar.getBucketStart();
+    }
+
+    /**
+     * Deletes raw snapshots past their retention, but never ones that have not been rolled
+     * up yet, and drops expired intraday bars. Hourly and daily bars are kept indefinitely.
+     * Nothing raw is deleted until this process has rolled up every stored symbol once.
+     */
+    @Scheduled(cron = "${stock.bars.retention-cron:0 30 0 * * *}")
+    public void applyRetention() {
+        if (!backfilled) {
+            logger.info("Skipping raw snapshot retention until stored snapshots have been rolled up");
+            return;
+        }
+        // Whole days only, so a symbol's oldest remaining tick always starts both a bar and a trading day
+        LocalDateTime cutoff = LocalDate.now().minusDays(rawRetentionDays).atStartOfDay();
+        Map<String, LocalDateTime> rolledUpTo = new HashMap<>();
+        for (StockBarRepository.LatestBucket latest : stockBarRepository.findLatestBucketStarts(BarResolution.ONE_MINUTE)) {
+            rolledUpTo.put(latest.getSymbol(), latest.getBucketStart());
+        }
+
+        long deleted = 0;
+        for (String symbol : latestSnapshotStore.getSymbols()) {
+            LocalDateTime symbolRolledUpTo = rolledUpTo.get(symbol);
+            if (symbolRolledUpTo == null) {
+                continue;
+            }
+            // The day of the newest bar stays: its volume deltas are taken against that day's earlier ticks
+            LocalDateTime symbolCutoff = symbolRolledUpTo.toLocalDate().atStartOfDay();
+            if (cutoff.isBefore(symbolCutoff)) {
+                symbolCutoff = cutoff;
+            }
+            int batch;
+            do {
+                batch = stockDataRepository.deleteOlderThan(symbol, symbolCutoff, DELETE_CHUNK_SIZE);
+                deleted += batch;
+            } while (batch == DELETE_CHUNK_SIZE);
+        }
+
+        LocalDate today = LocalDate.now();
+        int minuteBars = stockBarRepository.deleteOlderThan(BarResolution.ONE_MINUTE, today.minusDays(minuteBarRetentionDays));
+        int fiveMinuteBars = stockBarRepository.deleteOlderThan(BarResolution.FIVE_MINUTES, today.minusDays(fiveMinuteBarRetentionDays));
+        logger.info("Retention removed {} raw snapshots, {} 1m bars and {} 5m bars", deleted, minuteBars, fiveMinuteBars);
+    }
+}
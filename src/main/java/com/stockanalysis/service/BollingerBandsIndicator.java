@@ -0,0 +1,57 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** Bollinger Bands: the 20-period SMA plus and minus two standard deviations. */
+public class BollingerBandsIndicator implements Indicator {
+    private static final double WIDTH = 2;
+    private static final List<Field> FIELDS = List.of(
+            new Field("bollingerUpper", StockData::getBollingerUpper, StockData::setBollingerUpper),
+            new Field("bollingerMiddle", StockData::getBollingerMiddle, StockData::setBollingerMiddle),
+            new Field("bollingerLower", StockData::getBollingerLower, StockData::setBollingerLower));
+
+    @Override
+    public String name() {
+        return "bollinger";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new BollingerCalculator();
+    }
+
+    private static final class BollingerCalculator implements Calculator {
+        private double middle = Double.NaN;
+        private double deviation = Double.NaN;
+
+        @Override
+        public void update(IndicatorContext context) {
+            middle = context.sma20();
+            deviation = context.standardDeviation20();
+        }
+
+        @Override
+        public double value(int field) {
+            return switch (field) {
+                case 0 -> middle + deviation * WIDTH;
+                case 1 -> middle;
+                default -> middle - deviation * WIDTH;
+            };
+        }
+
+        @Override
+        public Calculator copy() {
+            BollingerCalculator copy = new BollingerCalculator();
+            copy.middle = middle;
+            copy.deviation = deviation;
+            return copy;
+        }
+    }
+}
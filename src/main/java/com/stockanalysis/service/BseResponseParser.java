@@ -0,0 +1,100 @@
+package com.stockanalysis.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.stockanalysis.model.BseMarketQuote;
+import com.stockanalysis.model.BseQuote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.stockanalysis.service.JsonValues.readDecimal;
+import static com.stockanalysis.service.JsonValues.readLong;
+import static com.stockanalysis.service.JsonValues.readText;
+
+/**
+ * Streaming decoder for BSE API responses; see {@link NseResponseParser}.
+ */
+public class BseResponseParser {
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /** Decodes a {@code StockReachGraph} response. */
+    public BseQuote readQuote(String scripCode, InputStream in) throws IOException {
+        BigDecimal currentPrice = BigDecimal.ZERO;
+        BigDecimal high = BigDecimal.ZERO;
+        BigDecimal low = BigDecimal.ZERO;
+        BigDecimal previousClose = BigDecimal.ZERO;
+        BigDecimal change = BigDecimal.ZERO;
+        BigDecimal changePercent = BigDecimal.ZERO;
+        long volume = 0;
+        BigDecimal turnover = BigDecimal.ZERO;
+
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    switch (name) {
+                        case "CurrentPrice" -> currentPrice = readDecimal(parser);
+                        case "High" -> high = readDecimal(parser);
+                        case "Low" -> low = readDecimal(parser);
+                        case "PrevClose" -> previousClose = readDecimal(parser);
+                        case "Change" -> change = readDecimal(parser);
+                        case "PerChange" -> changePercent = readDecimal(parser);
+                        case "Volume" -> volume = readLong(parser);
+                        case "TurnOver" -> turnover = readDecimal(parser);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+        }
+        return new BseQuote(scripCode, currentPrice, high, low, previousClose, change, changePercent, volume, turnover);
+    }
+
+    /** Decodes a {@code GetMarketData} response into one entry per row of its table. */
+    public List<BseMarketQuote> readMarketData(InputStream in) throws IOException {
+        List<BseMarketQuote> quotes = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return quotes;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "Table".equals(name)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        quotes.add(readMarketQuote(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return quotes;
+    }
+
+    private BseMarketQuote readMarketQuote(JsonParser parser) throws IOException {
+        String scripCode = "";
+        String scripName = "";
+        BigDecimal lastTradedRate = BigDecimal.ZERO;
+        BigDecimal change = BigDecimal.ZERO;
+        BigDecimal pChange = BigDecimal.ZERO;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "scripcode" -> scripCode = readText(parser);
+                case "scripname" -> scripName = readText(parser);
+                case "ltradert" -> lastTradedRate = readDecimal(parser);
+                case "change" -> change = readDecimal(parser);
+                case "pchange" -> pChange = readDecimal(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new BseMarketQuote(scripCode, scripName, lastTradedRate, change, pChange);
+    }
+}
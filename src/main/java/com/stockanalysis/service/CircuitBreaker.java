@@ -0,0 +1,92 @@
+package com.stockanalysis.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Consecutive-failure circuit breaker.
+ * After {@code failureThreshold} failures in a row the breaker opens and rejects calls for
+ * {@code openDurationMs}; it then lets a single trial call through (half-open). A successful
+ * trial closes the breaker, a failed one opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this(failureThreshold, openDurationMs, System::nanoTime);
+    }
+
+    /** Times the open period with {@code nanoClock} instead of {@link System#nanoTime}. */
+    CircuitBreaker(int failureThreshold, long openDurationMs, LongSupplier nanoClock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = openDurationMs * 1_000_000;
+        this.nanoClock = nanoClock;
+    }
+
+    /** Returns true if the caller may go ahead; the outcome must then be recorded. */
+    public synchronized boolean tryAcquirePermission() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (nanoClock.getAsLong() - openedAt < openDurationNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    /** Releases a half-open trial whose outcome says nothing about the upstream, e.g. a 404. */
+    public synchronized void recordIgnored() {
+        trialInFlight = false;
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openDurationNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /** Milliseconds until an open breaker admits a trial call, or 0 when calls are admitted now. */
+    public synchronized long getRetryAfterMillis() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, (openDurationNanos - (nanoClock.getAsLong() - openedAt)) / 1_000_000);
+    }
+}
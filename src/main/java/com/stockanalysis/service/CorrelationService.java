@@ -0,0 +1,422 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.CorrelationPair;
+import com.stockanalysis.model.CorrelationResult;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockBarRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Rolling return correlations across the tracked symbols.
+ * Closes of completed bars are aligned by bucket (a symbol without a bar keeps its last close,
+ * i.e. a zero return) and turned into log returns over a window of {@code window} bars. The
+ * service keeps per-symbol sums of returns and squared returns plus the sum of products of
+ * every pair, packed as an upper triangle, so each new bar updates the whole matrix in one
+ * O(N²) pass split into row blocks across a dedicated pool instead of recomputing O(N²·W).
+ * The sums are resynchronised exactly from the return windows once per window to stop
+ * floating-point drift. The symbol count is capped so the matrix fits
+ * {@code stock.correlation.memory-budget-mb}; beyond that the most traded symbols are kept.
+ * Membership is sticky: a member is only replaced once it has left the snapshot store or an
+ * outsider trades {@code stock.correlation.rebalance-margin} times its value, because every
+ * change of membership costs a full rebuild.
+ */
+@Service
+public class CorrelationService {
+    private static final Logger logger = LoggerFactory.getLogger(CorrelationService.class);
+    // Calendar span loaded per return when building, so weekends and holidays still fill the window
+    private static final int LOOKBACK_FACTOR = 2;
+
+    private final StockBarRepository stockBarRepository;
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final Timer refreshTimer;
+    private final ForkJoinPool pool;
+    private final boolean enabled;
+    private final BarResolution resolution;
+    private final int window;
+    private final int maxSymbols;
+    private final double rebalanceMargin;
+
+    private volatile Matrix matrix;
+
+    public CorrelationService(StockBarRepository stockBarRepository,
+                              LatestSnapshotStore latestSnapshotStore,
+                              MeterRegistry meterRegistry,
+                              @Value("${stock.correlation.enabled:true}") boolean enabled,
+                              @Value("${stock.correlation.resolution:1d}") String resolution,
+                              @Value("${stock.correlation.window:60}") int window,
+                              @Value("${stock.correlation.memory-budget-mb:64}") long memoryBudgetMb,
+                              @Value("${stock.correlation.parallelism:0}") int parallelism,
+                              @Value("${stock.correlation.rebalance-margin:1.5}") double rebalanceMargin) {
+        this.stockBarRepository = stockBarRepository;
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.refreshTimer = Timer.builder("stock.correlation.refresh")
+                .description("Correlation matrix build or incremental update")
+                .register(meterRegistry);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.enabled = enabled;
+        this.resolution = BarResolution.fromCode(resolution);
+        this.window = window;
+        this.maxSymbols = maxSymbolsFor(memoryBudgetMb * 1024 * 1024, window);
+        this.rebalanceMargin = Math.max(1, rebalanceMargin);
+        logger.info("Correlation matrix holds up to {} symbols within {} MB", maxSymbols, memoryBudgetMb);
+    }
+
+    /**
+     * Largest symbol count whose pair sums (4n² - 4n bytes) and per-symbol return window
+     * and running sums (8W + 40 bytes each) fit the budget.
+     */
+    static int maxSymbolsFor(long budgetBytes, int window) {
+        double linear = 8.0 * window + 36;
+        return (int) Math.max(2, Math.floor((-linear + Math.sqrt(linear * linear + 16.0 * budgetBytes)) / 8));
+    }
+
+    @Scheduled(fixedDelayString = "${stock.correlation.refresh-interval-ms:60000}",
+            initialDelayString = "${stock.correlation.initial-delay-ms:30000}")
+    public void refresh() {
+        if (enabled) {
+            refreshTimer.record(this::update);
+        }
+    }
+
+    private void update() {
+        Matrix current = matrix;
+        List<String> universe = selectUniverse(latestSnapshotStore.getAll(),
+                current != null ? current.symbols : List.of(), maxSymbols, rebalanceMargin);
+        if (universe.size() < 2) {
+            return;
+        }
+        // The bar containing now is still in progress and only enters once it has closed
+        LocalDateTime open = resolution.bucketStart(LocalDateTime.now());
+        if (current == null || !current.symbols.equals(universe)) {
+            long start = System.currentTimeMillis();
+            matrix = build(universe, open);
+            logger.info("Built correlation matrix for {} symbols over {} bars in {} ms",
+                    universe.size(), matrix.observations, System.currentTimeMillis() - start);
+            return;
+        }
+        if (current.lastBucket == null) {
+            matrix = build(universe, open);
+            return;
+        }
+        NavigableMap<LocalDateTime, double[]> closes =
+                loadCloses(current.index, current.lastBucket, current.lastBucket, open);
+        closes.forEach((bucket, values) -> current.push(bucket, values, true));
+    }
+
+    /**
+     * Every symbol while they fit {@code maxSymbols}; beyond that the current {@code members}
+     * that are still tracked, with free seats going to the most traded outsiders, and a member
+     * only giving way to an outsider that trades more than {@code margin} times its value.
+     */
+    static List<String> selectUniverse(Collection<StockData> latest, Collection<String> members,
+                                       int maxSymbols, double margin) {
+        if (latest.size() <= maxSymbols) {
+            return latest.stream().map(StockData::getSymbol).sorted().toList();
+        }
+        Set<String> current = new HashSet<>(members);
+        List<StockData> kept = new ArrayList<>();
+        List<StockData> outsiders = new ArrayList<>();
+        for (StockData data : latest) {
+            (current.contains(data.getSymbol()) ? kept : outsiders).add(data);
+        }
+        // Weakest member first, strongest outsider first
+        kept.sort(Comparator.comparingDouble(CorrelationService::tradedValue));
+        outsiders.sort(Comparator.comparingDouble(CorrelationService::tradedValue).reversed());
+        if (kept.size() > maxSymbols) {
+            kept.subList(0, kept.size() - maxSymbols).clear();
+        }
+        List<String> universe = new ArrayList<>(maxSymbols);
+        kept.forEach(data -> universe.add(data.getSymbol()));
+        int next = 0;
+        for (; next < outsiders.size() && universe.size() < maxSymbols; next++) {
+            universe.add(outsiders.get(next).getSymbol());
+        }
+        // Seats filled above are as strong as any outsider left, so only original members are challenged
+        for (int weakest = 0; weakest < kept.size() && next < outsiders.size(); weakest++, next++) {
+            StockData challenger = outsiders.get(next);
+            if (tradedValue(challenger) <= margin * tradedValue(kept.get(weakest))) {
+                break;
+            }
+            universe.set(weakest, challenger.getSymbol());
+        }
+        universe.sort(null);
+        return universe;
+    }
+
+    private static double tradedValue(StockData data) {
+        if (data.getCurrentPrice() == null || data.getVolume() == null) {
+            return 0;
+        }
+        return data.getCurrentPrice().doubleValue() * data.getVolume();
+    }
+
+    private Matrix build(List<String> universe, LocalDateTime open) {
+        Matrix built = new Matrix(universe);
+        LocalDateTime since = open.minus(resolution.getDuration().multipliedBy((long) (window + 1) * LOOKBACK_FACTOR));
+        NavigableMap<LocalDateTime, double[]> closes = loadCloses(built.index, null, since, open);
+        // window + 1 closes give window returns
+        while (closes.size() > window + 1) {
+            closes.pollFirstEntry();
+        }
+        closes.forEach((bucket, values) -> built.push(bucket, values, false));
+        built.resync();
+        return built;
+    }
+
+    /** Closes per bucket in {@code (after, before)}, indexed like the matrix; NaN where a symbol has no bar. */
+    private NavigableMap<LocalDateTime, double[]> loadCloses(Map<String, Integer> index, LocalDateTime after,
+                                                             LocalDateTime since, LocalDateTime before) {
+        NavigableMap<LocalDateTime, double[]> closes = new TreeMap<>();
+        for (StockBar bar : stockBarRepository.findAllSince(resolution, since)) {
+            Integer i = index.get(bar.getSymbol());
+            LocalDateTime bucket = bar.getBucketStart();
+            if (i == null || bar.getClose() == null || !bucket.isBefore(before)
+                    || (after != null && !bucket.isAfter(after))) {
+                continue;
+            }
+            closes.computeIfAbsent(bucket, b -> {
+                double[] values = new double[index.size()];
+                Arrays.fill(values, Double.NaN);
+                return values;
+            })[i] = bar.getClose().doubleValue();
+        }
+        return closes;
+    }
+
+    /**
+     * The {@code k} symbols most and least correlated with {@code symbol}, or null when the
+     * symbol is not part of the matrix (yet).
+     */
+    public CorrelationResult getCorrelations(String symbol, int k) {
+        Matrix current = matrix;
+        return current != null ? current.top(symbol, k) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private final class Matrix {
+        private final List<String> symbols;
+        private final Map<String, Integer> index = new HashMap<>();
+        private final int n;
+        private final double[][] returns;
+        private final double[] lastClose;
+        private final double[] sums;
+        private final double[] sumSquares;
+        private final double[] pairSums;
+        private final double[] added;
+        private final double[] evicted;
+        private final int[] blockStarts;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int position;
+        private int observations;
+        private int stepsSinceResync;
+        private LocalDateTime lastBucket;
+
+        Matrix(List<String> symbols) {
+            this.symbols = symbols;
+            n = symbols.size();
+            for (int i = 0; i < n; i++) {
+                index.put(symbols.get(i), i);
+            }
+            returns = new double[n][window];
+            lastClose = new double[n];
+            Arrays.fill(lastClose, Double.NaN);
+            sums = new double[n];
+            sumSquares = new double[n];
+            pairSums = new double[n * (n - 1) / 2];
+            added = new double[n];
+            evicted = new double[n];
+            blockStarts = rowBlocks();
+        }
+
+        /** Row ranges holding roughly equal numbers of pairs, several per worker for balance. */
+        private int[] rowBlocks() {
+            long target = Math.max(1, (long) pairSums.length / (pool.getParallelism() * 4L));
+            List<Integer> starts = new ArrayList<>();
+            long inBlock = 0;
+            starts.add(0);
+            for (int i = 0; i < n; i++) {
+                inBlock += n - 1 - i;
+                if (inBlock >= target && i + 1 < n) {
+                    starts.add(i + 1);
+                    inBlock = 0;
+                }
+            }
+            starts.add(n);
+            return starts.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        private int rowOffset(int i) {
+            // Index of pair (i, i + 1); pair (i, j) sits at rowOffset(i) + j - i - 1
+            return i * (2 * n - i - 1) / 2;
+        }
+
+        void push(LocalDateTime bucket, double[] closes, boolean updatePairs) {
+            lock.writeLock().lock();
+            try {
+                boolean first = lastBucket == null;
+                lastBucket = bucket;
+                boolean full = observations == window;
+                for (int i = 0; i < n; i++) {
+                    double close = Double.isNaN(closes[i]) ? lastClose[i] : closes[i];
+                    double r = Double.isNaN(lastClose[i]) || Double.isNaN(close) ? 0 : Math.log(close / lastClose[i]);
+                    lastClose[i] = close;
+                    if (first) {
+                        continue;
+                    }
+                    double e = full ? returns[i][position] : 0;
+                    returns[i][position] = r;
+                    sums[i] += r - e;
+                    sumSquares[i] += r * r - e * e;
+                    added[i] = r;
+                    evicted[i] = e;
+                }
+                if (first) {
+                    return;
+                }
+                if (updatePairs) {
+                    forEachBlock(this::updateRows);
+                }
+                position = (position + 1) % window;
+                observations = Math.min(observations + 1, window);
+                if (updatePairs && ++stepsSinceResync >= window) {
+                    resyncLocked();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void updateRows(int from, int to) {
+            for (int i = from; i < to; i++) {
+                double r = added[i];
+                double e = evicted[i];
+                int base = rowOffset(i) - i - 1;
+                for (int j = i + 1; j < n; j++) {
+                    pairSums[base + j] += r * added[j] - e * evicted[j];
+                }
+            }
+        }
+
+        void resync() {
+            lock.writeLock().lock();
+            try {
+                resyncLocked();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void resyncLocked() {
+            for (int i = 0; i < n; i++) {
+                double sum = 0;
+                double sumSquare = 0;
+                for (double r : returns[i]) {
+                    sum += r;
+                    sumSquare += r * r;
+                }
+                sums[i] = sum;
+                sumSquares[i] = sumSquare;
+            }
+            forEachBlock(this::resyncRows);
+            stepsSinceResync = 0;
+        }
+
+        private void resyncRows(int from, int to) {
+            for (int i = from; i < to; i++) {
+                double[] x = returns[i];
+                int base = rowOffset(i) - i - 1;
+                for (int j = i + 1; j < n; j++) {
+                    double[] y = returns[j];
+                    double sum = 0;
+                    for (int w = 0; w < window; w++) {
+                        sum += x[w] * y[w];
+                    }
+                    pairSums[base + j] = sum;
+                }
+            }
+        }
+
+        private void forEachBlock(RowBlock block) {
+            CompletableFuture<?>[] tasks = new CompletableFuture[blockStarts.length - 1];
+            for (int b = 0; b < tasks.length; b++) {
+                int from = blockStarts[b];
+                int to = blockStarts[b + 1];
+                tasks[b] = CompletableFuture.runAsync(() -> block.run(from, to), pool);
+            }
+            CompletableFuture.allOf(tasks).join();
+        }
+
+        CorrelationResult top(String symbol, int k) {
+            Integer row = index.get(symbol);
+            if (row == null) {
+                return null;
+            }
+            lock.readLock().lock();
+            try {
+                int i = row;
+                List<CorrelationPair> pairs = new ArrayList<>(n - 1);
+                double count = observations;
+                if (count >= 2) {
+                    for (int j = 0; j < n; j++) {
+                        if (j == i) {
+                            continue;
+                        }
+                        double sumProducts = pairSums[i < j ? rowOffset(i) + j - i - 1 : rowOffset(j) + i - j - 1];
+                        double covariance = (sumProducts - sums[i] * sums[j] / count) / (count - 1);
+                        double varianceX = (sumSquares[i] - sums[i] * sums[i] / count) / (count - 1);
+                        double varianceY = (sumSquares[j] - sums[j] * sums[j] / count) / (count - 1);
+                        double correlation = covariance / Math.sqrt(varianceX * varianceY);
+                        // Symbols without price movement in the window have no defined correlation
+                        if (Double.isFinite(correlation) && varianceX > 0 && varianceY > 0) {
+                            pairs.add(new CorrelationPair(symbols.get(j),
+                                    Math.max(-1, Math.min(1, correlation)), covariance));
+                        }
+                    }
+                }
+                pairs.sort(Comparator.comparingDouble(CorrelationPair::correlation).reversed());
+                List<CorrelationPair> most = pairs.subList(0, Math.min(k, pairs.size()));
+                List<CorrelationPair> least = new ArrayList<>(pairs.subList(Math.max(0, pairs.size() - k), pairs.size()));
+                least.sort(Comparator.comparingDouble(CorrelationPair::correlation));
+                return new CorrelationResult(symbol, resolution.getCode(), observations, lastBucket,
+                        List.copyOf(most), least);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowBlock {
+        void run(int from, int to);
+    }
+}
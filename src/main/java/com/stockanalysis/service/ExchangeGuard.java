@@ -0,0 +1,150 @@
+package com.stockanalysis.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Protects one exchange from our own load.
+ * Identical concurrent requests share a single upstream call; the remaining calls pass a
+ * circuit breaker and then a token bucket, waiting at most {@code acquireTimeoutMs} for a
+ * permit. Throttling (HTTP 429), server errors and I/O failures count against the breaker;
+ * other client errors do not, since they say nothing about the exchange's health.
+ */
+public class ExchangeGuard {
+
+    @FunctionalInterface
+    public interface UpstreamCall<T> {
+        T call() throws IOException;
+    }
+
+    private final String exchange;
+    private final TokenBucket rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final long acquireTimeoutMs;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    public ExchangeGuard(String exchange, TokenBucket rateLimiter, CircuitBreaker circuitBreaker,
+                         long acquireTimeoutMs, MeterRegistry meterRegistry) {
+        this.exchange = exchange;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("exchange.circuit.open", circuitBreaker, b -> b.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .tag("exchange", exchange)
+                .register(meterRegistry);
+    }
+
+    /** Runs {@code call}, or joins an identical call already in flight under the same key. */
+    public <T> T execute(String key, UpstreamCall<T> call) throws IOException {
+        return execute(key, acquireTimeoutMs, call);
+    }
+
+    /** As {@link #execute(String, UpstreamCall)}, waiting up to {@code acquireTimeoutMs} for a rate-limit permit. */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, long acquireTimeoutMs, UpstreamCall<T> call) throws IOException {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            meterRegistry.counter("exchange.coalesced", "exchange", exchange).increment();
+            return (T) await(existing);
+        }
+
+        try {
+            T result = guarded(call, acquireTimeoutMs);
+            future.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> T guarded(UpstreamCall<T> call, long acquireTimeoutMs) throws IOException {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            meterRegistry.counter("exchange.rejected", "exchange", exchange, "reason", "circuit_open").increment();
+            throw new ExchangeUnavailableException(exchange + " circuit breaker is open",
+                    circuitBreaker.getRetryAfterMillis());
+        }
+        try {
+            if (!rateLimiter.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                circuitBreaker.recordIgnored();
+                meterRegistry.counter("exchange.rejected", "exchange", exchange, "reason", "rate_limited").increment();
+                throw new ExchangeUnavailableException(exchange + " rate limit exceeded", acquireTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            circuitBreaker.recordIgnored();
+            Thread.currentThread().interrupt();
+            throw new ExchangeUnavailableException("Interrupted waiting for " + exchange + " rate limit", 0);
+        }
+
+        try {
+            T result = call.call();
+            circuitBreaker.recordSuccess();
+            return result;
+        } catch (IOException | RuntimeException e) {
+            // A call its caller abandoned (interrupted) says nothing about the exchange
+            if (isUpstreamFailure(e) && !Thread.currentThread().isInterrupted()) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordIgnored();
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isUpstreamFailure(Exception e) {
+        if (e instanceof ExchangeHttpException http) {
+            return http.getStatusCode() == 429 || http.getStatusCode() >= 500;
+        }
+        return e instanceof IOException;
+    }
+
+    private static Object await(CompletableFuture<Object> future) throws IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            // Only this waiter gives up; the call it joined keeps running for the others
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a coalesced call");
+        }
+    }
+
+    public long getDefaultAcquireTimeoutMs() {
+        return acquireTimeoutMs;
+    }
+
+    /** Calls that would currently get a rate-limit permit without waiting; 0 while the circuit is open. */
+    public int availablePermits() {
+        return isOpen() ? 0 : rateLimiter.availablePermits();
+    }
+
+    /** True when calls would currently be rejected without reaching the exchange. */
+    public boolean isOpen() {
+        return circuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+}
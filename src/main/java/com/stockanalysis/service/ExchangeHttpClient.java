@@ -0,0 +1,412 @@
+package com.stockanalysis.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP client for exchange APIs.
+ * One pooled, keep-alive async client serves every exchange service, so fan-outs reuse
+ * connections instead of opening new ones. TLS connections negotiate HTTP/2 where the
+ * server supports it, which multiplexes concurrent requests over a single connection.
+ * <p>
+ * Response bodies are streamed: chunks are handed to the parser, which runs on a virtual
+ * thread, as they arrive from the I/O reactor, so a large payload is never buffered whole
+ * before parsing starts. Bodies larger than {@code exchange.http.max-body-bytes}, before or
+ * after gzip decoding, fail the request instead of growing without bound.
+ */
+@Service
+public class ExchangeHttpClient {
+
+    /** Decodes a successful response body. */
+    @FunctionalInterface
+    public interface ResponseParser<T> {
+        T parse(InputStream body) throws IOException;
+    }
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final Duration defaultTimeout;
+    private final MeterRegistry meterRegistry;
+    private final long maxBodyBytes;
+    private final ExecutorService parserExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ExchangeHttpClient(MeterRegistry meterRegistry,
+                              @Value("${exchange.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+                              @Value("${exchange.http.max-connections-total:200}") int maxConnectionsTotal,
+                              @Value("${exchange.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+                              @Value("${exchange.http.response-timeout-ms:10000}") long responseTimeoutMs,
+                              @Value("${exchange.http.max-body-bytes:16777216}") long maxBodyBytes) {
+        this.defaultTimeout = Duration.ofMillis(responseTimeoutMs);
+        this.meterRegistry = meterRegistry;
+        this.maxBodyBytes = maxBodyBytes;
+
+        PoolingAsyncClientConnectionManager connectionManager = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setMaxConnTotal(maxConnectionsTotal)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setTimeToLive(TimeValue.ofMinutes(5))
+                        .build())
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(HttpVersionPolicy.NEGOTIATE)
+                        .build())
+                .build();
+
+        this.httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setIOReactorConfig(IOReactorConfig.custom()
+                        .setSoTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+        this.httpClient.start();
+    }
+
+    public <T> CompletableFuture<T> getAsync(String url, Map<String, String> headers, ResponseParser<T> parser) {
+        SimpleRequestBuilder builder = SimpleRequestBuilder.get(url)
+                .addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        headers.forEach(builder::addHeader);
+        SimpleHttpRequest request = builder.build();
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        String host = URI.create(url).getHost();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Future<Integer> exchange = httpClient.execute(SimpleRequestProducer.create(request),
+                new StreamingResponseConsumer<>(url, host, parser, result),
+                new FutureCallback<>() {
+                    @Override
+                    public void completed(Integer status) {
+                        record(sample, host, String.valueOf(status), "none");
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        record(sample, host, "IO_ERROR", e.getClass().getSimpleName());
+                        result.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        record(sample, host, "CANCELLED", "none");
+                        result.cancel(false);
+                    }
+                });
+        // A caller that gives up (timeout, cancelled request) releases the connection as well
+        result.whenComplete((value, e) -> {
+            if (result.isCancelled()) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    /** One timer per host and status, so its count doubles as the per-status request counter. */
+    private void record(Timer.Sample sample, String host, String status, String exception) {
+        sample.stop(meterRegistry.timer("exchange.http.requests",
+                "host", host != null ? host : "unknown", "status", status, "exception", exception));
+    }
+
+    public <T> T get(String url, Map<String, String> headers, ResponseParser<T> parser) throws IOException {
+        return get(url, headers, parser, defaultTimeout);
+    }
+
+    public <T> T get(String url, Map<String, String> headers, ResponseParser<T> parser, Duration timeout)
+            throws IOException {
+        CompletableFuture<T> future = getAsync(url, headers, parser);
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IOException("Timed out after " + timeout.toMillis() + " ms fetching " + url, e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted fetching " + url);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new IOException("Error fetching " + url + ": " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Pipes a 200 response body into the parser while it is still arriving, and completes the
+     * caller's future from the parser thread. The exchange itself completes with the status code.
+     */
+    private final class StreamingResponseConsumer<T> extends AbstractBinResponseConsumer<Integer> {
+        private final String url;
+        private final String host;
+        private final ResponseParser<T> parser;
+        private final CompletableFuture<T> result;
+        private int status;
+        private BodyPipe body;
+        private long received;
+
+        StreamingResponseConsumer(String url, String host, ResponseParser<T> parser, CompletableFuture<T> result) {
+            this.url = url;
+            this.host = host;
+            this.parser = parser;
+            this.result = result;
+        }
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) throws IOException {
+            status = response.getCode();
+            if (status != 200) {
+                result.completeExceptionally(new ExchangeHttpException("Failed to fetch " + url, status));
+                return;
+            }
+            Header length = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            if (length != null && Long.parseLong(length.getValue().trim()) > maxBodyBytes) {
+                throw tooLarge();
+            }
+            Header encoding = response.getFirstHeader(HttpHeaders.CONTENT_ENCODING);
+            boolean gzip = encoding != null && "gzip".equalsIgnoreCase(encoding.getValue());
+            BodyPipe pipe = new BodyPipe();
+            body = pipe;
+            parserExecutor.execute(() -> parse(pipe, gzip));
+        }
+
+        private void parse(BodyPipe pipe, boolean gzip) {
+            // The gzip header is read here, not in start(), which runs on the I/O reactor thread
+            try (InputStream content = new LimitedInputStream(gzip ? new GZIPInputStream(pipe) : pipe)) {
+                result.complete(parser.parse(content));
+            } catch (IOException | RuntimeException e) {
+                if (!pipe.isFailed() && !result.isDone()) {
+                    meterRegistry.counter("exchange.http.parse.failures",
+                            "host", host != null ? host : "unknown").increment();
+                }
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        protected int capacityIncrement() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            if (body == null) {
+                return;
+            }
+            received += src.remaining();
+            if (received > maxBodyBytes) {
+                IOException e = tooLarge();
+                body.fail(e);
+                throw e;
+            }
+            if (src.hasRemaining()) {
+                byte[] chunk = new byte[src.remaining()];
+                src.get(chunk);
+                body.offer(chunk);
+            }
+            if (endOfStream) {
+                body.end();
+            }
+        }
+
+        @Override
+        protected Integer buildResult() {
+            if (body != null) {
+                body.end();
+            }
+            return status;
+        }
+
+        @Override
+        public void failed(Exception cause) {
+            if (body != null) {
+                body.fail(cause);
+            }
+            super.failed(cause);
+        }
+
+        @Override
+        public void releaseResources() {
+            // A no-op after a clean end; otherwise the exchange was aborted mid-body
+            if (body != null) {
+                body.fail(new IOException("Response from " + url + " ended before the body was complete"));
+            }
+        }
+
+        private IOException tooLarge() {
+            return new IOException("Response from " + url + " exceeds " + maxBodyBytes + " bytes");
+        }
+    }
+
+    /**
+     * Body chunks handed over from the I/O reactor. Offering never blocks the reactor; the
+     * bytes held here are bounded by {@code maxBodyBytes}.
+     */
+    private static final class BodyPipe extends InputStream {
+        private static final byte[] END = new byte[0];
+
+        private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+        private volatile Exception failure;
+        private volatile boolean closed;
+        private boolean finished;
+        private byte[] current = new byte[0];
+        private int position;
+        private boolean ended;
+
+        void offer(byte[] chunk) {
+            if (!closed) {
+                chunks.add(chunk);
+            }
+        }
+
+        /** Only the first of {@link #end} and {@link #fail} counts. */
+        synchronized void end() {
+            if (!finished) {
+                finished = true;
+                chunks.add(END);
+            }
+        }
+
+        synchronized void fail(Exception cause) {
+            if (!finished) {
+                finished = true;
+                failure = cause;
+                chunks.add(END);
+            }
+        }
+
+        boolean isFailed() {
+            return failure != null;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (position == current.length) {
+                if (ended) {
+                    checkFailure();
+                    return -1;
+                }
+                try {
+                    current = chunks.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted reading response body");
+                }
+                position = 0;
+                if (current == END) {
+                    ended = true;
+                }
+            }
+            checkFailure();
+            int count = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, count);
+            position += count;
+            return count;
+        }
+
+        private void checkFailure() throws IOException {
+            if (failure != null) {
+                throw new IOException("Response body failed: " + failure.getMessage(), failure);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            chunks.clear();
+        }
+    }
+
+    /** Caps the decoded body, so a small gzip payload cannot expand without bound. */
+    private final class LimitedInputStream extends FilterInputStream {
+        private long remaining = maxBodyBytes;
+
+        LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                consumed(1);
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                consumed(count);
+            }
+            return count;
+        }
+
+        private void consumed(long count) throws IOException {
+            remaining -= count;
+            if (remaining < 0) {
+                throw new IOException("Decoded response body exceeds " + maxBodyBytes + " bytes");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        httpClient.close(CloseMode.GRACEFUL);
+        parserExecutor.shutdownNow();
+    }
+}
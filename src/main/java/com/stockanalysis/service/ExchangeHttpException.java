@@ -0,0 +1,19 @@
+package com.stockanalysis.service;
+
+import java.io.IOException;
+
+/**
+ * Raised when an exchange API answers with a non-success HTTP status.
+ */
+public class ExchangeHttpException extends IOException {
+    private final int statusCode;
+
+    public ExchangeHttpException(String message, int statusCode) {
+        super(message + ": HTTP error code " + statusCode);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
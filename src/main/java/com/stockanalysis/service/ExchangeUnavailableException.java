@@ -0,0 +1,20 @@
+package com.stockanalysis.service;
+
+import java.io.IOException;
+
+/**
+ * Raised without calling the exchange, because its circuit breaker is open or its rate
+ * limit is exhausted.
+ */
+public class ExchangeUnavailableException extends IOException {
+    private final long retryAfterMillis;
+
+    public ExchangeUnavailableException(String message, long retryAfterMillis) {
+        super(message);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,43 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * A technical indicator that advances one period at a time.
+ * The indicator itself is stateless and shared; per-symbol state lives in the
+ * {@link Calculator} it creates. Calculators read shared intermediates (the price series,
+ * SMA20, true range, typical price) from the {@link IndicatorContext}, which is advanced once
+ * per period before any calculator runs. Additional indicators are picked up from Spring beans
+ * implementing this interface by {@link IndicatorRegistry}.
+ */
+public interface Indicator {
+
+    /** Name used to enable the indicator in configuration, for example {@code rsi}. */
+    String name();
+
+    /** The {@link StockData} fields this indicator writes, in response order. */
+    List<Field> fields();
+
+    Calculator newCalculator();
+
+    interface Calculator {
+
+        void update(IndicatorContext context);
+
+        /** Current value of {@code fields().get(field)}, or NaN while the indicator is warming up. */
+        double value(int field);
+
+        /** Independent copy, so an in-progress period can be previewed without committing it. */
+        Calculator copy();
+    }
+
+    record Field(String name,
+                 Function<StockData, BigDecimal> getter,
+                 BiConsumer<StockData, BigDecimal> setter) {
+    }
+}
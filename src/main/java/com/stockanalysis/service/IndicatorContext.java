@@ -0,0 +1,129 @@
+package com.stockanalysis.service;
+
+/**
+ * Per-symbol values shared by every indicator for the current period.
+ * {@link IndicatorState} advances the context once per period and then runs each calculator
+ * against it, so intermediates such as the 20-period SMA, true range and typical price are
+ * computed once no matter how many indicators use them. A period can be advanced tentatively
+ * between {@link #mark()} and {@link #rollback()}.
+ */
+public final class IndicatorContext {
+    private static final int SMA_PERIOD = 20;
+
+    private final PriceSeries series;
+    private double sum20;
+    private double sumSquares20;
+    private double trueRange;
+    private double typicalPrice;
+
+    private double markedSum20;
+    private double markedSumSquares20;
+    private double markedTrueRange;
+    private double markedTypicalPrice;
+
+    IndicatorContext(int initialCapacity, int maxCapacity) {
+        series = new PriceSeries(initialCapacity, maxCapacity);
+    }
+
+    IndicatorContext(IndicatorContext other) {
+        series = new PriceSeries(other.series);
+        sum20 = other.sum20;
+        sumSquares20 = other.sumSquares20;
+        trueRange = other.trueRange;
+        typicalPrice = other.typicalPrice;
+    }
+
+    void advance(long timestamp, double close, double high, double low, long volume) {
+        series.append(timestamp, close, high, low, volume);
+
+        sum20 += close;
+        sumSquares20 += close * close;
+        if (series.count() > SMA_PERIOD) {
+            double evicted = series.close(SMA_PERIOD);
+            sum20 -= evicted;
+            sumSquares20 -= evicted * evicted;
+        }
+
+        trueRange = high - low;
+        if (series.count() > 1) {
+            double previousClose = series.close(1);
+            trueRange = Math.max(trueRange, Math.max(Math.abs(high - previousClose), Math.abs(low - previousClose)));
+        }
+        typicalPrice = (high + low + close) / 3;
+    }
+
+    /** Remembers the current period so that the next {@link #advance} can be undone. */
+    void mark() {
+        series.mark();
+        markedSum20 = sum20;
+        markedSumSquares20 = sumSquares20;
+        markedTrueRange = trueRange;
+        markedTypicalPrice = typicalPrice;
+    }
+
+    /** Undoes the single {@link #advance} made since {@link #mark()}. */
+    void rollback() {
+        series.rollback();
+        sum20 = markedSum20;
+        sumSquares20 = markedSumSquares20;
+        trueRange = markedTrueRange;
+        typicalPrice = markedTypicalPrice;
+    }
+
+    public PriceSeries series() {
+        return series;
+    }
+
+    /** Periods seen so far, including the current one. */
+    public long count() {
+        return series.count();
+    }
+
+    public double close() {
+        return series.close(0);
+    }
+
+    public double high() {
+        return series.high(0);
+    }
+
+    public double low() {
+        return series.low(0);
+    }
+
+    public long volume() {
+        return series.volume(0);
+    }
+
+    /** Close of the previous period, or NaN on the first one. */
+    public double previousClose() {
+        return series.count() > 1 ? series.close(1) : Double.NaN;
+    }
+
+    public double trueRange() {
+        return trueRange;
+    }
+
+    public double typicalPrice() {
+        return typicalPrice;
+    }
+
+    /** Typical price {@code ago} periods back; {@code ago} must be below {@link PriceSeries#size()}. */
+    public double typicalPrice(int ago) {
+        return ago == 0 ? typicalPrice : (series.high(ago) + series.low(ago) + series.close(ago)) / 3;
+    }
+
+    /** Simple moving average of the last 20 closes, or NaN before 20 periods. */
+    public double sma20() {
+        return series.count() >= SMA_PERIOD ? sum20 / SMA_PERIOD : Double.NaN;
+    }
+
+    /** Population standard deviation of the last 20 closes, or NaN before 20 periods. */
+    public double standardDeviation20() {
+        if (series.count() < SMA_PERIOD) {
+            return Double.NaN;
+        }
+        double sma = sum20 / SMA_PERIOD;
+        return Math.sqrt(Math.max(sumSquares20 / SMA_PERIOD - sma * sma, 0));
+    }
+}
@@ -0,0 +1,174 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.RecomputeStatus;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Recomputes the stored indicators of every row, for example after a parameter change or
+ * a backfill. Symbols are spread over a dedicated {@link ForkJoinPool}; each symbol's
+ * history is read in time order in keyset chunks, run through a fresh indicator state and
+ * written back when the chunk's transaction commits, which Hibernate batches into JDBC
+ * updates. Symbols are independent and idempotent, so failed ones can simply be resubmitted.
+ */
+@Service
+public class IndicatorRecomputeService {
+    private static final Logger logger = LoggerFactory.getLogger(IndicatorRecomputeService.class);
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final StockDataRepository stockDataRepository;
+    private final StockService stockService;
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final TransactionTemplate transactionTemplate;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    private final Map<String, String> symbolStatus = new ConcurrentHashMap<>();
+    private final LongAdder rowsProcessed = new LongAdder();
+    private final AtomicInteger completedSymbols = new AtomicInteger();
+    private volatile boolean running;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile long startNanos;
+    private volatile long finishNanos;
+
+    public IndicatorRecomputeService(StockDataRepository stockDataRepository,
+                                     StockService stockService,
+                                     LatestSnapshotStore latestSnapshotStore,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${stock.recompute.parallelism:4}") int parallelism,
+                                     @Value("${stock.recompute.chunk-size:1000}") int chunkSize) {
+        this.stockDataRepository = stockDataRepository;
+        this.stockService = stockService;
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Starts a recompute of the given symbols, or of every stored symbol when none are given.
+     * Throws {@link IllegalStateException} while another job is still running.
+     */
+    public synchronized RecomputeStatus start(List<String> symbols) {
+        if (running) {
+            throw new IllegalStateException("A recompute job is already running");
+        }
+        List<String> targets = symbols == null || symbols.isEmpty()
+                ? List.copyOf(latestSnapshotStore.getSymbols())
+                : List.copyOf(new LinkedHashSet<>(symbols));
+
+        symbolStatus.clear();
+        targets.forEach(symbol -> symbolStatus.put(symbol, "PENDING"));
+        rowsProcessed.reset();
+        completedSymbols.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        startNanos = System.nanoTime();
+        running = true;
+
+        CompletableFuture<?>[] tasks = targets.stream()
+                .map(symbol -> CompletableFuture.runAsync(() -> recomputeSymbol(symbol), pool))
+                .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks).whenComplete((result, error) -> finish());
+
+        logger.info("Started indicator recompute for {} symbols", targets.size());
+        return getStatus();
+    }
+
+    private void recomputeSymbol(String symbol) {
+        symbolStatus.put(symbol, "RUNNING");
+        try {
+            BarIndicatorState state = stockService.newIndicatorState(symbol);
+            LocalDateTime cursorTime = MIN_DATE;
+            long cursorId = Long.MIN_VALUE;
+            StockData last = null;
+
+            while (true) {
+                LocalDateTime chunkTime = cursorTime;
+                long chunkId = cursorId;
+                List<StockData> chunk = transactionTemplate.execute(status -> {
+                    List<StockData> rows = stockDataRepository.findHistoryChunk(symbol, chunkTime, chunkId,
+                            PageRequest.of(0, chunkSize));
+                    for (StockData row : rows) {
+                        IndicatorState.clear(row);
+                        if (row.getCurrentPrice() != null) {
+                            state.update(row);
+                        }
+                    }
+                    // Dirty rows are flushed as batched updates on commit
+                    return rows;
+                });
+                if (chunk == null || chunk.isEmpty()) {
+                    break;
+                }
+                rowsProcessed.add(chunk.size());
+                last = chunk.get(chunk.size() - 1);
+                cursorTime = last.getLastUpdateTime();
+                cursorId = last.getId();
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+            }
+
+            if (last != null) {
+                latestSnapshotStore.update(last);
+            }
+            stockService.resetIndicatorState(symbol);
+            symbolStatus.put(symbol, "DONE");
+        } catch (Exception e) {
+            logger.error("Indicator recompute failed for {}", symbol, e);
+            symbolStatus.put(symbol, "FAILED");
+        } finally {
+            completedSymbols.incrementAndGet();
+        }
+    }
+
+    private synchronized void finish() {
+        finishNanos = System.nanoTime();
+        finishedAt = LocalDateTime.now();
+        running = false;
+        RecomputeStatus status = getStatus();
+        logger.info("Indicator recompute finished: {} rows for {} symbols at {} rows/s, {} failed",
+                status.rowsProcessed(), status.totalSymbols(), Math.round(status.rowsPerSecond()),
+                status.failedSymbols().size());
+    }
+
+    public RecomputeStatus getStatus() {
+        long rows = rowsProcessed.sum();
+        long elapsedNanos = (running ? System.nanoTime() : finishNanos) - startNanos;
+        double rowsPerSecond = startedAt == null || elapsedNanos <= 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+
+        Map<String, String> symbols = new TreeMap<>(symbolStatus);
+        List<String> failed = symbols.entrySet().stream()
+                .filter(e -> "FAILED".equals(e.getValue()))
+                .map(Map.Entry::getKey)
+                .toList();
+        return new RecomputeStatus(running, startedAt, finishedAt, symbols.size(), completedSymbols.get(),
+                failed, rows, rowsPerSecond, symbols);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
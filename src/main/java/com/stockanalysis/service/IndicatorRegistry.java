@@ -0,0 +1,84 @@
+package com.stockanalysis.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All known indicators (the built-ins plus any {@link Indicator} beans) and which of them
+ * run for which symbol. {@code stock.indicators.enabled} selects the default set; a symbol
+ * group {@code stock.indicators.groups.<name>} with {@code symbols} and {@code enabled} lists
+ * overrides it for its symbols, so expensive indicators can be switched off where nobody
+ * reads them.
+ */
+@Service
+public class IndicatorRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(IndicatorRegistry.class);
+
+    private final Map<String, Indicator> indicators = new LinkedHashMap<>();
+    private final IndicatorSet defaultSet;
+    private final Map<String, IndicatorSet> setsBySymbol = new HashMap<>();
+
+    public record Group(List<String> symbols, List<String> enabled) {
+    }
+
+    public IndicatorRegistry(ObjectProvider<Indicator> plugins,
+                             Environment environment,
+                             @Value("${stock.indicators.enabled:}") String enabled) {
+        IndicatorSet.BUILT_IN.indicators().forEach(this::register);
+        plugins.orderedStream().forEach(this::register);
+
+        defaultSet = enabled.isBlank()
+                ? new IndicatorSet(List.copyOf(indicators.values()))
+                : select(List.of(enabled.split(",")));
+        logger.info("Default indicators: {}", defaultSet);
+
+        Map<String, Group> groups = Binder.get(environment)
+                .bind("stock.indicators.groups", Bindable.mapOf(String.class, Group.class))
+                .orElse(Map.of());
+        groups.forEach((name, group) -> {
+            IndicatorSet set = group.enabled() != null ? select(group.enabled()) : defaultSet;
+            List<String> symbols = group.symbols() != null ? group.symbols() : List.of();
+            symbols.forEach(symbol -> setsBySymbol.put(symbol, set));
+            logger.info("Indicator group {}: {} for {} symbols", name, set, symbols.size());
+        });
+    }
+
+    private void register(Indicator indicator) {
+        if (indicators.putIfAbsent(indicator.name(), indicator) != null) {
+            throw new IllegalStateException("Duplicate indicator name: " + indicator.name());
+        }
+    }
+
+    private IndicatorSet select(List<String> names) {
+        List<Indicator> selected = new ArrayList<>(names.size());
+        for (String name : names) {
+            Indicator indicator = indicators.get(name.trim());
+            if (indicator == null) {
+                throw new IllegalArgumentException("Unknown indicator: " + name + ", known: " + indicators.keySet());
+            }
+            selected.add(indicator);
+        }
+        return new IndicatorSet(selected);
+    }
+
+    /** The indicators that run for {@code symbol}. */
+    public IndicatorSet forSymbol(String symbol) {
+        return setsBySymbol.getOrDefault(symbol, defaultSet);
+    }
+
+    public List<Indicator> getAll() {
+        return List.copyOf(indicators.values());
+    }
+}
@@ -0,0 +1,68 @@
+package com.stockanalysis.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, ordered selection of indicators. Output fields are numbered once, in indicator
+ * and field order, so readers can resolve a field name to an index up front and then read
+ * values without any lookup.
+ */
+public final class IndicatorSet {
+    public static final IndicatorSet BUILT_IN = new IndicatorSet(List.of(
+            new MovingAverageIndicator(),
+            new RsiIndicator(),
+            new AtrIndicator(),
+            new MacdIndicator(),
+            new BollingerBandsIndicator(),
+            new StochasticIndicator(),
+            new MfiIndicator()));
+
+    private final List<Indicator> indicators;
+    private final Map<String, Integer> fieldIndices = new HashMap<>();
+    private final int[] fieldIndicators;
+    private final int[] fieldPositions;
+
+    public IndicatorSet(List<Indicator> indicators) {
+        this.indicators = List.copyOf(indicators);
+        int fieldCount = this.indicators.stream().mapToInt(indicator -> indicator.fields().size()).sum();
+        fieldIndicators = new int[fieldCount];
+        fieldPositions = new int[fieldCount];
+        int index = 0;
+        for (int i = 0; i < this.indicators.size(); i++) {
+            List<Indicator.Field> fields = this.indicators.get(i).fields();
+            for (int f = 0; f < fields.size(); f++) {
+                fieldIndices.put(fields.get(f).name(), index);
+                fieldIndicators[index] = i;
+                fieldPositions[index] = f;
+                index++;
+            }
+        }
+    }
+
+    public List<Indicator> indicators() {
+        return indicators;
+    }
+
+    /** Index of the named field, or -1 if no indicator in the set writes it. */
+    public int fieldIndex(String field) {
+        Integer index = fieldIndices.get(field);
+        return index != null ? index : -1;
+    }
+
+    /** Position in {@link #indicators()} of the indicator writing field {@code index}. */
+    int indicatorOf(int index) {
+        return fieldIndicators[index];
+    }
+
+    /** Position of field {@code index} within its indicator's {@link Indicator#fields()}. */
+    int positionOf(int index) {
+        return fieldPositions[index];
+    }
+
+    @Override
+    public String toString() {
+        return indicators.stream().map(Indicator::name).toList().toString();
+    }
+}
@@ -0,0 +1,226 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Rolling technical indicator state for a single symbol.
+ * Every call to {@link #update} advances the shared {@link IndicatorContext} once and then
+ * each indicator of the {@link IndicatorSet} by one period in constant time, so the full
+ * history only has to be replayed once when the state is built.
+ * All arithmetic runs on the primitive {@link PriceSeries}; values are converted to
+ * {@link BigDecimal} only when they are written back into a {@link StockData}.
+ */
+public class IndicatorState {
+    private static final int SERIES_INITIAL_CAPACITY = 64;
+    private static final int SERIES_MAX_CAPACITY = 1024;
+
+    private final IndicatorSet indicators;
+    private final IndicatorContext context;
+    private final Indicator.Calculator[] calculators;
+    private final int ma20;
+    private final int ma50;
+    private final int bollingerUpper;
+    private final int bollingerLower;
+    private final int rsi;
+    private final int atr;
+    private final int macd;
+    private final int signalLine;
+    private final int stochasticK;
+    private final int stochasticD;
+    private final int mfi;
+
+    public IndicatorState() {
+        this(IndicatorSet.BUILT_IN);
+    }
+
+    public IndicatorState(IndicatorSet indicators) {
+        this.indicators = indicators;
+        context = new IndicatorContext(SERIES_INITIAL_CAPACITY, SERIES_MAX_CAPACITY);
+        calculators = indicators.indicators().stream()
+                .map(Indicator::newCalculator)
+                .toArray(Indicator.Calculator[]::new);
+        ma20 = indicators.fieldIndex("ma20");
+        ma50 = indicators.fieldIndex("ma50");
+        bollingerUpper = indicators.fieldIndex("bollingerUpper");
+        bollingerLower = indicators.fieldIndex("bollingerLower");
+        rsi = indicators.fieldIndex("rsi");
+        atr = indicators.fieldIndex("atr");
+        macd = indicators.fieldIndex("macd");
+        signalLine = indicators.fieldIndex("signalLine");
+        stochasticK = indicators.fieldIndex("stochasticK");
+        stochasticD = indicators.fieldIndex("stochasticD");
+        mfi = indicators.fieldIndex("mfi");
+    }
+
+    private IndicatorState(IndicatorState other) {
+        indicators = other.indicators;
+        context = new IndicatorContext(other.context);
+        calculators = new Indicator.Calculator[other.calculators.length];
+        for (int i = 0; i < calculators.length; i++) {
+            calculators[i] = other.calculators[i].copy();
+        }
+        ma20 = other.ma20;
+        ma50 = other.ma50;
+        bollingerUpper = other.bollingerUpper;
+        bollingerLower = other.bollingerLower;
+        rsi = other.rsi;
+        atr = other.atr;
+        macd = other.macd;
+        signalLine = other.signalLine;
+        stochasticK = other.stochasticK;
+        stochasticD = other.stochasticD;
+        mfi = other.mfi;
+    }
+
+    /** Independent copy of this state, including its price history. */
+    public synchronized IndicatorState copy() {
+        return new IndicatorState(this);
+    }
+
+    /**
+     * Writes the indicators this state would have after one more period into {@code stockData},
+     * without committing that period. The period is appended to the shared price series and
+     * rolled back afterwards, and only the small per-indicator calculators are copied, so a
+     * preview costs about as much as an update.
+     */
+    public synchronized void preview(long timestamp, double close, double high, double low, long volume,
+                                     StockData stockData) {
+        context.mark();
+        try {
+            Indicator.Calculator[] previews = new Indicator.Calculator[calculators.length];
+            for (int i = 0; i < calculators.length; i++) {
+                previews[i] = calculators[i].copy();
+            }
+            context.advance(timestamp, close, high, low, volume);
+            for (Indicator.Calculator calculator : previews) {
+                calculator.update(context);
+            }
+            applyTo(previews, stockData);
+        } finally {
+            context.rollback();
+        }
+    }
+
+    public synchronized void update(long timestamp, double close, double high, double low, long volume) {
+        context.advance(timestamp, close, high, low, volume);
+        for (Indicator.Calculator calculator : calculators) {
+            calculator.update(context);
+        }
+    }
+
+    public synchronized void update(StockData data) {
+        double close = data.getCurrentPrice().doubleValue();
+        double high = data.getHigh() != null ? data.getHigh().doubleValue() : close;
+        double low = data.getLow() != null ? data.getLow().doubleValue() : close;
+        long volume = data.getVolume() != null ? data.getVolume() : 0L;
+        long timestamp = data.getLastUpdateTime() != null
+                ? data.getLastUpdateTime().toInstant(ZoneOffset.UTC).toEpochMilli()
+                : 0L;
+        update(timestamp, close, high, low, volume);
+    }
+
+    public long getCount() {
+        return context.count();
+    }
+
+    public PriceSeries getSeries() {
+        return context.series();
+    }
+
+    public IndicatorSet getIndicators() {
+        return indicators;
+    }
+
+    /** Writes every indicator value that is ready; fields still warming up are left untouched. */
+    public synchronized void applyTo(StockData stockData) {
+        applyTo(calculators, stockData);
+    }
+
+    private void applyTo(Indicator.Calculator[] calculators, StockData stockData) {
+        for (int i = 0; i < calculators.length; i++) {
+            List<Indicator.Field> fields = indicators.indicators().get(i).fields();
+            for (int f = 0; f < fields.size(); f++) {
+                double value = calculators[i].value(f);
+                if (!Double.isNaN(value)) {
+                    fields.get(f).setter().accept(stockData, toBigDecimal(value));
+                }
+            }
+        }
+    }
+
+    /** Unrounded value of the named field, or NaN while warming up or when no enabled indicator writes it. */
+    public double value(String field) {
+        return value(indicators.fieldIndex(field));
+    }
+
+    /**
+     * Unrounded value of the field at {@code index} in this state's {@link IndicatorSet}, or NaN
+     * while warming up or for a negative index. Resolve the index once with
+     * {@link IndicatorSet#fieldIndex} when reading the same field repeatedly.
+     */
+    public synchronized double value(int index) {
+        return index >= 0 ? calculators[indicators.indicatorOf(index)].value(indicators.positionOf(index)) : Double.NaN;
+    }
+
+    public double getMa20() {
+        return value(ma20);
+    }
+
+    public double getMa50() {
+        return value(ma50);
+    }
+
+    public double getBollingerUpper() {
+        return value(bollingerUpper);
+    }
+
+    public double getBollingerLower() {
+        return value(bollingerLower);
+    }
+
+    public double getRsi() {
+        return value(rsi);
+    }
+
+    public double getAtr() {
+        return value(atr);
+    }
+
+    public double getMacd() {
+        return value(macd);
+    }
+
+    public double getSignal() {
+        return value(signalLine);
+    }
+
+    public double getStochasticK() {
+        return value(stochasticK);
+    }
+
+    public double getStochasticD() {
+        return value(stochasticD);
+    }
+
+    public double getMfi() {
+        return value(mfi);
+    }
+
+    /** Removes previously computed indicators, so values that cannot be computed yet are not left stale. */
+    public static void clear(StockData stockData) {
+        for (Indicator indicator : IndicatorSet.BUILT_IN.indicators()) {
+            for (Indicator.Field field : indicator.fields()) {
+                field.setter().accept(stockData, null);
+            }
+        }
+    }
+
+    private static BigDecimal toBigDecimal(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,196 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.QuoteSource;
+import com.stockanalysis.model.StockData;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Polls every tracked symbol on its own schedule while its market is open.
+ * Each symbol is refreshed from the upstream it was stored from: NSE symbols through
+ * {@link NSEClientService} on NSE hours, the rest through Yahoo Finance on the hours their suffix
+ * implies ({@code .NS}/{@code .BO} on NSE hours, no suffix on US hours, any other suffix at all hours).
+ * Active symbols (high volume or high ATR relative to price) are polled close to
+ * {@code minIntervalMs}, quiet ones close to {@code maxIntervalMs}.
+ * <p>
+ * The scheduler has no rate limit of its own. Each tick it dispatches at most as many polls as
+ * the upstream's shared {@link ExchangeGuard} has permits, so scheduled and user-driven calls
+ * together never exceed that upstream's configured rate.
+ */
+@Service
+@ConditionalOnProperty(name = "ingestion.scheduler.enabled", havingValue = "true")
+public class IngestionScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionScheduler.class);
+
+    @FunctionalInterface
+    private interface Poller {
+        StockData poll(String symbol) throws IOException;
+    }
+
+    private record Upstream(String name, ExchangeGuard guard, Poller poller) {
+    }
+
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final Upstream yahoo;
+    private final Upstream nse;
+    private final MarketCalendar nseCalendar;
+    private final MarketCalendar usCalendar;
+    private final long minIntervalMs;
+    private final long maxIntervalMs;
+    private final double highVolatility;
+    private final long highVolume;
+
+    private final Map<String, Long> nextPollMillis = new ConcurrentHashMap<>();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public IngestionScheduler(StockService stockService,
+                              NSEClientService nseClientService,
+                              LatestSnapshotStore latestSnapshotStore,
+                              @Value("${ingestion.scheduler.min-interval-ms:5000}") long minIntervalMs,
+                              @Value("${ingestion.scheduler.max-interval-ms:300000}") long maxIntervalMs,
+                              @Value("${ingestion.scheduler.high-volatility:0.02}") double highVolatility,
+                              @Value("${ingestion.scheduler.high-volume:1000000}") long highVolume,
+                              @Value("${ingestion.market.days:MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY}") Set<DayOfWeek> marketDays,
+                              @Value("${ingestion.market.nse.zone:Asia/Kolkata}") String nseZone,
+                              @Value("${ingestion.market.nse.open:09:15}") String nseOpen,
+                              @Value("${ingestion.market.nse.close:15:30}") String nseClose,
+                              @Value("${ingestion.market.us.zone:America/New_York}") String usZone,
+                              @Value("${ingestion.market.us.open:09:30}") String usOpen,
+                              @Value("${ingestion.market.us.close:16:00}") String usClose) {
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.yahoo = new Upstream("yahoo", stockService.getYahooGuard(), stockService::refreshStockData);
+        this.nse = new Upstream("nse", nseClientService.getGuard(), symbol -> {
+            nseClientService.refreshQuote(symbol);
+            return latestSnapshotStore.get(symbol);
+        });
+        this.nseCalendar = MarketCalendar.of(nseZone, nseOpen, nseClose, marketDays);
+        this.usCalendar = MarketCalendar.of(usZone, usOpen, usClose, marketDays);
+        this.minIntervalMs = minIntervalMs;
+        this.maxIntervalMs = maxIntervalMs;
+        this.highVolatility = highVolatility;
+        this.highVolume = highVolume;
+    }
+
+    @Scheduled(fixedDelayString = "${ingestion.scheduler.tick-ms:1000}")
+    public void tick() {
+        Instant now = Instant.now();
+        long nowMillis = now.toEpochMilli();
+        List<StockData> due = latestSnapshotStore.getAll().stream()
+                .filter(latest -> !inFlight.contains(latest.getSymbol()))
+                .filter(latest -> calendar(latest).isOpen(now))
+                .filter(latest -> nextPollMillis.computeIfAbsent(latest.getSymbol(),
+                        s -> nowMillis + initialOffset(s)) <= nowMillis)
+                .sorted(Comparator.comparing(latest -> nextPollMillis.get(latest.getSymbol())))
+                .toList();
+
+        // Most overdue first; whatever an upstream's limiter cannot admit now stays due for the next tick
+        Map<String, Integer> permits = new HashMap<>();
+        for (StockData latest : due) {
+            Upstream upstream = upstream(latest);
+            int available = permits.computeIfAbsent(upstream.name(), name -> upstream.guard().availablePermits());
+            if (available <= 0) {
+                continue;
+            }
+            permits.put(upstream.name(), available - 1);
+            String symbol = latest.getSymbol();
+            inFlight.add(symbol);
+            executor.submit(() -> poll(symbol, upstream));
+        }
+    }
+
+    private void poll(String symbol, Upstream upstream) {
+        long interval = maxIntervalMs;
+        try {
+            StockData stockData = upstream.poller().poll(symbol);
+            interval = pollInterval(stockData);
+        } catch (Exception e) {
+            if (isUnavailable(e)) {
+                // A user request took the permit or the circuit opened: not polled, so try again soon
+                interval = minIntervalMs;
+            } else {
+                logger.warn("Scheduled {} refresh failed for {}: {}", upstream.name(), symbol, e.getMessage());
+            }
+        } finally {
+            nextPollMillis.put(symbol, System.currentTimeMillis() + interval);
+            inFlight.remove(symbol);
+        }
+    }
+
+    private static boolean isUnavailable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ExchangeUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Upstream upstream(StockData latest) {
+        return isNse(latest) ? nse : yahoo;
+    }
+
+    private static boolean isNse(StockData latest) {
+        if (latest.getSource() != null) {
+            return latest.getSource() == QuoteSource.NSE;
+        }
+        // Rows stored before the source column existed: only the NSE path records a company name
+        return latest.getCompanyName() != null;
+    }
+
+    private MarketCalendar calendar(StockData latest) {
+        if (isNse(latest)) {
+            return nseCalendar;
+        }
+        String symbol = latest.getSymbol().toUpperCase(Locale.ROOT);
+        if (symbol.endsWith(".NS") || symbol.endsWith(".BO")) {
+            return nseCalendar;
+        }
+        return symbol.contains(".") ? MarketCalendar.ALWAYS_OPEN : usCalendar;
+    }
+
+    /** Spreads first polls over the minimum interval so a restart does not poll every symbol at once. */
+    private long initialOffset(String symbol) {
+        return Math.floorMod(symbol.hashCode(), Math.max(1, minIntervalMs));
+    }
+
+    long pollInterval(StockData stockData) {
+        if (stockData == null) {
+            return maxIntervalMs;
+        }
+        double activity = 0;
+        if (stockData.getAtr() != null && stockData.getCurrentPrice() != null
+                && stockData.getCurrentPrice().signum() > 0) {
+            double volatility = stockData.getAtr().doubleValue() / stockData.getCurrentPrice().doubleValue();
+            activity = Math.max(activity, volatility / highVolatility);
+        }
+        if (stockData.getVolume() != null) {
+            activity = Math.max(activity, (double) stockData.getVolume() / highVolume);
+        }
+        activity = Math.min(activity, 1.0);
+        return maxIntervalMs - Math.round(activity * (maxIntervalMs - minIntervalMs));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
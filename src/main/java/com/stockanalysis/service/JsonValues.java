@@ -0,0 +1,105 @@
+package com.stockanalysis.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads scalar values from the current token of a streaming {@link JsonParser}.
+ * Exchange APIs send numbers either as JSON numbers or as strings such as {@code "1,248.55"};
+ * both are decoded straight from the parser's character buffer without building a String.
+ * Missing or malformed values decode to zero, or to an empty string for text.
+ */
+final class JsonValues {
+
+    private JsonValues() {
+    }
+
+    static BigDecimal readDecimal(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDecimalValue();
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return BigDecimal.ZERO;
+        }
+        return parseDecimal(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    static long readLong(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (long) parser.getDoubleValue();
+        }
+        if (token != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return 0L;
+        }
+        char[] chars = parser.getTextCharacters();
+        int start = parser.getTextOffset();
+        int end = start + parser.getTextLength();
+        boolean negative = start < end && chars[start] == '-';
+        if (start < end && (negative || chars[start] == '+')) {
+            start++;
+        }
+        long value = 0;
+        boolean digits = false;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits = true;
+            } else if (c == '.') {
+                break;
+            } else if (c != ',') {
+                return 0L;
+            }
+        }
+        if (!digits) {
+            return 0L;
+        }
+        return negative ? -value : value;
+    }
+
+    static String readText(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return "";
+        }
+        if (!parser.currentToken().isScalarValue()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getText();
+    }
+
+    private static BigDecimal parseDecimal(char[] chars, int offset, int length) {
+        int commas = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (chars[i] == ',') {
+                commas++;
+            }
+        }
+        try {
+            if (commas == 0) {
+                return new BigDecimal(chars, offset, length);
+            }
+            // Thousands separators: compact into a small scratch buffer
+            char[] digits = new char[length - commas];
+            int n = 0;
+            for (int i = offset; i < offset + length; i++) {
+                if (chars[i] != ',') {
+                    digits[n++] = chars[i];
+                }
+            }
+            return new BigDecimal(digits, 0, n);
+        } catch (NumberFormatException e) {
+            return BigDecimal.ZERO;
+        }
+    }
+}
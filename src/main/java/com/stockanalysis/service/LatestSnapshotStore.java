@@ -0,0 +1,84 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Latest snapshot per symbol, kept in sync with every persisted quote.
+ * Seeded from the database on startup and then updated by {@link StockDataWriter},
+ * so reads cost O(number of symbols) no matter how much history has accumulated.
+ * Listeners hear about every symbol whose entry may have changed, so derived views can be
+ * updated one symbol at a time instead of being rebuilt.
+ */
+@Service
+public class LatestSnapshotStore {
+    private static final Logger logger = LoggerFactory.getLogger(LatestSnapshotStore.class);
+
+    private final StockDataRepository stockDataRepository;
+    private final Map<String, StockData> latest = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+
+    public LatestSnapshotStore(StockDataRepository stockDataRepository) {
+        this.stockDataRepository = stockDataRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        stockDataRepository.findLatestPerSymbol().forEach(this::update);
+        logger.info("Loaded latest snapshots for {} symbols in {} ms", latest.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    public void update(StockData stockData) {
+        if (stockData.getSymbol() == null) {
+            return;
+        }
+        latest.merge(stockData.getSymbol(), stockData, (current, candidate) ->
+                isNewer(candidate, current) ? candidate : current);
+        for (Consumer<String> listener : listeners) {
+            listener.accept(stockData.getSymbol());
+        }
+    }
+
+    /**
+     * Calls {@code listener} with the symbol after every update. Calls for one symbol may run
+     * concurrently and out of order, so listeners should read the current entry with {@link #get}.
+     */
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    private static boolean isNewer(StockData candidate, StockData current) {
+        if (current.getLastUpdateTime() == null) {
+            return true;
+        }
+        return candidate.getLastUpdateTime() != null
+                && !candidate.getLastUpdateTime().isBefore(current.getLastUpdateTime());
+    }
+
+    public StockData get(String symbol) {
+        return latest.get(symbol);
+    }
+
+    public Collection<StockData> getAll() {
+        return Collections.unmodifiableCollection(latest.values());
+    }
+
+    public Collection<String> getSymbols() {
+        return Collections.unmodifiableSet(latest.keySet());
+    }
+}
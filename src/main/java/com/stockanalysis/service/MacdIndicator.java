@@ -0,0 +1,100 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** MACD (12/26 EMA spread) with its 9-period signal line and histogram. */
+public class MacdIndicator implements Indicator {
+    private static final int EMA_FAST = 12;
+    private static final int EMA_SLOW = 26;
+    private static final int SIGNAL_PERIOD = 9;
+    private static final List<Field> FIELDS = List.of(
+            new Field("macd", StockData::getMacd, StockData::setMacd),
+            new Field("signalLine", StockData::getSignalLine, StockData::setSignalLine),
+            new Field("macdHistogram", StockData::getMacdHistogram, StockData::setMacdHistogram));
+
+    @Override
+    public String name() {
+        return "macd";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new MacdCalculator();
+    }
+
+    private static final class MacdCalculator implements Calculator {
+        private double emaFastSeed;
+        private double emaSlowSeed;
+        private double emaFast = Double.NaN;
+        private double emaSlow = Double.NaN;
+        private long macdSamples;
+        private double signalSeed;
+        private double signal = Double.NaN;
+        private double macd = Double.NaN;
+
+        @Override
+        public void update(IndicatorContext context) {
+            long n = context.count();
+            double close = context.close();
+            if (n <= EMA_FAST) {
+                emaFastSeed += close;
+            }
+            if (n <= EMA_SLOW) {
+                emaSlowSeed += close;
+            }
+            emaFast = nextEMA(emaFast, close, n, EMA_FAST, emaFastSeed);
+            emaSlow = nextEMA(emaSlow, close, n, EMA_SLOW, emaSlowSeed);
+
+            if (n < EMA_SLOW) {
+                return;
+            }
+            macd = emaFast - emaSlow;
+            macdSamples++;
+            if (macdSamples <= SIGNAL_PERIOD) {
+                signalSeed += macd;
+            }
+            signal = nextEMA(signal, macd, macdSamples, SIGNAL_PERIOD, signalSeed);
+        }
+
+        private static double nextEMA(double previous, double value, long n, int period, double seedSum) {
+            if (n < period) {
+                return Double.NaN;
+            }
+            if (n == period) {
+                return seedSum / period;
+            }
+            double multiplier = 2.0 / (period + 1);
+            return (value - previous) * multiplier + previous;
+        }
+
+        @Override
+        public double value(int field) {
+            return switch (field) {
+                case 0 -> macd;
+                case 1 -> Double.isNaN(macd) ? Double.NaN : signal;
+                default -> macd - signal;
+            };
+        }
+
+        @Override
+        public Calculator copy() {
+            MacdCalculator copy = new MacdCalculator();
+            copy.emaFastSeed = emaFastSeed;
+            copy.emaSlowSeed = emaSlowSeed;
+            copy.emaFast = emaFast;
+            copy.emaSlow = emaSlow;
+            copy.macdSamples = macdSamples;
+            copy.signalSeed = signalSeed;
+            copy.signal = signal;
+            copy.macd = macd;
+            return copy;
+        }
+    }
+}
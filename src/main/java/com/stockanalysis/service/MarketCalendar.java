@@ -0,0 +1,33 @@
+package com.stockanalysis.service;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Regular trading hours of one market: open on {@code days} from {@code open} until
+ * {@code close}, in the market's own time zone. Exchange holidays are not modelled.
+ */
+public record MarketCalendar(ZoneId zone, LocalTime open, LocalTime close, Set<DayOfWeek> days) {
+
+    /** For markets whose hours are unknown: never treated as closed. */
+    public static final MarketCalendar ALWAYS_OPEN = new MarketCalendar(ZoneId.of("UTC"),
+            LocalTime.MIN, LocalTime.MAX, EnumSet.allOf(DayOfWeek.class));
+
+    public static MarketCalendar of(String zone, String open, String close, Set<DayOfWeek> days) {
+        return new MarketCalendar(ZoneId.of(zone), LocalTime.parse(open), LocalTime.parse(close), days);
+    }
+
+    public boolean isOpen(Instant instant) {
+        ZonedDateTime time = instant.atZone(zone);
+        if (!days.contains(time.getDayOfWeek())) {
+            return false;
+        }
+        LocalTime localTime = time.toLocalTime();
+        return !localTime.isBefore(open) && localTime.isBefore(close);
+    }
+}
@@ -0,0 +1,75 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** 14-period Money Flow Index over typical price times volume. */
+public class MfiIndicator implements Indicator {
+    private static final int PERIOD = 14;
+    private static final List<Field> FIELDS = List.of(new Field("mfi", StockData::getMfi, StockData::setMfi));
+
+    @Override
+    public String name() {
+        return "mfi";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new MfiCalculator();
+    }
+
+    private static final class MfiCalculator implements Calculator {
+        private long count;
+        private double positiveFlow;
+        private double negativeFlow;
+
+        @Override
+        public void update(IndicatorContext context) {
+            count = context.count();
+            if (count < 2) {
+                return;
+            }
+            addFlow(moneyFlow(context, 0), 1);
+            if (count > PERIOD + 1) {
+                addFlow(moneyFlow(context, PERIOD), -1);
+            }
+        }
+
+        private static double moneyFlow(IndicatorContext context, int ago) {
+            double typicalPrice = context.typicalPrice(ago);
+            double rawMoneyFlow = typicalPrice * context.series().volume(ago);
+            return typicalPrice > context.typicalPrice(ago + 1) ? rawMoneyFlow : -rawMoneyFlow;
+        }
+
+        private void addFlow(double flow, int sign) {
+            if (flow > 0) {
+                positiveFlow += sign * flow;
+            } else {
+                negativeFlow -= sign * flow;
+            }
+        }
+
+        @Override
+        public double value(int field) {
+            if (count <= PERIOD || negativeFlow <= 0) {
+                return Double.NaN;
+            }
+            return 100 - (100 / (1 + positiveFlow / negativeFlow));
+        }
+
+        @Override
+        public Calculator copy() {
+            MfiCalculator copy = new MfiCalculator();
+            copy.count = count;
+            copy.positiveFlow = positiveFlow;
+            copy.negativeFlow = negativeFlow;
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.stockanalysis.service;
+
+/**
+ * Sliding-window maximum (or minimum) over the last {@code period} sequence numbers,
+ * backed by fixed-size primitive arrays used as a ring deque.
+ */
+final class MonotonicWindow {
+    private final int period;
+    private final boolean max;
+    private final long[] sequences;
+    private final double[] values;
+    private int first;
+    private int size;
+
+    MonotonicWindow(int period, boolean max) {
+        this.period = period;
+        this.max = max;
+        this.sequences = new long[period];
+        this.values = new double[period];
+    }
+
+    MonotonicWindow(MonotonicWindow other) {
+        this.period = other.period;
+        this.max = other.max;
+        this.sequences = other.sequences.clone();
+        this.values = other.values.clone();
+        this.first = other.first;
+        this.size = other.size;
+    }
+
+    void push(long sequence, double value) {
+        while (size > 0 && sequences[first] <= sequence - period) {
+            first = (first + 1) % period;
+            size--;
+        }
+        while (size > 0 && dominates(value, values[last()])) {
+            size--;
+        }
+        int slot = (first + size) % period;
+        sequences[slot] = sequence;
+        values[slot] = value;
+        size++;
+    }
+
+    double value() {
+        return values[first];
+    }
+
+    private int last() {
+        return (first + size - 1) % period;
+    }
+
+    private boolean dominates(double candidate, double existing) {
+        return max ? candidate >= existing : candidate <= existing;
+    }
+}
@@ -0,0 +1,66 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** 20- and 50-period simple moving averages of the close. */
+public class MovingAverageIndicator implements Indicator {
+    private static final int MA_LONG = 50;
+    private static final List<Field> FIELDS = List.of(
+            new Field("ma20", StockData::getMa20, StockData::setMa20),
+            new Field("ma50", StockData::getMa50, StockData::setMa50));
+
+    @Override
+    public String name() {
+        return "ma";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new MovingAverageCalculator();
+    }
+
+    private static final class MovingAverageCalculator implements Calculator {
+        private double sum50;
+        private long count;
+        private double ma20 = Double.NaN;
+
+        MovingAverageCalculator() {
+        }
+
+        private MovingAverageCalculator(MovingAverageCalculator other) {
+            sum50 = other.sum50;
+            count = other.count;
+            ma20 = other.ma20;
+        }
+
+        @Override
+        public void update(IndicatorContext context) {
+            count = context.count();
+            sum50 += context.close();
+            if (count > MA_LONG) {
+                sum50 -= context.series().close(MA_LONG);
+            }
+            ma20 = context.sma20();
+        }
+
+        @Override
+        public double value(int field) {
+            if (field == 0) {
+                return ma20;
+            }
+            return count >= MA_LONG ? sum50 / MA_LONG : Double.NaN;
+        }
+
+        @Override
+        public Calculator copy() {
+            return new MovingAverageCalculator(this);
+        }
+    }
+}
@@ -1,167 +1,443 @@
 package com.stockanalysis.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockanalysis.model.NseIndexQuote;
+import com.stockanalysis.model.NseQuote;
+import com.stockanalysis.model.QuoteSource;
 import com.stockanalysis.model.StockData;
-import com.stockanalysis.repository.StockDataRepository;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class NSEClientService {
+    @FunctionalInterface
+    private interface QuoteFetch {
+        NseQuote fetch(String symbol, long acquireTimeoutMs) throws IOException;
+    }
+
     private static final Logger logger = LoggerFactory.getLogger(NSEClientService.class);
-    private static final String NSE_BASE_URL = "https://www.nseindia.com/api/";
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final CloseableHttpClient httpClient = HttpClients.createDefault();
-    private final StockDataRepository stockDataRepository;
+    private static final DateTimeFormatter LAST_UPDATE_FORMAT = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm:ss");
+    private static final Map<String, String> NSE_HEADERS = Map.of(
+            "User-Agent", "Mozilla/5.0",
+            "Accept", "application/json",
+            "X-Requested-With", "XMLHttpRequest");
+
+    private final NseResponseParser responseParser = new NseResponseParser();
+    private final ExchangeHttpClient httpClient;
+    private final StockDataWriter stockDataWriter;
+    private final String baseUrl;
+    private final boolean parallelFetch;
+    private final int fetchConcurrency;
+    private final Duration fetchTimeout;
+    private final MeterRegistry meterRegistry;
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final ExchangeGuard guard;
+    private final double permitsPerSecond;
+    private final long fanoutAcquireTimeoutMs;
+    private final boolean indexSnapshotIngestion;
+    private final long bandMaxAgeMs;
+    private final long vwapMaxAgeMs;
+    private final Map<String, DetailFields> details = new ConcurrentHashMap<>();
+    private final ExecutorService detailRefresher = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean refreshingDetails = new AtomicBoolean();
 
-    public NSEClientService(StockDataRepository stockDataRepository) {
-        this.stockDataRepository = stockDataRepository;
+    public NSEClientService(ExchangeHttpClient httpClient,
+                            MeterRegistry meterRegistry,
+                            StockDataWriter stockDataWriter,
+                            LatestSnapshotStore latestSnapshotStore,
+                            @Value("${nse.base-url:https://www.nseindia.com/api/}") String baseUrl,
+                            @Value("${nse.fetch.parallel:true}") boolean parallelFetch,
+                            @Value("${nse.fetch.concurrency:16}") int fetchConcurrency,
+                            @Value("${nse.fetch.timeout-ms:5000}") long fetchTimeoutMs,
+                            @Value("${nse.rate-limit.permits-per-second:3}") double permitsPerSecond,
+                            @Value("${nse.rate-limit.burst:5}") int burst,
+                            @Value("${nse.rate-limit.acquire-timeout-ms:2000}") long acquireTimeoutMs,
+                            @Value("${nse.rate-limit.fanout-acquire-timeout-ms:60000}") long fanoutAcquireTimeoutMs,
+                            @Value("${nse.circuit.failure-threshold:5}") int failureThreshold,
+                            @Value("${nse.circuit.open-duration-ms:30000}") long openDurationMs,
+                            @Value("${nse.index.ingestion-mode:snapshot}") String indexIngestionMode,
+                            @Value("${nse.index.detail.band-max-age-ms:86400000}") long bandMaxAgeMs,
+                            @Value("${nse.index.detail.vwap-max-age-ms:900000}") long vwapMaxAgeMs) {
+        this.httpClient = httpClient;
+        this.meterRegistry = meterRegistry;
+        this.stockDataWriter = stockDataWriter;
+        this.baseUrl = baseUrl;
+        this.parallelFetch = parallelFetch;
+        this.fetchConcurrency = Math.max(1, fetchConcurrency);
+        this.fetchTimeout = Duration.ofMillis(fetchTimeoutMs);
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.permitsPerSecond = permitsPerSecond;
+        // Only fetchConcurrency symbols queue for permits at once, so each waits about
+        // concurrency / rate seconds; any shorter timeout would drop symbols from every large fan-out
+        long queueWaitMs = (long) Math.ceil(this.fetchConcurrency * 1000.0 / permitsPerSecond);
+        this.fanoutAcquireTimeoutMs = Math.max(fanoutAcquireTimeoutMs, 2 * queueWaitMs);
+        this.indexSnapshotIngestion = !"detail".equalsIgnoreCase(indexIngestionMode);
+        this.bandMaxAgeMs = bandMaxAgeMs;
+        this.vwapMaxAgeMs = vwapMaxAgeMs;
+        this.guard = new ExchangeGuard("nse", new TokenBucket(permitsPerSecond, burst),
+                new CircuitBreaker(failureThreshold, openDurationMs), acquireTimeoutMs, meterRegistry);
     }
 
+    /**
+     * Fetches and stores a live quote. While NSE is unavailable (circuit open or rate limit
+     * exhausted) the last known quote is returned instead, marked {@code "stale": true};
+     * without one, {@link ExchangeUnavailableException} is thrown.
+     */
     public Map<String, Object> getStockQuote(String symbol) throws IOException {
-        String url = NSE_BASE_URL + "quote-equity?symbol=" + symbol;
-
-        HttpGet request = new HttpGet(url);
-        request.addHeader("User-Agent", "Mozilla/5.0");
-        request.addHeader("Accept", "application/json");
-        request.addHeader("X-Requested-With", "XMLHttpRequest");
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
 
         try {
-            String response = httpClient.execute(request, response1 -> {
-                if (response1.getCode() != 200) {
-                    throw new IOException("Failed to fetch NSE data: HTTP error code " + response1.getCode());
-                }
-                return new String(response1.getEntity().getContent().readAllBytes());
-            });
+            NseQuote quote = fetchAndStore(symbol, guard.getDefaultAcquireTimeoutMs());
+            outcome = "success";
+            return quote.toMap();
+        } catch (ExchangeUnavailableException e) {
+            StockData lastKnown = latestSnapshotStore.get(symbol);
+            if (lastKnown == null) {
+                outcome = "rejected";
+                throw e;
+            }
+            outcome = "fallback";
+            return toStaleQuote(lastKnown);
+        } catch (Exception e) {
+            throw new IOException("Error fetching NSE data: " + e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("exchange.fetch", "exchange", "nse", "operation", "quote", "outcome", outcome));
+        }
+    }
 
-            JsonNode root = objectMapper.readTree(response);
-            Map<String, Object> stockData = new HashMap<>();
-
-            // Extract data from the correct paths in the JSON structure
-            JsonNode info = root.path("info");
-            JsonNode priceInfo = root.path("priceInfo");
-            JsonNode metadata = root.path("metadata");
-
-            // Populate the map with stock data
-            stockData.put("symbol", info.path("symbol").asText());
-            stockData.put("companyName", info.path("companyName").asText());
-            stockData.put("industry", info.path("industry").asText());
-            stockData.put("currentPrice", parseBigDecimal(priceInfo.path("lastPrice").asText()));
-            stockData.put("open", parseBigDecimal(priceInfo.path("open").asText()));
-            stockData.put("dayHigh", parseBigDecimal(priceInfo.path("intraDayHighLow").path("max").asText()));
-            stockData.put("dayLow", parseBigDecimal(priceInfo.path("intraDayHighLow").path("min").asText()));
-            stockData.put("previousClose", parseBigDecimal(priceInfo.path("previousClose").asText()));
-            stockData.put("change", parseBigDecimal(priceInfo.path("change").asText()));
-            stockData.put("changePercent", parseBigDecimal(priceInfo.path("pChange").asText()));
-            stockData.put("volume", root.path("preOpenMarket").path("totalTradedVolume").asLong());
-            stockData.put("vwap", parseBigDecimal(priceInfo.path("vwap").asText()));
-            stockData.put("weekHigh", parseBigDecimal(priceInfo.path("weekHighLow").path("max").asText()));
-            stockData.put("weekLow", parseBigDecimal(priceInfo.path("weekHighLow").path("min").asText()));
-            stockData.put("upperCircuit", parseBigDecimal(priceInfo.path("upperCP").asText()));
-            stockData.put("lowerCircuit", parseBigDecimal(priceInfo.path("lowerCP").asText()));
-            stockData.put("lastUpdateTime", metadata.path("lastUpdateTime").asText());
+    /**
+     * Fetches and stores a live quote for the ingestion scheduler. Unlike {@link #getStockQuote}
+     * there is no stale fallback: {@link ExchangeUnavailableException} tells the caller to retry later.
+     */
+    public void refreshQuote(String symbol) throws IOException {
+        fetchAndStore(symbol, guard.getDefaultAcquireTimeoutMs());
+    }
+
+    ExchangeGuard getGuard() {
+        return guard;
+    }
+
+    boolean isRefreshingDetails() {
+        return refreshingDetails.get();
+    }
+
+    private NseQuote fetchAndStore(String symbol, long acquireTimeoutMs) throws IOException {
+        String url = baseUrl + "quote-equity?symbol=" + symbol;
+        // Concurrent requests for the same symbol share one upstream call and one stored row
+        return guard.execute("quote:" + symbol, acquireTimeoutMs, () -> {
+            NseQuote quote = httpClient.get(url, NSE_HEADERS, responseParser::readQuote, fetchTimeout);
 
             // Store the data in the database
-            saveStockData(stockData);
+            saveStockData(quote);
+            return quote;
+        });
+    }
 
-            return stockData;
-        } catch (Exception e) {
-            throw new IOException("Error fetching NSE data: " + e.getMessage(), e);
+    /** The last stored quote for {@code symbol}, marked stale, or null when there is none. */
+    public Map<String, Object> getStaleQuote(String symbol) {
+        StockData lastKnown = latestSnapshotStore.get(symbol);
+        return lastKnown != null ? toStaleQuote(lastKnown) : null;
+    }
+
+    private static Map<String, Object> toStaleQuote(StockData data) {
+        Map<String, Object> stockData = new HashMap<>();
+        stockData.put("symbol", data.getSymbol());
+        stockData.put("companyName", data.getCompanyName());
+        stockData.put("industry", data.getIndustry());
+        stockData.put("currentPrice", data.getCurrentPrice());
+        stockData.put("open", data.getOpen());
+        stockData.put("dayHigh", data.getDayHigh());
+        stockData.put("dayLow", data.getDayLow());
+        stockData.put("previousClose", data.getPreviousClose());
+        stockData.put("change", data.getChange());
+        stockData.put("changePercent", data.getChangePercent());
+        stockData.put("volume", data.getVolume());
+        stockData.put("vwap", data.getVwap());
+        stockData.put("weekHigh", data.getWeekHigh());
+        stockData.put("weekLow", data.getWeekLow());
+        stockData.put("upperCircuit", data.getUpperCircuit());
+        stockData.put("lowerCircuit", data.getLowerCircuit());
+        stockData.put("lastUpdateTime", data.getLastUpdateTime() != null
+                ? data.getLastUpdateTime().format(LAST_UPDATE_FORMAT)
+                : null);
+        stockData.put("stale", true);
+        return stockData;
+    }
+
+    private void saveStockData(NseQuote quote) {
+        StockData entity = new StockData();
+        entity.setSymbol(quote.symbol());
+        entity.setSource(QuoteSource.NSE);
+        entity.setCompanyName(quote.companyName());
+        entity.setIndustry(quote.industry());
+        entity.setCurrentPrice(quote.currentPrice());
+        entity.setOpen(quote.open());
+        entity.setDayHigh(quote.dayHigh());
+        entity.setDayLow(quote.dayLow());
+        entity.setPreviousClose(quote.previousClose());
+        entity.setChange(quote.change());
+        entity.setChangePercent(quote.changePercent());
+        entity.setVolume(quote.volume());
+        entity.setVwap(quote.vwap());
+        entity.setWeekHigh(quote.weekHigh());
+        entity.setWeekLow(quote.weekLow());
+        entity.setUpperCircuit(quote.upperCircuit());
+        entity.setLowerCircuit(quote.lowerCircuit());
+
+        String lastUpdateTime = quote.lastUpdateTime();
+        if (lastUpdateTime != null && !lastUpdateTime.isEmpty()) {
+            entity.setLastUpdateTime(LocalDateTime.parse(lastUpdateTime, LAST_UPDATE_FORMAT));
         }
+
+        stockDataWriter.submit(entity);
+        rememberDetail(quote);
+    }
+
+    /** Fetches a per-symbol quote only to refresh its detail fields; no row is stored for it. */
+    private NseQuote fetchDetail(String symbol, long acquireTimeoutMs) throws IOException {
+        String url = baseUrl + "quote-equity?symbol=" + symbol;
+        return guard.execute("detail:" + symbol, acquireTimeoutMs, () -> {
+            NseQuote quote = httpClient.get(url, NSE_HEADERS, responseParser::readQuote, fetchTimeout);
+            rememberDetail(quote);
+            return quote;
+        });
+    }
+
+    private void rememberDetail(NseQuote quote) {
+        details.put(quote.symbol(), new DetailFields(quote.vwap(), quote.upperCircuit(), quote.lowerCircuit(),
+                System.currentTimeMillis()));
+    }
+
+    /** Fields only the per-symbol quote provides, with the time they were fetched. */
+    private record DetailFields(BigDecimal vwap, BigDecimal upperCircuit, BigDecimal lowerCircuit, long fetchedAt) {
     }
 
-    private void saveStockData(Map<String, Object> stockData) {
+    private boolean isDetailStale(String symbol, long now) {
+        DetailFields detail = details.get(symbol);
+        if (detail == null) {
+            return true;
+        }
+        long age = now - detail.fetchedAt();
+        // Price bands are set per trading day
+        boolean sameDay = Instant.ofEpochMilli(detail.fetchedAt()).atZone(ZoneId.systemDefault()).toLocalDate()
+                .equals(LocalDate.now());
+        return !sameDay || age > bandMaxAgeMs || (vwapMaxAgeMs > 0 && age > vwapMaxAgeMs);
+    }
+
+    private StockData toStockData(NseIndexQuote quote) {
         StockData entity = new StockData();
-        entity.setSymbol((String) stockData.get("symbol"));
-        entity.setCompanyName((String) stockData.get("companyName"));
-        entity.setIndustry((String) stockData.get("industry"));
-        entity.setCurrentPrice((BigDecimal) stockData.get("currentPrice"));
-        entity.setOpen((BigDecimal) stockData.get("open"));
-        entity.setDayHigh((BigDecimal) stockData.get("dayHigh"));
-        entity.setDayLow((BigDecimal) stockData.get("dayLow"));
-        entity.setPreviousClose((BigDecimal) stockData.get("previousClose"));
-        entity.setChange((BigDecimal) stockData.get("change"));
-        entity.setChangePercent((BigDecimal) stockData.get("changePercent"));
-        entity.setVolume((Long) stockData.get("volume"));
-        entity.setVwap((BigDecimal) stockData.get("vwap"));
-        entity.setWeekHigh((BigDecimal) stockData.get("weekHigh"));
-        entity.setWeekLow((BigDecimal) stockData.get("weekLow"));
-        entity.setUpperCircuit((BigDecimal) stockData.get("upperCircuit"));
-        entity.setLowerCircuit((BigDecimal) stockData.get("lowerCircuit"));
-
-        String lastUpdateTimeStr = (String) stockData.get("lastUpdateTime");
-        if (lastUpdateTimeStr != null) {
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm:ss");
-            entity.setLastUpdateTime(LocalDateTime.parse(lastUpdateTimeStr, formatter));
+        entity.setSymbol(quote.symbol());
+        entity.setSource(QuoteSource.NSE);
+        entity.setCompanyName(quote.companyName());
+        entity.setIndustry(quote.industry());
+        entity.setCurrentPrice(quote.currentPrice());
+        entity.setOpen(quote.open());
+        entity.setDayHigh(quote.dayHigh());
+        entity.setDayLow(quote.dayLow());
+        entity.setPreviousClose(quote.previousClose());
+        entity.setChange(quote.change());
+        entity.setChangePercent(quote.changePercent());
+        entity.setVolume(quote.volume());
+        entity.setWeekHigh(quote.yearHigh());
+        entity.setWeekLow(quote.yearLow());
+
+        DetailFields detail = details.get(quote.symbol());
+        if (detail != null) {
+            entity.setVwap(detail.vwap());
+            entity.setUpperCircuit(detail.upperCircuit());
+            entity.setLowerCircuit(detail.lowerCircuit());
         }
 
-        stockDataRepository.save(entity);
+        LocalDateTime lastUpdateTime = LocalDateTime.now();
+        if (quote.lastUpdateTime() != null && !quote.lastUpdateTime().isEmpty()) {
+            try {
+                lastUpdateTime = LocalDateTime.parse(quote.lastUpdateTime(), LAST_UPDATE_FORMAT);
+            } catch (DateTimeParseException e) {
+                logger.debug("Unparseable index timestamp for {}: {}", quote.symbol(), quote.lastUpdateTime());
+            }
+        }
+        entity.setLastUpdateTime(lastUpdateTime);
+        return entity;
     }
 
     public List<Map<String, Object>> getAllStockDetails() throws IOException {
-        String url = NSE_BASE_URL + "equity-stockIndices?index=NIFTY%2050";
+        String url = baseUrl + "equity-stockIndices?index=NIFTY%2050";
+
+        List<NseIndexQuote> indexQuotes;
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
 
-        HttpGet request = new HttpGet(url);
-        request.addHeader("User-Agent", "Mozilla/5.0");
-        request.addHeader("Accept", "application/json");
-        request.addHeader("X-Requested-With", "XMLHttpRequest");
+        try {
+            indexQuotes = guard.execute("index", () -> httpClient.get(url, NSE_HEADERS, responseParser::readIndex));
+            outcome = "success";
+        } catch (ExchangeUnavailableException e) {
+            outcome = "rejected";
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Error fetching NSE market data: " + e.getMessage(), e);
+        } finally {
+            sample.stop(meterRegistry.timer("exchange.fetch", "exchange", "nse", "operation", "index", "outcome", outcome));
+        }
+
+        // Store each stock's data; failures are logged and the index-level data is still returned
+        if (indexSnapshotIngestion) {
+            ingestIndexSnapshot(indexQuotes);
+        } else {
+            List<String> symbols = indexQuotes.stream()
+                    .filter(quote -> !quote.isIndexRow())
+                    .map(NseIndexQuote::symbol)
+                    .toList();
+            fetchQuotes(symbols);
+        }
+
+        return indexQuotes.stream()
+                .map(NseIndexQuote::toMap)
+                .toList();
+    }
+
+    /**
+     * Stores the index payload directly as one batch, so every constituent produces exactly one
+     * row per refresh. Detail-only fields (VWAP, price bands) are enrichment: rows carry the last
+     * fetched values, and symbols whose values are stale get their per-symbol quote fetched in
+     * the background to refresh them for the next snapshot. A failed detail fetch never costs a row.
+     */
+    private void ingestIndexSnapshot(List<NseIndexQuote> indexQuotes) {
+        long now = System.currentTimeMillis();
+        List<StockData> batch = new ArrayList<>(indexQuotes.size());
+        List<String> needDetail = new ArrayList<>();
+        for (NseIndexQuote quote : indexQuotes) {
+            if (quote.isIndexRow() || quote.symbol() == null || quote.symbol().isEmpty()) {
+                continue;
+            }
+            if (isDetailStale(quote.symbol(), now)) {
+                needDetail.add(quote.symbol());
+            }
+            batch.add(toStockData(quote));
+        }
+        stockDataWriter.submitAll(batch);
+        logger.info("Stored {} NSE index rows, {} with stale details", batch.size(), needDetail.size());
 
-        List<Map<String, Object>> allStocks = new ArrayList<>();
+        if (!needDetail.isEmpty()) {
+            refreshDetails(needDetail);
+        }
+    }
 
+    /**
+     * Starts the detail fan-out without waiting for it, since at the NSE rate limit it takes far
+     * longer than the snapshot itself. Only one refresh runs at a time: symbols skipped while one
+     * is running are still stale in the next snapshot and are refreshed then.
+     */
+    private void refreshDetails(List<String> symbols) {
+        if (!refreshingDetails.compareAndSet(false, true)) {
+            logger.debug("NSE detail refresh still running, skipped {} symbols", symbols.size());
+            return;
+        }
         try {
-            String response = httpClient.execute(request, response1 -> {
-                if (response1.getCode() != 200) {
-                    throw new IOException("Failed to fetch NSE market data: HTTP error code " + response1.getCode());
+            detailRefresher.execute(() -> {
+                try {
+                    int refreshed = fanOut(symbols, this::fetchDetail);
+                    logger.info("Refreshed {}/{} stale NSE details", refreshed, symbols.size());
+                } finally {
+                    refreshingDetails.set(false);
                 }
-                return new String(response1.getEntity().getContent().readAllBytes());
             });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            refreshingDetails.set(false);
+        }
+    }
 
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode stocks = root.path("data");
+    /**
+     * Fetches and stores the detailed quote for each symbol.
+     * Returns the number of symbols that were fetched successfully.
+     * The rate limit paces the whole fan-out: N symbols take about N / permits-per-second seconds.
+     */
+    public int fetchQuotes(List<String> symbols) {
+        return fanOut(symbols, this::fetchAndStore);
+    }
 
-            for (JsonNode stock : stocks) {
-                Map<String, Object> stockData = new HashMap<>();
-                stockData.put("symbol", stock.path("symbol").asText());
-                stockData.put("currentPrice", parseBigDecimal(stock.path("lastPrice").asText()));
-                stockData.put("change", parseBigDecimal(stock.path("change").asText()));
-                stockData.put("changePercent", parseBigDecimal(stock.path("pChange").asText()));
-                stockData.put("volume", stock.path("totalTradedVolume").asLong());
+    private int fanOut(List<String> symbols, QuoteFetch fetch) {
+        long start = System.nanoTime();
+        logger.info("Fetching {} NSE quotes, about {} s at {} requests/s", symbols.size(),
+                Math.round(symbols.size() / permitsPerSecond), permitsPerSecond);
+        AtomicInteger succeeded = new AtomicInteger();
 
-                // Store each stock's data
-                try {
-                    getStockQuote(stock.path("symbol").asText());
-                } catch (Exception e) {
-                    logger.error("Failed to fetch quote for symbol: {}", stock.path("symbol").asText(), e);
+        if (parallelFetch) {
+            Semaphore permits = new Semaphore(fetchConcurrency);
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (String symbol : symbols) {
+                    executor.submit(() -> {
+                        try {
+                            permits.acquire();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        try {
+                            fetchQuote(symbol, fetch, succeeded);
+                        } finally {
+                            permits.release();
+                        }
+                    });
                 }
-
-                allStocks.add(stockData);
             }
-        } catch (Exception e) {
-            throw new IOException("Error fetching NSE market data: " + e.getMessage(), e);
+        } else {
+            for (String symbol : symbols) {
+                fetchQuote(symbol, fetch, succeeded);
+            }
         }
 
-        return allStocks;
+        long elapsed = System.nanoTime() - start;
+        meterRegistry.timer("exchange.fanout", "exchange", "nse").record(elapsed, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("exchange.fanout.failures", "exchange", "nse").increment(symbols.size() - succeeded.get());
+        logger.info("Fetched {}/{} NSE quotes in {} ms", succeeded.get(), symbols.size(), elapsed / 1_000_000);
+        return succeeded.get();
     }
 
-    private BigDecimal parseBigDecimal(String value) {
+    private void fetchQuote(String symbol, QuoteFetch fetch, AtomicInteger succeeded) {
+        // Once NSE starts failing, stop fanning out instead of retrying every remaining symbol
+        if (guard.isOpen()) {
+            return;
+        }
         try {
-            return new BigDecimal(value.replace(",", ""));
+            fetch.fetch(symbol, fanoutAcquireTimeoutMs);
+            succeeded.incrementAndGet();
+        } catch (ExchangeUnavailableException e) {
+            logger.debug("Skipped quote for {}: {}", symbol, e.getMessage());
         } catch (Exception e) {
-            return BigDecimal.ZERO;
+            logger.error("Failed to fetch quote for symbol: {}", symbol, e);
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        detailRefresher.shutdownNow();
+    }
 }
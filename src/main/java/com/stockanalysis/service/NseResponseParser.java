@@ -0,0 +1,225 @@
+package com.stockanalysis.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.stockanalysis.model.NseIndexQuote;
+import com.stockanalysis.model.NseQuote;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.stockanalysis.service.JsonValues.readDecimal;
+import static com.stockanalysis.service.JsonValues.readLong;
+import static com.stockanalysis.service.JsonValues.readText;
+
+/**
+ * Streaming decoder for NSE API responses.
+ * Reads directly from the response stream, decodes only the fields the application uses
+ * and skips everything else without materializing it.
+ */
+public class NseResponseParser {
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    /** Decodes a {@code quote-equity} response. */
+    public NseQuote readQuote(InputStream in) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            QuoteFields fields = new QuoteFields();
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    switch (name) {
+                        case "info" -> readInfo(parser, fields);
+                        case "priceInfo" -> readPriceInfo(parser, fields);
+                        case "metadata" -> readMetadata(parser, fields);
+                        case "preOpenMarket" -> readPreOpenMarket(parser, fields);
+                        default -> parser.skipChildren();
+                    }
+                }
+            }
+            return fields.toQuote();
+        }
+    }
+
+    /** Decodes an {@code equity-stockIndices} response into one entry per constituent. */
+    public List<NseIndexQuote> readIndex(InputStream in) throws IOException {
+        List<NseIndexQuote> quotes = new ArrayList<>();
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return quotes;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "data".equals(name)) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        quotes.add(readIndexQuote(parser));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return quotes;
+    }
+
+    private NseIndexQuote readIndexQuote(JsonParser parser) throws IOException {
+        QuoteFields fields = new QuoteFields();
+        int priority = 0;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "symbol" -> fields.symbol = readText(parser);
+                case "priority" -> priority = (int) readLong(parser);
+                case "open" -> fields.open = readDecimal(parser);
+                case "dayHigh" -> fields.dayHigh = readDecimal(parser);
+                case "dayLow" -> fields.dayLow = readDecimal(parser);
+                case "lastPrice" -> fields.currentPrice = readDecimal(parser);
+                case "previousClose" -> fields.previousClose = readDecimal(parser);
+                case "change" -> fields.change = readDecimal(parser);
+                case "pChange" -> fields.changePercent = readDecimal(parser);
+                case "totalTradedVolume" -> fields.volume = readLong(parser);
+                case "yearHigh" -> fields.weekHigh = readDecimal(parser);
+                case "yearLow" -> fields.weekLow = readDecimal(parser);
+                case "lastUpdateTime" -> fields.lastUpdateTime = readText(parser);
+                case "meta" -> readInfo(parser, fields);
+                default -> parser.skipChildren();
+            }
+        }
+        return new NseIndexQuote(fields.symbol, fields.companyName, fields.industry, fields.currentPrice,
+                fields.open, fields.dayHigh, fields.dayLow, fields.previousClose, fields.change,
+                fields.changePercent, fields.volume, fields.weekHigh, fields.weekLow, fields.lastUpdateTime,
+                priority);
+    }
+
+    private void readInfo(JsonParser parser, QuoteFields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "symbol" -> fields.symbol = readText(parser);
+                case "companyName" -> fields.companyName = readText(parser);
+                case "industry" -> fields.industry = readText(parser);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private void readPriceInfo(JsonParser parser, QuoteFields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "lastPrice" -> fields.currentPrice = readDecimal(parser);
+                case "open" -> fields.open = readDecimal(parser);
+                case "previousClose" -> fields.previousClose = readDecimal(parser);
+                case "change" -> fields.change = readDecimal(parser);
+                case "pChange" -> fields.changePercent = readDecimal(parser);
+                case "vwap" -> fields.vwap = readDecimal(parser);
+                case "upperCP" -> fields.upperCircuit = readDecimal(parser);
+                case "lowerCP" -> fields.lowerCircuit = readDecimal(parser);
+                case "intraDayHighLow" -> {
+                    BigDecimal[] range = readMinMax(parser);
+                    fields.dayLow = range[0];
+                    fields.dayHigh = range[1];
+                }
+                case "weekHighLow" -> {
+                    BigDecimal[] range = readMinMax(parser);
+                    fields.weekLow = range[0];
+                    fields.weekHigh = range[1];
+                }
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    private BigDecimal[] readMinMax(JsonParser parser) throws IOException {
+        BigDecimal[] range = {BigDecimal.ZERO, BigDecimal.ZERO};
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return range;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "min" -> range[0] = readDecimal(parser);
+                case "max" -> range[1] = readDecimal(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return range;
+    }
+
+    private void readMetadata(JsonParser parser, QuoteFields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("lastUpdateTime".equals(name)) {
+                fields.lastUpdateTime = readText(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    private void readPreOpenMarket(JsonParser parser, QuoteFields fields) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("totalTradedVolume".equals(name)) {
+                fields.volume = readLong(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /** Mutable accumulator for the fields of one quote while it is being parsed. */
+    private static final class QuoteFields {
+        String symbol = "";
+        String companyName = "";
+        String industry = "";
+        BigDecimal currentPrice = BigDecimal.ZERO;
+        BigDecimal open = BigDecimal.ZERO;
+        BigDecimal dayHigh = BigDecimal.ZERO;
+        BigDecimal dayLow = BigDecimal.ZERO;
+        BigDecimal previousClose = BigDecimal.ZERO;
+        BigDecimal change = BigDecimal.ZERO;
+        BigDecimal changePercent = BigDecimal.ZERO;
+        long volume;
+        BigDecimal vwap = BigDecimal.ZERO;
+        BigDecimal weekHigh = BigDecimal.ZERO;
+        BigDecimal weekLow = BigDecimal.ZERO;
+        BigDecimal upperCircuit = BigDecimal.ZERO;
+        BigDecimal lowerCircuit = BigDecimal.ZERO;
+        String lastUpdateTime = "";
+
+        NseQuote toQuote() {
+            return new NseQuote(symbol, companyName, industry, currentPrice, open, dayHigh, dayLow,
+                    previousClose, change, changePercent, volume, vwap, weekHigh, weekLow,
+                    upperCircuit, lowerCircuit, lastUpdateTime);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.stockanalysis.service;
+
+import java.util.Arrays;
+
+/**
+ * Columnar, primitive-backed price history for one symbol.
+ * Values are kept in parallel arrays that grow up to {@code maxCapacity}; after that the
+ * buffer wraps around and the oldest entries are overwritten. Offsets passed to the
+ * accessors count backwards from the newest entry ({@code 0} is the latest).
+ * {@link #mark()} and {@link #rollback()} undo a single tentative append without copying the buffer.
+ */
+public class PriceSeries {
+    private final int maxCapacity;
+
+    private long[] timestamps;
+    private double[] closes;
+    private double[] highs;
+    private double[] lows;
+    private long[] volumes;
+
+    private int head;
+    private int size;
+    private long count;
+
+    private int markedHead = -1;
+    private int markedSize;
+    private long markedCount;
+    private long overwrittenTimestamp;
+    private double overwrittenClose;
+    private double overwrittenHigh;
+    private double overwrittenLow;
+    private long overwrittenVolume;
+
+    public PriceSeries(int initialCapacity, int maxCapacity) {
+        if (initialCapacity <= 0 || maxCapacity < initialCapacity) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity + "/" + maxCapacity);
+        }
+        this.maxCapacity = maxCapacity;
+        this.timestamps = new long[initialCapacity];
+        this.closes = new double[initialCapacity];
+        this.highs = new double[initialCapacity];
+        this.lows = new double[initialCapacity];
+        this.volumes = new long[initialCapacity];
+    }
+
+    /** Independent copy of {@code other}. */
+    public PriceSeries(PriceSeries other) {
+        this.maxCapacity = other.maxCapacity;
+        this.timestamps = other.timestamps.clone();
+        this.closes = other.closes.clone();
+        this.highs = other.highs.clone();
+        this.lows = other.lows.clone();
+        this.volumes = other.volumes.clone();
+        this.head = other.head;
+        this.size = other.size;
+        this.count = other.count;
+    }
+
+    public void append(long timestamp, double close, double high, double low, long volume) {
+        if (size == closes.length && size < maxCapacity) {
+            grow();
+        }
+        timestamps[head] = timestamp;
+        closes[head] = close;
+        highs[head] = high;
+        lows[head] = low;
+        volumes[head] = volume;
+
+        head = (head + 1) % closes.length;
+        if (size < closes.length) {
+            size++;
+        }
+        count++;
+    }
+
+    /**
+     * Remembers the current end of the series and the slot the next append will overwrite,
+     * so that append can be undone by {@link #rollback()}.
+     */
+    void mark() {
+        if (size == closes.length && size < maxCapacity) {
+            // Grown now rather than during the tentative append, so the mark stays valid
+            grow();
+        }
+        markedHead = head;
+        markedSize = size;
+        markedCount = count;
+        overwrittenTimestamp = timestamps[head];
+        overwrittenClose = closes[head];
+        overwrittenHigh = highs[head];
+        overwrittenLow = lows[head];
+        overwrittenVolume = volumes[head];
+    }
+
+    /** Undoes the single append made since {@link #mark()}, restoring the entry it overwrote. */
+    void rollback() {
+        if (markedHead < 0) {
+            throw new IllegalStateException("rollback without mark");
+        }
+        head = markedHead;
+        size = markedSize;
+        count = markedCount;
+        timestamps[head] = overwrittenTimestamp;
+        closes[head] = overwrittenClose;
+        highs[head] = overwrittenHigh;
+        lows[head] = overwrittenLow;
+        volumes[head] = overwrittenVolume;
+        markedHead = -1;
+    }
+
+    private void grow() {
+        // Only called while the buffer has not wrapped yet, so entries are stored in order from index 0
+        int newCapacity = Math.min(closes.length * 2, maxCapacity);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        closes = Arrays.copyOf(closes, newCapacity);
+        highs = Arrays.copyOf(highs, newCapacity);
+        lows = Arrays.copyOf(lows, newCapacity);
+        volumes = Arrays.copyOf(volumes, newCapacity);
+        head = size;
+    }
+
+    private int index(int ago) {
+        if (ago < 0 || ago >= size) {
+            throw new IndexOutOfBoundsException("Offset " + ago + " outside series of size " + size);
+        }
+        int index = head - 1 - ago;
+        return index < 0 ? index + closes.length : index;
+    }
+
+    /** Number of entries currently retained. */
+    public int size() {
+        return size;
+    }
+
+    /** Total number of entries ever appended, including overwritten ones. */
+    public long count() {
+        return count;
+    }
+
+    public long timestamp(int ago) {
+        return timestamps[index(ago)];
+    }
+
+    public double close(int ago) {
+        return closes[index(ago)];
+    }
+
+    public double high(int ago) {
+        return highs[index(ago)];
+    }
+
+    public double low(int ago) {
+        return lows[index(ago)];
+    }
+
+    public long volume(int ago) {
+        return volumes[index(ago)];
+    }
+}
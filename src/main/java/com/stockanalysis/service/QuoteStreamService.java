@@ -0,0 +1,196 @@
+package com.stockanalysis.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stockanalysis.model.StockData;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes quote snapshots to Server-Sent Events subscribers.
+ * Each snapshot is serialized once and handed to the subscribers of its symbol. Every
+ * subscriber has a conflating buffer holding at most one pending snapshot per symbol,
+ * so a slow client only ever receives the latest value and its buffer cannot grow past
+ * the number of symbols it follows. Sends happen on virtual threads; {@link #publish}
+ * never blocks the ingestion path.
+ */
+@Service
+public class QuoteStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(QuoteStreamService.class);
+
+    private final ObjectMapper objectMapper;
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final long emitterTimeoutMs;
+    private final int maxSubscribers;
+
+    private final Map<String, Set<Subscriber>> subscribersBySymbol = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public QuoteStreamService(ObjectMapper objectMapper,
+                              LatestSnapshotStore latestSnapshotStore,
+                              @Value("${stock.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+                              @Value("${stock.stream.max-subscribers:5000}") int maxSubscribers) {
+        this.objectMapper = objectMapper;
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.maxSubscribers = maxSubscribers;
+    }
+
+    /**
+     * Registers a subscriber for the given symbols and queues their current snapshots.
+     * Throws {@link IllegalStateException} when the subscriber limit has been reached.
+     */
+    public SseEmitter subscribe(Collection<String> symbols) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            throw new IllegalStateException("Too many quote stream subscribers");
+        }
+
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, Set.copyOf(symbols));
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+
+        for (String symbol : subscriber.symbols) {
+            subscribersBySymbol.computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet()).add(subscriber);
+            StockData latest = latestSnapshotStore.get(symbol);
+            if (latest != null) {
+                String payload = serialize(latest);
+                if (payload != null) {
+                    subscriber.offer(symbol, payload);
+                }
+            }
+        }
+        return emitter;
+    }
+
+    public void publish(StockData stockData) {
+        Set<Subscriber> subscribers = subscribersBySymbol.get(stockData.getSymbol());
+        if (subscribers == null || subscribers.isEmpty()) {
+            return;
+        }
+        String payload = serialize(stockData);
+        if (payload == null) {
+            return;
+        }
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(stockData.getSymbol(), payload);
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscriberCount.get();
+    }
+
+    /** Keeps idle connections open through proxies and detects clients that have gone away. */
+    @Scheduled(fixedDelayString = "${stock.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        subscribersBySymbol.values().stream()
+                .flatMap(Set::stream)
+                .distinct()
+                .forEach(subscriber -> executor.execute(subscriber::heartbeat));
+    }
+
+    private String serialize(StockData stockData) {
+        try {
+            return objectMapper.writeValueAsString(stockData);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize snapshot for {}", stockData.getSymbol(), e);
+            return null;
+        }
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        for (String symbol : subscriber.symbols) {
+            subscribersBySymbol.computeIfPresent(symbol, (s, subscribers) -> {
+                subscribers.remove(subscriber);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+        subscriberCount.decrementAndGet();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribersBySymbol.values().stream()
+                .flatMap(Set::stream)
+                .distinct()
+                .forEach(subscriber -> subscriber.emitter.complete());
+        executor.shutdownNow();
+    }
+
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> symbols;
+        private final Map<String, String> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Set<String> symbols) {
+            this.emitter = emitter;
+            this.symbols = symbols;
+        }
+
+        void offer(String symbol, String payload) {
+            // Replaces any snapshot the client has not received yet
+            pending.put(symbol, payload);
+            if (draining.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    for (String symbol : pending.keySet()) {
+                        String payload = pending.remove(symbol);
+                        if (payload != null && !closed.get()) {
+                            emitter.send(SseEmitter.event()
+                                    .name("quote")
+                                    .id(symbol)
+                                    .data(payload, MediaType.APPLICATION_JSON));
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    pending.clear();
+                    emitter.completeWithError(e);
+                    unsubscribe(this);
+                    return;
+                } finally {
+                    draining.set(false);
+                }
+                // A snapshot may have arrived after the last pass but before the flag was cleared
+            } while (!pending.isEmpty() && !closed.get() && draining.compareAndSet(false, true));
+        }
+
+        private void heartbeat() {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+                unsubscribe(this);
+            }
+        }
+    }
+}
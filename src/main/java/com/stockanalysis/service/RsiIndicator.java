@@ -0,0 +1,68 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** 14-period Relative Strength Index with Wilder smoothing. */
+public class RsiIndicator implements Indicator {
+    private static final int PERIOD = 14;
+    private static final List<Field> FIELDS = List.of(new Field("rsi", StockData::getRsi, StockData::setRsi));
+
+    @Override
+    public String name() {
+        return "rsi";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new RsiCalculator();
+    }
+
+    private static final class RsiCalculator implements Calculator {
+        private long samples;
+        private double avgGain;
+        private double avgLoss;
+
+        @Override
+        public void update(IndicatorContext context) {
+            if (context.count() < 2) {
+                return;
+            }
+            double change = context.close() - context.previousClose();
+            double gain = Math.max(change, 0);
+            double loss = Math.max(-change, 0);
+            samples++;
+
+            if (samples <= PERIOD) {
+                avgGain += gain / PERIOD;
+                avgLoss += loss / PERIOD;
+            } else {
+                avgGain = (avgGain * (PERIOD - 1) + gain) / PERIOD;
+                avgLoss = (avgLoss * (PERIOD - 1) + loss) / PERIOD;
+            }
+        }
+
+        @Override
+        public double value(int field) {
+            if (samples < PERIOD) {
+                return Double.NaN;
+            }
+            return avgLoss == 0 ? (avgGain == 0 ? 50 : 100) : 100 - (100 / (1 + avgGain / avgLoss));
+        }
+
+        @Override
+        public Calculator copy() {
+            RsiCalculator copy = new RsiCalculator();
+            copy.samples = samples;
+            copy.avgGain = avgGain;
+            copy.avgLoss = avgLoss;
+            return copy;
+        }
+    }
+}
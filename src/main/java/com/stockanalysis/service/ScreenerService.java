@@ -0,0 +1,336 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.ScreenField;
+import com.stockanalysis.model.ScreenRequest;
+import com.stockanalysis.model.ScreenResult;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.model.StockSnapshotView;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Evaluates composable screens over a columnar copy of the latest snapshot per symbol.
+ * Each {@link ScreenField} is held as a primitive {@code double[]} (NaN for missing values)
+ * with a fixed slot per symbol, which is rewritten whenever {@link LatestSnapshotStore}
+ * updates that symbol, so quotes never force a rebuild of the other symbols. Conditions
+ * are applied one column at a time to a shared match mask in branch-free loops that the JIT
+ * can auto-vectorise, so a screen over thousands of symbols never touches the database.
+ */
+@Service
+public class ScreenerService {
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private final Timer screenTimer;
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    private final ColumnarSnapshot snapshot = new ColumnarSnapshot();
+
+    public ScreenerService(LatestSnapshotStore latestSnapshotStore,
+                           MeterRegistry meterRegistry,
+                           @Value("${stock.screen.default-limit:100}") int defaultLimit,
+                           @Value("${stock.screen.max-limit:1000}") int maxLimit) {
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.screenTimer = Timer.builder("stock.screen")
+                .description("Composable screens over the columnar latest snapshot")
+                .register(meterRegistry);
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        latestSnapshotStore.addListener(this::refresh);
+        latestSnapshotStore.getSymbols().forEach(this::refresh);
+    }
+
+    private void refresh(String symbol) {
+        StockData latest = latestSnapshotStore.get(symbol);
+        if (latest != null) {
+            snapshot.put(symbol, latest);
+        }
+    }
+
+    public ScreenResult screen(ScreenRequest request) {
+        List<Condition> conditions = compile(request);
+        ScreenField sortBy = request.sortBy() != null ? ScreenField.fromCode(request.sortBy()) : null;
+        boolean descending = request.descending() == null || request.descending();
+        int limit = request.limit() != null ? request.limit() : defaultLimit;
+        if (limit <= 0 || limit > maxLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxLimit);
+        }
+
+        long start = System.nanoTime();
+        snapshot.lock.readLock().lock();
+        try {
+            int size = snapshot.size;
+            boolean[] mask = new boolean[size];
+            Arrays.fill(mask, true);
+            for (Condition condition : conditions) {
+                condition.apply(snapshot, mask);
+            }
+
+            int matched = 0;
+            int[] matches = new int[size];
+            for (int i = 0; i < size; i++) {
+                if (mask[i]) {
+                    matches[matched++] = i;
+                }
+            }
+            int[] selected = select(snapshot, Arrays.copyOf(matches, matched), sortBy, descending, limit);
+            long elapsed = System.nanoTime() - start;
+            screenTimer.record(elapsed, TimeUnit.NANOSECONDS);
+
+            List<StockSnapshotView> results = new ArrayList<>(selected.length);
+            for (int index : selected) {
+                results.add(projectionFactory.createProjection(StockSnapshotView.class, snapshot.rows[index]));
+            }
+            return new ScreenResult(size, matched, elapsed / 1_000, results);
+        } finally {
+            snapshot.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first {@code limit} matches in sort order, kept in a bounded heap of row indices whose
+     * root is the worst match kept so far: O(n log limit) without boxing.
+     */
+    private static int[] select(ColumnarSnapshot columns, int[] matches, ScreenField sortBy,
+                                boolean descending, int limit) {
+        if (sortBy == null) {
+            return matches.length > limit ? Arrays.copyOf(matches, limit) : matches;
+        }
+        double[] keys = columns.column(sortBy);
+        int k = Math.min(limit, matches.length);
+        int[] heap = new int[k];
+        int heapSize = 0;
+        for (int index : matches) {
+            if (heapSize < k) {
+                heap[heapSize] = index;
+                siftUp(heap, heapSize++, keys, descending);
+            } else if (precedes(keys, index, heap[0], descending)) {
+                heap[0] = index;
+                siftDown(heap, 0, k, keys, descending);
+            }
+        }
+        // Moving the worst entry to the end each time leaves the best first
+        for (int end = k - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, 0, end, keys, descending);
+        }
+        return heap;
+    }
+
+    /** Sort order of rows {@code a} and {@code b}: missing values last in either direction, ties by row. */
+    private static boolean precedes(double[] keys, int a, int b, boolean descending) {
+        double x = keys[a];
+        double y = keys[b];
+        if (Double.isNaN(x) || Double.isNaN(y)) {
+            return Double.isNaN(x) == Double.isNaN(y) ? a < b : Double.isNaN(y);
+        }
+        int order = descending ? Double.compare(y, x) : Double.compare(x, y);
+        return order != 0 ? order < 0 : a < b;
+    }
+
+    private static void siftUp(int[] heap, int i, double[] keys, boolean descending) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!precedes(keys, heap[parent], heap[i], descending)) {
+                return;
+            }
+            int swap = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int i, int size, double[] keys, boolean descending) {
+        while (true) {
+            int worst = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && precedes(keys, heap[worst], heap[left], descending)) {
+                worst = left;
+            }
+            if (right < size && precedes(keys, heap[worst], heap[right], descending)) {
+                worst = right;
+            }
+            if (worst == i) {
+                return;
+            }
+            int swap = heap[worst];
+            heap[worst] = heap[i];
+            heap[i] = swap;
+            i = worst;
+        }
+    }
+
+    private static List<Condition> compile(ScreenRequest request) {
+        if (request.conditions() == null || request.conditions().isEmpty()) {
+            throw new IllegalArgumentException("At least one condition is required");
+        }
+        List<Condition> conditions = new ArrayList<>(request.conditions().size());
+        for (ScreenRequest.Condition condition : request.conditions()) {
+            if ((condition.value() == null) == (condition.other() == null)) {
+                throw new IllegalArgumentException("Condition on " + condition.field()
+                        + " needs exactly one of value or other");
+            }
+            conditions.add(new Condition(ScreenField.fromCode(condition.field()),
+                    Operator.fromCode(condition.op()),
+                    condition.value() != null ? condition.value() : Double.NaN,
+                    condition.other() != null ? ScreenField.fromCode(condition.other()) : null));
+        }
+        return conditions;
+    }
+
+    private enum Operator {
+        LT("<", "lt"),
+        LTE("<=", "lte"),
+        GT(">", "gt"),
+        GTE(">=", "gte");
+
+        private final String symbol;
+        private final String code;
+
+        Operator(String symbol, String code) {
+            this.symbol = symbol;
+            this.code = code;
+        }
+
+        static Operator fromCode(String code) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(code) || operator.code.equalsIgnoreCase(code)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("Unknown screen operator: " + code);
+        }
+    }
+
+    /**
+     * One compiled condition. Comparisons with NaN are always false, which mirrors the SQL
+     * semantics of the fixed screeners: a missing value never matches.
+     */
+    private record Condition(ScreenField field, Operator operator, double value, ScreenField other) {
+
+        void apply(ColumnarSnapshot columns, boolean[] mask) {
+            double[] left = columns.column(field);
+            if (other != null) {
+                applyColumn(left, columns.column(other), mask);
+            } else {
+                applyConstant(left, mask);
+            }
+        }
+
+        private void applyConstant(double[] left, boolean[] mask) {
+            double v = value;
+            int n = mask.length;
+            switch (operator) {
+                case LT -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] < v;
+                    }
+                }
+                case LTE -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] <= v;
+                    }
+                }
+                case GT -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] > v;
+                    }
+                }
+                case GTE -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] >= v;
+                    }
+                }
+            }
+        }
+
+        private void applyColumn(double[] left, double[] right, boolean[] mask) {
+            int n = mask.length;
+            switch (operator) {
+                case LT -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] < right[i];
+                    }
+                }
+                case LTE -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] <= right[i];
+                    }
+                }
+                case GT -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] > right[i];
+                    }
+                }
+                case GTE -> {
+                    for (int i = 0; i < n; i++) {
+                        mask[i] &= left[i] >= right[i];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Column-per-field copy of the latest snapshots. Each symbol keeps the slot it was first
+     * given; updates rewrite that slot under the write lock while screens hold the read lock.
+     */
+    private static final class ColumnarSnapshot {
+        private static final ScreenField[] FIELDS = ScreenField.values();
+        private static final int INITIAL_CAPACITY = 256;
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final double[][] columns = new double[FIELDS.length][INITIAL_CAPACITY];
+        private StockData[] rows = new StockData[INITIAL_CAPACITY];
+        private int size;
+
+        void put(String symbol, StockData latest) {
+            lock.writeLock().lock();
+            try {
+                Integer slot = slots.get(symbol);
+                if (slot == null) {
+                    if (size == rows.length) {
+                        grow();
+                    }
+                    slot = size++;
+                    slots.put(symbol, slot);
+                }
+                rows[slot] = latest;
+                for (ScreenField field : FIELDS) {
+                    columns[field.ordinal()][slot] = field.valueOf(latest);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void grow() {
+            int capacity = rows.length * 2;
+            rows = Arrays.copyOf(rows, capacity);
+            for (int f = 0; f < columns.length; f++) {
+                columns[f] = Arrays.copyOf(columns[f], capacity);
+            }
+        }
+
+        double[] column(ScreenField field) {
+            return columns[field.ordinal()];
+        }
+    }
+}
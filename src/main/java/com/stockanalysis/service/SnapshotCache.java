@@ -0,0 +1,184 @@
+package com.stockanalysis.service;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded, concurrent cache of the latest snapshot per symbol.
+ * Entries expire after a fixed TTL. Concurrent misses for the same symbol share a single
+ * load, so an upstream is called at most once per symbol at a time. When the cache grows
+ * past its maximum size, expired entries are dropped first and then the oldest ones.
+ */
+public class SnapshotCache<V> {
+    private final long ttlNanos;
+    private final int maxSize;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    public SnapshotCache(long ttlMs, int maxSize) {
+        this(ttlMs, maxSize, System::nanoTime);
+    }
+
+    /** Ages entries by {@code nanoClock}, so expiry and eviction order can be tested without sleeping. */
+    SnapshotCache(long ttlMs, int maxSize, LongSupplier nanoClock) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.maxSize = maxSize;
+        this.nanoClock = nanoClock;
+    }
+
+    public V get(String key, Function<String, V> loader) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && !entry.isExpired(nanoClock.getAsLong(), ttlNanos)) {
+            hits.increment();
+            return entry.value();
+        }
+        misses.increment();
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        long start = nanoClock.getAsLong();
+        try {
+            // Another load may have completed between the first lookup and claiming the slot
+            Entry<V> loaded = entries.get(key);
+            if (loaded != null && !loaded.isExpired(start, ttlNanos)) {
+                load.complete(loaded.value());
+                return loaded.value();
+            }
+
+            V value = loader.apply(key);
+            loads.increment();
+            put(key, value);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            totalLoadNanos.add(nanoClock.getAsLong() - start);
+            inFlight.remove(key, load);
+        }
+    }
+
+    private V await(CompletableFuture<V> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void put(String key, V value) {
+        if (value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, nanoClock.getAsLong()));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public V getIfPresent(String key) {
+        Entry<V> entry = entries.get(key);
+        return entry != null && !entry.isExpired(nanoClock.getAsLong(), ttlNanos) ? entry.value() : null;
+    }
+
+    public void invalidate(String key) {
+        entries.remove(key);
+    }
+
+    private synchronized void evict() {
+        long now = nanoClock.getAsLong();
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().isExpired(now, ttlNanos);
+            if (expired) {
+                evictions.increment();
+            }
+            return expired;
+        });
+
+        int excess = entries.size() - maxSize;
+        if (excess <= 0) {
+            return;
+        }
+        // Evict a little more than needed so a full cache does not rescan on every put
+        int toEvict = excess + maxSize / 10;
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().loadedAt()))
+                .limit(toEvict)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(key -> {
+                    entries.remove(key);
+                    evictions.increment();
+                });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public double hitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long loadCount = loads.sum() + loadFailures.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", entries.size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitRatio());
+        stats.put("loads", loads.sum());
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("averageLoadMillis", loadCount == 0 ? 0.0 : totalLoadNanos.sum() / 1_000_000.0 / loadCount);
+        return stats;
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+        boolean isExpired(long now, long ttlNanos) {
+            return now - loadedAt > ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+
+import java.util.List;
+
+/** 14-period Stochastic Oscillator %K with its 3-period %D. */
+public class StochasticIndicator implements Indicator {
+    private static final int PERIOD = 14;
+    private static final int D_PERIOD = 3;
+    private static final List<Field> FIELDS = List.of(
+            new Field("stochasticK", StockData::getStochasticK, StockData::setStochasticK),
+            new Field("stochasticD", StockData::getStochasticD, StockData::setStochasticD));
+
+    @Override
+    public String name() {
+        return "stochastic";
+    }
+
+    @Override
+    public List<Field> fields() {
+        return FIELDS;
+    }
+
+    @Override
+    public Calculator newCalculator() {
+        return new StochasticCalculator();
+    }
+
+    private static final class StochasticCalculator implements Calculator {
+        private final MonotonicWindow highestHigh;
+        private final MonotonicWindow lowestLow;
+        private final double[] ks;
+        private int kCount;
+        private double sumK;
+        private double k = Double.NaN;
+
+        StochasticCalculator() {
+            highestHigh = new MonotonicWindow(PERIOD, true);
+            lowestLow = new MonotonicWindow(PERIOD, false);
+            ks = new double[D_PERIOD];
+        }
+
+        private StochasticCalculator(StochasticCalculator other) {
+            highestHigh = new MonotonicWindow(other.highestHigh);
+            lowestLow = new MonotonicWindow(other.lowestLow);
+            ks = other.ks.clone();
+            kCount = other.kCount;
+            sumK = other.sumK;
+            k = other.k;
+        }
+
+        @Override
+        public void update(IndicatorContext context) {
+            long sequence = context.count() - 1;
+            highestHigh.push(sequence, context.high());
+            lowestLow.push(sequence, context.low());
+
+            if (context.count() < PERIOD) {
+                return;
+            }
+            double range = highestHigh.value() - lowestLow.value();
+            k = range > 0 ? (context.close() - lowestLow.value()) * 100 / range : Double.NaN;
+
+            if (!Double.isNaN(k)) {
+                int slot = kCount % D_PERIOD;
+                if (kCount >= D_PERIOD) {
+                    sumK -= ks[slot];
+                }
+                ks[slot] = k;
+                sumK += k;
+                kCount++;
+            }
+        }
+
+        @Override
+        public double value(int field) {
+            if (field == 0) {
+                return k;
+            }
+            return !Double.isNaN(k) && kCount >= D_PERIOD ? sumK / D_PERIOD : Double.NaN;
+        }
+
+        @Override
+        public Calculator copy() {
+            return new StochasticCalculator(this);
+        }
+    }
+}
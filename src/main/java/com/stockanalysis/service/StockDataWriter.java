@@ -0,0 +1,229 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataBatchInserter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for quote snapshots.
+ * Snapshots are queued by the request path and written by a background thread as one JDBC
+ * batch through {@link StockDataBatchInserter}, so a whole batch costs one round trip and one
+ * commit. A batch is flushed when it reaches {@code batchSize} or when {@code flushIntervalMs}
+ * has passed since its first entry, whichever comes first. Only the drainer writes and
+ * archives, so each symbol's rows reach the tick archive in the order they were submitted.
+ * <p>
+ * If a batch fails it is retried row by row. Rows that fail for good (constraint violations,
+ * bad values) are dropped and counted; when the database itself is unavailable the remaining
+ * rows are kept and retried after {@code flushIntervalMs}, while new snapshots wait in the queue.
+ */
+@Service
+public class StockDataWriter {
+    private static final Logger logger = LoggerFactory.getLogger(StockDataWriter.class);
+    // How long an idle drainer waits for the first snapshot before checking for shutdown
+    private static final long IDLE_POLL_MS = 100;
+
+    private final StockDataBatchInserter batchInserter;
+    private final LatestSnapshotStore latestSnapshotStore;
+    private final QuoteStreamService quoteStreamService;
+    private final TickArchive tickArchive;
+    private final MeterRegistry meterRegistry;
+    private final Timer batchPersistTimer;
+    private final DistributionSummary batchSizeSummary;
+    private final BlockingQueue<StockData> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final long offerTimeoutMs;
+    private final Thread drainer;
+    private volatile boolean running = true;
+
+    public StockDataWriter(StockDataBatchInserter batchInserter,
+                           LatestSnapshotStore latestSnapshotStore,
+                           QuoteStreamService quoteStreamService,
+                           TickArchive tickArchive,
+                           MeterRegistry meterRegistry,
+                           @Value("${stock.writer.queue-capacity:10000}") int queueCapacity,
+                           @Value("${stock.writer.batch-size:50}") int batchSize,
+                           @Value("${stock.writer.flush-interval-ms:500}") long flushIntervalMs,
+                           @Value("${stock.writer.offer-timeout-ms:1000}") long offerTimeoutMs) {
+        this.batchInserter = batchInserter;
+        this.latestSnapshotStore = latestSnapshotStore;
+        this.quoteStreamService = quoteStreamService;
+        this.tickArchive = tickArchive;
+        this.meterRegistry = meterRegistry;
+        this.batchPersistTimer = meterRegistry.timer("stock.persist", "mode", "batch");
+        this.batchSizeSummary = meterRegistry.summary("stock.persist.batch.size");
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.drainer = new Thread(this::drain, "stock-data-writer");
+        Gauge.builder("stock.writer.queue.size", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        drainer.start();
+    }
+
+    /**
+     * Queues a snapshot for persistence. When the queue is full the caller waits for room,
+     * which throttles producers to the speed of the database; a warning is logged every
+     * {@code offerTimeoutMs} it keeps waiting. A snapshot submitted after shutdown, or whose
+     * caller is interrupted while waiting, is dropped and counted.
+     * The latest-snapshot store and stream subscribers are updated immediately, before
+     * the row is written.
+     */
+    public void submit(StockData stockData) {
+        latestSnapshotStore.update(stockData);
+        quoteStreamService.publish(stockData);
+        try {
+            while (running) {
+                if (queue.offer(stockData, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                meterRegistry.counter("stock.writer.backpressure").increment();
+                logger.warn("Write-behind queue full, still waiting to queue {}", stockData.getSymbol());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        meterRegistry.counter("stock.persist.dropped").increment();
+        logger.warn("Write-behind queue unavailable, dropping snapshot for {}", stockData.getSymbol());
+    }
+
+    public void submitAll(Collection<StockData> stockData) {
+        for (StockData data : stockData) {
+            submit(data);
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<StockData> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    StockData first = queue.poll(IDLE_POLL_MS, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                } else {
+                    // Rows kept from a failed write: give the database a moment before retrying
+                    Thread.sleep(flushIntervalMs);
+                }
+                fillBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested: persist whatever is left before exiting
+                running = false;
+                queue.drainTo(batch);
+            }
+            flush(batch);
+        }
+    }
+
+    private void fillBatch(List<StockData> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            StockData next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /** Writes the batch; rows that should be retried are left in it. */
+    private void flush(List<StockData> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            batchPersistTimer.record(() -> batchInserter.insertAll(batch));
+        } catch (Exception e) {
+            meterRegistry.counter("stock.persist.batch.failures").increment();
+            logger.warn("Failed to persist batch of {} stock snapshots, retrying row by row", batch.size(), e);
+            saveIndividually(batch);
+            return;
+        }
+        batchSizeSummary.record(batch.size());
+        archive(batch);
+        batch.clear();
+    }
+
+    private void saveIndividually(List<StockData> batch) {
+        List<StockData> saved = new ArrayList<>(batch.size());
+        Iterator<StockData> iterator = batch.iterator();
+        while (iterator.hasNext()) {
+            StockData stockData = iterator.next();
+            // Ids assigned inside the rolled-back batch were never committed
+            stockData.setId(null);
+            try {
+                batchInserter.insertAll(List.of(stockData));
+                saved.add(stockData);
+            } catch (Exception e) {
+                if (running && !isPermanent(e)) {
+                    // The database is unavailable: keep this row and the rest for the next attempt
+                    logger.warn("Keeping {} stock snapshots for retry: {}", batch.size(), e.getMessage());
+                    break;
+                }
+                meterRegistry.counter("stock.persist.failures").increment();
+                logger.error("Dropping stock snapshot for {}", stockData.getSymbol(), e);
+            }
+            iterator.remove();
+        }
+        archive(saved);
+    }
+
+    private void archive(List<StockData> saved) {
+        try {
+            tickArchive.append(saved);
+        } catch (RuntimeException e) {
+            // The rows are already committed; a broken archive must not stop the drainer
+            logger.error("Failed to archive {} stock snapshots", saved.size(), e);
+        }
+    }
+
+    private static boolean isPermanent(Exception e) {
+        // Lost connections surface as resource failures or transaction exceptions and are worth retrying
+        return e instanceof NonTransientDataAccessException && !(e instanceof DataAccessResourceFailureException);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        drainer.join(TimeUnit.SECONDS.toMillis(30));
+        if (drainer.isAlive()) {
+            drainer.interrupt();
+            drainer.join();
+        }
+        logger.info("Stock data writer stopped");
+    }
+}
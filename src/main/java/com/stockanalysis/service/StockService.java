@@ -1,55 +1,175 @@
 package com.stockanalysis.service;
 
+import com.stockanalysis.model.ArchivedHistory;
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.HistoryPage;
+import com.stockanalysis.model.QuoteSource;
+import com.stockanalysis.model.StockBar;
 import com.stockanalysis.model.StockData;
+import com.stockanalysis.model.StockSnapshotView;
+import com.stockanalysis.repository.StockBarRepository;
 import com.stockanalysis.repository.StockDataRepository;
 import yahoofinance.YahooFinance;
 import yahoofinance.Stock;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
-import java.util.Comparator;
-import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @Service
 public class StockService {
+    private static final Logger logger = LoggerFactory.getLogger(StockService.class);
+    private static final int WARMUP_PERIODS = 250;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    private final Map<String, BarIndicatorState> indicatorStates = new ConcurrentHashMap<>();
 
     @Autowired
     private StockDataRepository stockDataRepository;
 
+    @Autowired
+    private StockBarRepository stockBarRepository;
+
+    @Autowired
+    private StockDataWriter stockDataWriter;
+
+    @Autowired
+    private TickArchive tickArchive;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${stock.cache.ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    @Value("${stock.cache.max-size:1000}")
+    private int cacheMaxSize;
+
+    @Value("${stock.batch.chunk-size:100}")
+    private int batchChunkSize;
+
+    @Value("${yahoo.rate-limit.permits-per-second:5}")
+    private double yahooPermitsPerSecond;
+
+    @Value("${yahoo.rate-limit.burst:5}")
+    private int yahooBurst;
+
+    @Value("${yahoo.rate-limit.acquire-timeout-ms:2000}")
+    private long yahooAcquireTimeoutMs;
+
+    @Value("${yahoo.circuit.failure-threshold:5}")
+    private int yahooFailureThreshold;
+
+    @Value("${yahoo.circuit.open-duration-ms:30000}")
+    private long yahooOpenDurationMs;
+
+    @Value("${stock.indicators.warmup-concurrency:4}")
+    private int warmupConcurrency;
+
+    private Semaphore warmupLoads;
+
+    // One limiter and breaker for every Yahoo call: user requests and the ingestion scheduler
+    private ExchangeGuard yahooGuard;
+
+    @Autowired
+    private LatestSnapshotStore latestSnapshotStore;
+
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+
+    @Value("${stock.indicators.resolution:1d}")
+    private String indicatorResolutionCode;
+
+    private SnapshotCache<StockData> quoteCache;
+
+    // Null means every raw quote is one indicator period
+    private BarResolution indicatorResolution;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private IndicatorRegistry indicatorRegistry;
+
+    @PostConstruct
+    void initCaches() {
+        quoteCache = new SnapshotCache<>(cacheTtlMs, cacheMaxSize);
+        warmupLoads = new Semaphore(Math.max(1, warmupConcurrency));
+        yahooGuard = new ExchangeGuard("yahoo", new TokenBucket(yahooPermitsPerSecond, yahooBurst),
+                new CircuitBreaker(yahooFailureThreshold, yahooOpenDurationMs), yahooAcquireTimeoutMs, meterRegistry);
+        indicatorResolution = "tick".equalsIgnoreCase(indicatorResolutionCode)
+                ? null
+                : BarResolution.fromCode(indicatorResolutionCode);
+
+        FunctionCounter.builder("stock.cache.hits", quoteCache, SnapshotCache::hitCount)
+                .tag("cache", "quotes").register(meterRegistry);
+        FunctionCounter.builder("stock.cache.misses", quoteCache, SnapshotCache::missCount)
+                .tag("cache", "quotes").register(meterRegistry);
+        FunctionCounter.builder("stock.cache.evictions", quoteCache, SnapshotCache::evictionCount)
+                .tag("cache", "quotes").register(meterRegistry);
+        Gauge.builder("stock.cache.size", quoteCache, SnapshotCache::size)
+                .tag("cache", "quotes").register(meterRegistry);
+        Gauge.builder("stock.cache.hit.ratio", quoteCache, SnapshotCache::hitRatio)
+                .tag("cache", "quotes").register(meterRegistry);
+        Gauge.builder("stock.latest.symbols", latestSnapshotStore, store -> store.getSymbols().size())
+                .register(meterRegistry);
+    }
+
     public StockData getStockData(String symbol) {
+        return quoteCache.get(symbol, this::fetchStockData);
+    }
+
+    /** Fetches a fresh quote regardless of the cache, then caches it. */
+    public StockData refreshStockData(String symbol) {
+        StockData stockData = fetchStockData(symbol);
+        quoteCache.put(symbol, stockData);
+        return stockData;
+    }
+
+    private StockData fetchStockData(String symbol) {
         try {
-            Stock stock = YahooFinance.get(symbol);
-            StockData stockData = new StockData();
-
-            stockData.setSymbol(symbol);
-            stockData.setCurrentPrice(stock.getQuote().getPrice());
-            stockData.setChange(stock.getQuote().getChange());
-            stockData.setChangePercent(stock.getQuote().getChangeInPercent());
-            stockData.setDayHigh(stock.getQuote().getDayHigh());
-            stockData.setDayLow(stock.getQuote().getDayLow());
-            stockData.setVolume(stock.getQuote().getVolume());
-            stockData.setOpen(stock.getQuote().getOpen());
-            stockData.setPreviousClose(stock.getQuote().getPreviousClose());
-            stockData.setMarketCap(stock.getStats().getMarketCap());
-            stockData.setLastUpdateTime(LocalDateTime.now());
-
-            // Also set the high and low values
-            stockData.setHigh(stock.getQuote().getDayHigh());
-            stockData.setLow(stock.getQuote().getDayLow());
+            Stock stock = fetchUpstream("single", "quote:" + symbol, () -> YahooFinance.get(symbol));
+            StockData stockData = toStockData(symbol, stock);
 
             // Calculate technical indicators
-            List<StockData> historicalData = getStockHistory(symbol);
-            calculateTechnicalIndicators(stockData, historicalData);
+            calculateTechnicalIndicators(stockData);
 
-            // Save to database
-            stockDataRepository.save(stockData);
+            // Queue for batched persistence
+            stockDataWriter.submit(stockData);
 
             return stockData;
         } catch (IOException e) {
@@ -57,298 +177,312 @@ public class StockService {
         }
     }
 
-    private void calculateTechnicalIndicators(StockData currentData, List<StockData> historicalData) {
-        if (historicalData != null && !historicalData.isEmpty()) {
-            // Calculate existing indicators
-            calculateMovingAverages(currentData, historicalData);
-            calculateRSI(currentData, historicalData);
-            calculateMACD(currentData, historicalData);
-
-            // Calculate new indicators
-            calculateBollingerBands(currentData, historicalData);
-            calculateStochasticOscillator(currentData, historicalData);
-            calculateATR(currentData, historicalData);
-            calculateMFI(currentData, historicalData);
+    /**
+     * Returns the latest snapshot for each symbol, keyed by symbol in request order.
+     * Cached symbols are served from the quote cache; the rest are fetched upstream in
+     * chunks of {@code batchChunkSize}, their indicators are computed in parallel and the
+     * snapshots are handed to the writer together. Symbols Yahoo does not know are omitted.
+     */
+    public Map<String, StockData> getStockData(List<String> symbols) {
+        Map<String, StockData> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String symbol : new LinkedHashSet<>(symbols)) {
+            StockData cached = quoteCache.getIfPresent(symbol);
+            if (cached != null) {
+                result.put(symbol, cached);
+            } else {
+                missing.add(symbol);
+            }
         }
-    }
-
-    private void calculateMovingAverages(StockData currentData, List<StockData> historicalData) {
-        // Existing MA calculations remain the same
-        if (historicalData.size() >= 20) {
-            BigDecimal ma20 = historicalData.stream()
-                    .limit(20)
-                    .map(StockData::getCurrentPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .divide(BigDecimal.valueOf(20), 2, RoundingMode.HALF_UP);
-            currentData.setMa20(ma20);
+        if (missing.isEmpty()) {
+            return result;
         }
 
-        if (historicalData.size() >= 50) {
-            BigDecimal ma50 = historicalData.stream()
-                    .limit(50)
-                    .map(StockData::getCurrentPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .divide(BigDecimal.valueOf(50), 2, RoundingMode.HALF_UP);
-            currentData.setMa50(ma50);
+        List<StockData> fetched = new ArrayList<>(missing.size());
+        for (int from = 0; from < missing.size(); from += batchChunkSize) {
+            List<String> chunk = missing.subList(from, Math.min(from + batchChunkSize, missing.size()));
+            Map<String, Stock> stocks;
+            try {
+                stocks = fetchUpstream("batch", "batch:" + String.join(",", chunk),
+                        () -> YahooFinance.get(chunk.toArray(new String[0])));
+            } catch (IOException e) {
+                throw new RuntimeException("Error fetching stock data for " + chunk, e);
+            }
+            for (String symbol : chunk) {
+                Stock stock = stocks.get(symbol);
+                if (stock == null) {
+                    stock = stocks.get(symbol.toUpperCase());
+                }
+                if (stock != null && stock.getQuote() != null) {
+                    fetched.add(toStockData(symbol, stock));
+                }
+            }
         }
-    }
 
-    private void calculateBollingerBands(StockData currentData, List<StockData> historicalData) {
-        if (historicalData.size() >= 20) {
-            // Calculate 20-day SMA
-            BigDecimal sma = historicalData.stream()
-                    .limit(20)
-                    .map(StockData::getCurrentPrice)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .divide(BigDecimal.valueOf(20), 2, RoundingMode.HALF_UP);
-
-            // Calculate Standard Deviation
-            double sumSquaredDiff = historicalData.stream()
-                    .limit(20)
-                    .mapToDouble(data ->
-                            Math.pow(data.getCurrentPrice().subtract(sma).doubleValue(), 2))
-                    .sum();
-            double standardDeviation = Math.sqrt(sumSquaredDiff / 20);
-
-            // Calculate Bollinger Bands
-            currentData.setBollingerMiddle(sma);
-            currentData.setBollingerUpper(sma.add(BigDecimal.valueOf(standardDeviation * 2)));
-            currentData.setBollingerLower(sma.subtract(BigDecimal.valueOf(standardDeviation * 2)));
+        // Each symbol has its own indicator state, so symbols can be advanced independently
+        List<Future<?>> updates = new ArrayList<>(fetched.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (StockData stockData : fetched) {
+                updates.add(executor.submit(() -> calculateTechnicalIndicators(stockData)));
+            }
         }
-    }
-
-    private void calculateStochasticOscillator(StockData currentData, List<StockData> historicalData) {
-        if (historicalData.size() >= 14) {
-            List<StockData> period = historicalData.subList(0, 14);
-
-            BigDecimal lowestLow = period.stream()
-                    .map(StockData::getLow)
-                    .min(Comparator.naturalOrder())
-                    .orElse(BigDecimal.ZERO);
-
-            BigDecimal highestHigh = period.stream()
-                    .map(StockData::getHigh)
-                    .max(Comparator.naturalOrder())
-                    .orElse(BigDecimal.ZERO);
-
-            // Calculate %K
-            BigDecimal currentPrice = currentData.getCurrentPrice();
-            BigDecimal range = highestHigh.subtract(lowestLow);
-            if (range.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal k = currentPrice.subtract(lowestLow)
-                        .multiply(BigDecimal.valueOf(100))
-                        .divide(range, 2, RoundingMode.HALF_UP);
-                currentData.setStochasticK(k);
-
-                // Calculate %D (3-day SMA of %K)
-                if (historicalData.size() >= 3) {
-                    BigDecimal d = historicalData.stream()
-                            .limit(3)
-                            .map(StockData::getStochasticK)
-                            .filter(Objects::nonNull)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add)
-                            .divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP);
-                    currentData.setStochasticD(d);
-                }
+        for (int i = 0; i < updates.size(); i++) {
+            try {
+                updates.get(i).get();
+            } catch (ExecutionException e) {
+                // The quote is still returned and stored, just without fresh indicators
+                meterRegistry.counter("stock.indicators.failures").increment();
+                logger.warn("Indicator update failed for {}", fetched.get(i).getSymbol(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted updating indicators", e);
             }
         }
-    }
-
-    private void calculateATR(StockData currentData, List<StockData> historicalData) {
-        if (historicalData.size() >= 14) {
-            List<BigDecimal> trueRanges = new ArrayList<>();
-
-            for (int i = 0; i < 14; i++) {
-                StockData current = historicalData.get(i);
-                StockData previous = (i < historicalData.size() - 1) ? historicalData.get(i + 1) : null;
-
-                if (previous != null) {
-                    BigDecimal tr1 = current.getHigh().subtract(current.getLow());
-                    BigDecimal tr2 = current.getHigh().subtract(previous.getCurrentPrice()).abs();
-                    BigDecimal tr3 = current.getLow().subtract(previous.getCurrentPrice()).abs();
 
-                    BigDecimal trueRange = tr1.max(tr2).max(tr3);
-                    trueRanges.add(trueRange);
-                }
-            }
+        stockDataWriter.submitAll(fetched);
+        for (StockData stockData : fetched) {
+            quoteCache.put(stockData.getSymbol(), stockData);
+        }
 
-            // Calculate ATR as average of true ranges
-            if (!trueRanges.isEmpty()) {
-                BigDecimal atr = trueRanges.stream()
-                        .reduce(BigDecimal.ZERO, BigDecimal::add)
-                        .divide(BigDecimal.valueOf(trueRanges.size()), 2, RoundingMode.HALF_UP);
-                currentData.setAtr(atr);
+        fetched.forEach(stockData -> result.put(stockData.getSymbol(), stockData));
+        Map<String, StockData> ordered = new LinkedHashMap<>();
+        for (String symbol : new LinkedHashSet<>(symbols)) {
+            StockData stockData = result.get(symbol);
+            if (stockData != null) {
+                ordered.put(symbol, stockData);
             }
         }
+        return ordered;
     }
 
-    private void calculateMFI(StockData currentData, List<StockData> historicalData) {
-        if (historicalData.size() >= 14) {
-            List<BigDecimal> positiveFlow = new ArrayList<>();
-            List<BigDecimal> negativeFlow = new ArrayList<>();
-
-            for (int i = 0; i < 13; i++) {
-                StockData current = historicalData.get(i);
-                StockData previous = historicalData.get(i + 1);
-
-                // Calculate typical price
-                BigDecimal currentTP = current.getHigh()
-                        .add(current.getLow())
-                        .add(current.getCurrentPrice())
-                        .divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP);
-
-                BigDecimal previousTP = previous.getHigh()
-                        .add(previous.getLow())
-                        .add(previous.getCurrentPrice())
-                        .divide(BigDecimal.valueOf(3), 2, RoundingMode.HALF_UP);
+    private <T> T fetchUpstream(String mode, String key, ExchangeGuard.UpstreamCall<T> call) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            T result = yahooGuard.execute(key, call);
+            outcome = "success";
+            return result;
+        } catch (ExchangeUnavailableException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("stock.fetch", "source", "yahoo", "mode", mode, "outcome", outcome));
+        }
+    }
 
-                // Calculate money flow
-                BigDecimal rawMoneyFlow = currentTP.multiply(BigDecimal.valueOf(current.getVolume()));
+    /** Times a history read and records how many rows it returned. */
+    private <T> List<T> timedQuery(String query, Supplier<List<T>> loader) {
+        List<T> rows = meterRegistry.timer("stock.history", "query", query).record(loader);
+        meterRegistry.summary("stock.history.rows", "query", query).record(rows.size());
+        return rows;
+    }
 
-                if (currentTP.compareTo(previousTP) > 0) {
-                    positiveFlow.add(rawMoneyFlow);
-                } else {
-                    negativeFlow.add(rawMoneyFlow);
-                }
-            }
+    private StockData toStockData(String symbol, Stock stock) {
+        StockData stockData = new StockData();
+
+        stockData.setSymbol(symbol);
+        stockData.setSource(QuoteSource.YAHOO);
+        stockData.setCurrentPrice(stock.getQuote().getPrice());
+        stockData.setChange(stock.getQuote().getChange());
+        stockData.setChangePercent(stock.getQuote().getChangeInPercent());
+        stockData.setDayHigh(stock.getQuote().getDayHigh());
+        stockData.setDayLow(stock.getQuote().getDayLow());
+        stockData.setVolume(stock.getQuote().getVolume());
+        stockData.setOpen(stock.getQuote().getOpen());
+        stockData.setPreviousClose(stock.getQuote().getPreviousClose());
+        stockData.setMarketCap(stock.getStats() != null ? stock.getStats().getMarketCap() : null);
+        stockData.setLastUpdateTime(LocalDateTime.now());
+
+        // Also set the high and low values
+        stockData.setHigh(stock.getQuote().getDayHigh());
+        stockData.setLow(stock.getQuote().getDayLow());
+
+        return stockData;
+    }
 
-            // Calculate MFI
-            BigDecimal positiveFlowSum = positiveFlow.stream()
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal negativeFlowSum = negativeFlow.stream()
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-            if (negativeFlowSum.compareTo(BigDecimal.ZERO) > 0) {
-                BigDecimal moneyRatio = positiveFlowSum.divide(negativeFlowSum, 2, RoundingMode.HALF_UP);
-                BigDecimal mfi = BigDecimal.valueOf(100)
-                        .subtract(BigDecimal.valueOf(100)
-                                .divide(BigDecimal.ONE.add(moneyRatio), 2, RoundingMode.HALF_UP));
-                currentData.setMfi(mfi);
-            }
+    private void calculateTechnicalIndicators(StockData currentData) {
+        if (currentData.getCurrentPrice() == null) {
+            return;
         }
+        BarIndicatorState state = indicatorStates.computeIfAbsent(currentData.getSymbol(), this::loadIndicatorState);
+        meterRegistry.timer("stock.indicators", "resolution", indicatorResolutionCode)
+                .record(() -> state.update(currentData));
     }
 
-    // Existing methods remain the same
-    private void calculateRSI(StockData currentData, List<StockData> historicalData) {
-        if (historicalData.size() >= 14) {
-            List<StockData> rsiData = historicalData.subList(0, 14);
-            double gains = 0;
-            double losses = 0;
+    ExchangeGuard getYahooGuard() {
+        return yahooGuard;
+    }
 
-            for (int i = 0; i < rsiData.size() - 1; i++) {
-                BigDecimal change = rsiData.get(i).getCurrentPrice().subtract(rsiData.get(i + 1).getCurrentPrice());
-                if (change.compareTo(BigDecimal.ZERO) > 0) {
-                    gains += change.doubleValue();
-                } else {
-                    losses += change.abs().doubleValue();
-                }
-            }
+    /** Fresh, empty indicator state at the configured resolution, with the symbol's enabled indicators. */
+    public BarIndicatorState newIndicatorState(String symbol) {
+        return new BarIndicatorState(indicatorResolution, indicatorRegistry.forSymbol(symbol));
+    }
 
-            double avgGain = gains / 14;
-            double avgLoss = losses / 14;
-            double rs = avgGain / avgLoss;
-            double rsi = 100 - (100 / (1 + rs));
+    /** Drops the cached state so the next quote rebuilds it from the stored history. */
+    public void resetIndicatorState(String symbol) {
+        indicatorStates.remove(symbol);
+    }
 
-            currentData.setRsi(BigDecimal.valueOf(rsi));
+    private BarIndicatorState loadIndicatorState(String symbol) {
+        // A cold batch would otherwise start one warm-up query per symbol and drain the connection pool
+        warmupLoads.acquireUninterruptibly();
+        try {
+            return replayHistory(symbol);
+        } finally {
+            warmupLoads.release();
         }
     }
 
-    private BigDecimal calculateEMA(List<StockData> data, int period) {
-        BigDecimal multiplier = BigDecimal.valueOf(2.0 / (period + 1));
-        BigDecimal initialSMA = data.stream()
-                .limit(period)
-                .map(StockData::getCurrentPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add)
-                .divide(BigDecimal.valueOf(period), 2, RoundingMode.HALF_UP);
-
-        return data.stream()
-                .skip(period -1)
-                .limit(1)
-                .map(StockData::getCurrentPrice)
-                .map(price -> price.multiply(multiplier)
-                        .add(initialSMA.multiply(BigDecimal.ONE.subtract(multiplier))))
-                .findFirst()
-                .orElse(initialSMA);
-    }
-
-    private BigDecimal calculateSignalLine(List<StockData> data) {
-        if (data.size() >= 9) {
-            return data.stream()
-                    .limit(9)
-                    .map(StockData::getMacd)
-                    .filter(Objects::nonNull)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add)
-                    .divide(BigDecimal.valueOf(9), 2, RoundingMode.HALF_UP);
+    private BarIndicatorState replayHistory(String symbol) {
+        // Cold start: replay the most recent periods oldest-first to warm up the rolling windows
+        BarIndicatorState state = newIndicatorState(symbol);
+        if (indicatorResolution == null && tickArchive.isEnabled()) {
+            TickRange ticks = tickArchive.last(symbol, WARMUP_PERIODS);
+            if (ticks.size() > 0) {
+                state.addTicks(ticks);
+                return state;
+            }
         }
-        return null;
-    }
-
-    private void calculateMACD(StockData currentData, List<StockData> historicalData) {
-        if (historicalData.size() >= 26) {
-            // Calculate 12-day EMA
-            BigDecimal ema12 = calculateEMA(historicalData, 12);
-            // Calculate 26-day EMA
-            BigDecimal ema26 = calculateEMA(historicalData, 26);
-
-            // MACD Line = 12-day EMA - 26-day EMA
-            BigDecimal macd = ema12.subtract(ema26);
-            currentData.setMacd(macd);
-
-            // Calculate Signal Line (9-day EMA of MACD)
-            BigDecimal signalLine = calculateSignalLine(historicalData);
-            if (signalLine != null) {
-                currentData.setSignalLine(signalLine);
-                // MACD Histogram = MACD Line - Signal Line
-                currentData.setMacdHistogram(macd.subtract(signalLine));
+        if (indicatorResolution == null) {
+            List<StockData> history = timedQuery("warmup",
+                    () -> stockDataRepository.findLastNRecords(symbol, WARMUP_PERIODS));
+            for (int i = history.size() - 1; i >= 0; i--) {
+                StockData data = history.get(i);
+                if (data.getCurrentPrice() != null) {
+                    state.addTick(data);
+                }
+            }
+        } else {
+            List<StockBar> bars = timedQuery("warmup_bars",
+                    () -> stockBarRepository.findLastNBars(symbol, indicatorResolution, WARMUP_PERIODS));
+            for (int i = bars.size() - 1; i >= 0; i--) {
+                state.addBar(bars.get(i));
             }
         }
+        return state;
     }
 
     public Map<String, Object> getTechnicalIndicators(StockData stockData) {
-        Map<String, Object> technicalData = new HashMap<>();
+        Map<String, Object> technicalData = new LinkedHashMap<>();
         technicalData.put("symbol", stockData.getSymbol());
         technicalData.put("price", stockData.getCurrentPrice());
 
-        // Moving Averages
-        technicalData.put("ma20", stockData.getMa20());
-        technicalData.put("ma50", stockData.getMa50());
-
-        // RSI
-        technicalData.put("rsi", stockData.getRsi());
+        // Only the indicators enabled for this symbol are computed, so only those are reported
+        for (Indicator indicator : indicatorRegistry.forSymbol(stockData.getSymbol()).indicators()) {
+            for (Indicator.Field field : indicator.fields()) {
+                technicalData.put(field.name(), field.getter().apply(stockData));
+            }
+        }
+        return technicalData;
+    }
 
-        // MACD
-        technicalData.put("macd", stockData.getMacd());
-        technicalData.put("signalLine", stockData.getSignalLine());
-        technicalData.put("macdHistogram", stockData.getMacdHistogram());
+    /** The last persisted snapshot from memory only; never calls upstream or the database. */
+    public StockData getLastKnownStockData(String symbol) {
+        return latestSnapshotStore.get(symbol);
+    }
 
-        // Bollinger Bands
-        technicalData.put("bollingerUpper", stockData.getBollingerUpper());
-        technicalData.put("bollingerMiddle", stockData.getBollingerMiddle());
-        technicalData.put("bollingerLower", stockData.getBollingerLower());
+    public StockData getLatestStockData(String symbol) {
+        StockData latest = latestSnapshotStore.get(symbol);
+        if (latest != null) {
+            return latest;
+        }
+        latest = stockDataRepository.findFirstBySymbolOrderByLastUpdateTimeDesc(symbol);
+        if (latest != null) {
+            latestSnapshotStore.update(latest);
+        }
+        return latest;
+    }
 
-        // Stochastic Oscillator
-        technicalData.put("stochasticK", stockData.getStochasticK());
-        technicalData.put("stochasticD", stockData.getStochasticD());
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("quotes", quoteCache.getStats());
+        stats.put("latestSymbols", latestSnapshotStore.getSymbols().size());
+        return stats;
+    }
 
-        // ATR
-        technicalData.put("atr", stockData.getAtr());
+    public List<StockData> getStockHistory(String symbol) {
+        return timedQuery("all", () -> stockDataRepository.findBySymbolOrderByLastUpdateTimeDesc(symbol));
+    }
 
-        // MFI
-        technicalData.put("mfi", stockData.getMfi());
+    public List<StockBar> getBars(String symbol, BarResolution resolution, LocalDateTime startDate, LocalDateTime endDate) {
+        return timedQuery("bars", () -> stockBarRepository.findBars(symbol, resolution,
+                startDate != null ? startDate : MIN_DATE,
+                endDate != null ? endDate : MAX_DATE));
+    }
 
-        return technicalData;
+    /** Reads history from the tick archive instead of the database. */
+    public ArchivedHistory getArchivedHistory(String symbol, LocalDateTime startDate, LocalDateTime endDate) {
+        TickRange ticks = meterRegistry.timer("stock.history", "query", "archive").record(() -> tickArchive.scan(symbol,
+                startDate != null ? startDate.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MIN_VALUE,
+                endDate != null ? endDate.toInstant(ZoneOffset.UTC).toEpochMilli() : Long.MAX_VALUE));
+        meterRegistry.summary("stock.history.rows", "query", "archive").record(ticks.size());
+        int n = ticks.size();
+        long[] timestamps = new long[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        long[] volume = new long[n];
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = ticks.timestamp(i);
+            open[i] = ticks.open(i);
+            high[i] = ticks.high(i);
+            low[i] = ticks.low(i);
+            close[i] = ticks.close(i);
+            volume[i] = ticks.volume(i);
+        }
+        return new ArchivedHistory(symbol, timestamps, open, high, low, close, volume);
     }
 
-    public StockData getLatestStockData(String symbol) {
-        return stockDataRepository.findFirstBySymbolOrderByLastUpdateTimeDesc(symbol);
+    public List<StockData> getHistoricalData(String symbol, LocalDateTime startDate) {
+        return timedQuery("since", () -> stockDataRepository.findHistoricalData(symbol, startDate));
     }
 
-    public List<StockData> getStockHistory(String symbol) {
-        return stockDataRepository.findBySymbolOrderByLastUpdateTimeDesc(symbol);
+    /**
+     * Returns up to {@code limit} rows older than {@code cursor}, newest first.
+     * The cursor is the {@code nextCursor} of the previous page, or null for the first page.
+     */
+    public HistoryPage getHistoryPage(String symbol, LocalDateTime startDate, LocalDateTime endDate,
+                                      String cursor, int limit) {
+        LocalDateTime cursorTime = endDate != null ? endDate : MAX_DATE;
+        long cursorId = Long.MAX_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] parts = cursor.split("_", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid history cursor: " + cursor);
+            }
+            cursorTime = LocalDateTime.parse(parts[0]);
+            cursorId = Long.parseLong(parts[1]);
+        }
+
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        LocalDateTime pageTime = cursorTime;
+        long pageId = cursorId;
+        List<StockData> data = timedQuery("page", () -> stockDataRepository.findHistoryPage(symbol,
+                startDate != null ? startDate : MIN_DATE, pageTime, pageId, PageRequest.of(0, pageSize)));
+
+        String nextCursor = null;
+        if (data.size() == pageSize) {
+            StockData last = data.get(data.size() - 1);
+            nextCursor = last.getLastUpdateTime() + "_" + last.getId();
+        }
+        return new HistoryPage(data, nextCursor);
     }
 
-    public List<StockData> getHistoricalData(String symbol, LocalDateTime startDate) {
-        return stockDataRepository.findHistoricalData(symbol, startDate);
+    /**
+     * Streams a symbol's history oldest first without materializing it.
+     * Each row is detached once consumed so the persistence context stays empty.
+     */
+    @Transactional(readOnly = true)
+    public void streamHistory(String symbol, LocalDateTime startDate, LocalDateTime endDate,
+                              Consumer<StockData> consumer) {
+        try (Stream<StockData> history = stockDataRepository.streamHistory(symbol,
+                startDate != null ? startDate : MIN_DATE, endDate != null ? endDate : MAX_DATE)) {
+            history.forEach(data -> {
+                consumer.accept(data);
+                entityManager.detach(data);
+            });
+        }
     }
 
     public List<StockData> getRecentStockData(LocalDateTime since) {
@@ -356,54 +490,87 @@ public class StockService {
     }
 
     public List<StockData> getLastNRecords(String symbol, int n) {
-        return stockDataRepository.findLastNRecords(symbol, n);
+        return timedQuery("last_n", () -> stockDataRepository.findLastNRecords(symbol, n));
     }
 
     public List<StockData> getStocksAbovePrice(BigDecimal price) {
         return stockDataRepository.findStocksAbovePrice(price);
     }
 
-    public List<StockData> getTopGainers(BigDecimal minChangePercent) {
-        return stockDataRepository.findTopGainers(minChangePercent);
+    // Screeners run over the latest snapshot per symbol rather than the full history
+
+    public List<StockSnapshotView> getTopGainers(BigDecimal minChangePercent) {
+        return screen(s -> isAtLeast(s.getChangePercent(), minChangePercent),
+                Comparator.comparing(StockData::getChangePercent).reversed());
+    }
+
+    public List<StockSnapshotView> getTopLosers(BigDecimal maxChangePercent) {
+        return screen(s -> isAtMost(s.getChangePercent(), maxChangePercent),
+                Comparator.comparing(StockData::getChangePercent));
+    }
+
+    public List<StockSnapshotView> getHighVolumeStocks(Long minVolume) {
+        return screen(s -> s.getVolume() != null && s.getVolume() >= minVolume,
+                Comparator.comparing(StockData::getVolume).reversed());
+    }
+
+    public List<StockSnapshotView> getOversoldStocks(BigDecimal rsiThreshold) {
+        return screen(s -> isAtMost(s.getRsi(), rsiThreshold), null);
     }
 
-    public List<StockData> getTopLosers(BigDecimal maxChangePercent) {
-        return stockDataRepository.findTopLosers(maxChangePercent);
+    public List<StockSnapshotView> getOverboughtStocks(BigDecimal rsiThreshold) {
+        return screen(s -> isAtLeast(s.getRsi(), rsiThreshold), null);
     }
 
-    public List<StockData> getHighVolumeStocks(Long minVolume) {
-        return stockDataRepository.findHighVolumeStocks(minVolume);
+    public List<StockSnapshotView> getStocksWithBullishMACD() {
+        return screen(s -> compare(s.getMacd(), s.getSignalLine()) > 0, null);
     }
 
-    public List<StockData> getOversoldStocks(BigDecimal rsiThreshold) {
-        return stockDataRepository.findOversoldStocks(rsiThreshold);
+    public List<StockSnapshotView> getStocksWithBearishMACD() {
+        return screen(s -> compare(s.getSignalLine(), s.getMacd()) > 0, null);
     }
 
-    public List<StockData> getOverboughtStocks(BigDecimal rsiThreshold) {
-        return stockDataRepository.findOverboughtStocks(rsiThreshold);
+    public List<StockSnapshotView> getStocksBelowBollingerLower() {
+        return screen(s -> isAtMost(s.getCurrentPrice(), s.getBollingerLower()), null);
     }
 
-    public List<StockData> getStocksWithBullishMACD() {
-        return stockDataRepository.findStocksWithBullishMACD();
+    public List<StockSnapshotView> getStocksAboveBollingerUpper() {
+        return screen(s -> isAtLeast(s.getCurrentPrice(), s.getBollingerUpper()), null);
     }
 
-    public List<StockData> getStocksWithBearishMACD() {
-        return stockDataRepository.findStocksWithBearishMACD();
+    private List<StockSnapshotView> screen(Predicate<StockData> filter, Comparator<StockData> order) {
+        Stream<StockData> matches = latestSnapshotStore.getAll().stream().filter(filter);
+        if (order != null) {
+            matches = matches.sorted(order);
+        }
+        return matches
+                .map(data -> projectionFactory.createProjection(StockSnapshotView.class, data))
+                .toList();
+    }
+
+    // Mirrors SQL semantics: comparisons involving a missing value never match
+    private static int compare(BigDecimal value, BigDecimal other) {
+        if (value == null || other == null) {
+            return Integer.MIN_VALUE;
+        }
+        return value.compareTo(other);
     }
 
-    public List<StockData> getStocksBelowBollingerLower() {
-        return stockDataRepository.findStocksBelowBollingerLower();
+    private static boolean isAtLeast(BigDecimal value, BigDecimal threshold) {
+        int result = compare(value, threshold);
+        return result != Integer.MIN_VALUE && result >= 0;
     }
 
-    public List<StockData> getStocksAboveBollingerUpper() {
-        return stockDataRepository.findStocksAboveBollingerUpper();
+    private static boolean isAtMost(BigDecimal value, BigDecimal threshold) {
+        int result = compare(value, threshold);
+        return result != Integer.MIN_VALUE && result <= 0;
     }
 
     public List<StockData> getHistoricalDataBetweenDates(String symbol, LocalDateTime startDate, LocalDateTime endDate) {
-        return stockDataRepository.findHistoricalDataBetweenDates(symbol, startDate, endDate);
+        return timedQuery("between", () -> stockDataRepository.findHistoricalDataBetweenDates(symbol, startDate, endDate));
     }
 
     public List<String> getAllTrackedSymbols() {
-        return stockDataRepository.findAllTrackedSymbols();
+        return latestSnapshotStore.getSymbols().stream().sorted().toList();
     }
 }
@@ -0,0 +1,248 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only, per-symbol columnar archive of persisted ticks.
+ * Each symbol has one file per column (timestamp, open, high, low, close, volume), every
+ * value a fixed-width little-endian 8-byte field, so row {@code i} sits at offset
+ * {@code i * 8} in every file. Reads map the files with {@link FileChannel#map} and binary
+ * search the timestamp column, so a time range scan touches only the pages it needs and
+ * never goes through the database. Rows must be appended in time order per symbol; older
+ * rows arriving late are skipped.
+ */
+@Service
+public class TickArchive {
+    private static final Logger logger = LoggerFactory.getLogger(TickArchive.class);
+    private static final int WIDTH = Long.BYTES;
+
+    enum Column {
+        TIMESTAMP("timestamp.col"),
+        OPEN("open.col"),
+        HIGH("high.col"),
+        LOW("low.col"),
+        CLOSE("close.col"),
+        VOLUME("volume.col");
+
+        private final String fileName;
+
+        Column(String fileName) {
+            this.fileName = fileName;
+        }
+    }
+
+    private final boolean enabled;
+    private final Path baseDir;
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    public TickArchive(@Value("${stock.archive.enabled:true}") boolean enabled,
+                       @Value("${stock.archive.dir:data/archive}") String baseDir) {
+        this.enabled = enabled;
+        this.baseDir = Path.of(baseDir);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Appends persisted snapshots; failures are logged so they never affect persistence. */
+    public void append(Collection<StockData> rows) {
+        if (!enabled || rows.isEmpty()) {
+            return;
+        }
+        Map<String, List<StockData>> bySymbol = new LinkedHashMap<>();
+        for (StockData row : rows) {
+            if (row.getSymbol() != null && row.getCurrentPrice() != null && row.getLastUpdateTime() != null) {
+                bySymbol.computeIfAbsent(row.getSymbol(), s -> new ArrayList<>()).add(row);
+            }
+        }
+        bySymbol.forEach((symbol, symbolRows) -> {
+            try {
+                appendSymbol(symbol, symbolRows);
+            } catch (IOException e) {
+                logger.error("Failed to archive {} ticks for {}", symbolRows.size(), symbol, e);
+            }
+        });
+    }
+
+    private void appendSymbol(String symbol, List<StockData> rows) throws IOException {
+        synchronized (locks.computeIfAbsent(symbol, s -> new Object())) {
+            Path dir = symbolDir(symbol);
+            Files.createDirectories(dir);
+            long rowCount = repair(dir);
+            long lastTimestamp = rowCount > 0 ? readLong(dir, Column.TIMESTAMP, rowCount - 1) : Long.MIN_VALUE;
+
+            ByteBuffer[] buffers = new ByteBuffer[Column.values().length];
+            for (int c = 0; c < buffers.length; c++) {
+                buffers[c] = ByteBuffer.allocate(rows.size() * WIDTH).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            int skipped = 0;
+            for (StockData row : rows) {
+                long timestamp = row.getLastUpdateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+                if (timestamp < lastTimestamp) {
+                    skipped++;
+                    continue;
+                }
+                double close = row.getCurrentPrice().doubleValue();
+                buffers[Column.TIMESTAMP.ordinal()].putLong(timestamp);
+                buffers[Column.OPEN.ordinal()].putDouble(row.getOpen() != null ? row.getOpen().doubleValue() : close);
+                buffers[Column.HIGH.ordinal()].putDouble(row.getHigh() != null ? row.getHigh().doubleValue() : close);
+                buffers[Column.LOW.ordinal()].putDouble(row.getLow() != null ? row.getLow().doubleValue() : close);
+                buffers[Column.CLOSE.ordinal()].putDouble(close);
+                buffers[Column.VOLUME.ordinal()].putLong(row.getVolume() != null ? row.getVolume() : 0L);
+                lastTimestamp = timestamp;
+            }
+            if (skipped > 0) {
+                logger.debug("Skipped {} out-of-order ticks for {}", skipped, symbol);
+            }
+
+            for (Column column : Column.values()) {
+                ByteBuffer buffer = buffers[column.ordinal()].flip();
+                try (FileChannel channel = FileChannel.open(dir.resolve(column.fileName),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Truncates all columns to the shortest one, so a crash between column writes can
+     * never leave rows misaligned. Returns the number of complete rows.
+     */
+    private long repair(Path dir) throws IOException {
+        long rows = Long.MAX_VALUE;
+        for (Column column : Column.values()) {
+            Path file = dir.resolve(column.fileName);
+            rows = Math.min(rows, Files.exists(file) ? Files.size(file) / WIDTH : 0);
+        }
+        for (Column column : Column.values()) {
+            Path file = dir.resolve(column.fileName);
+            if (Files.exists(file) && Files.size(file) != rows * WIDTH) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.truncate(rows * WIDTH);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private long readLong(Path dir, Column column, long row) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(column.fileName), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WIDTH).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(buffer, row * WIDTH);
+            return buffer.flip().getLong();
+        }
+    }
+
+    /** Ticks with {@code fromMillis <= timestamp <= toMillis}, oldest first. */
+    public TickRange scan(String symbol, long fromMillis, long toMillis) {
+        return read(symbol, (timestamps, rows) -> {
+            long start = lowerBound(timestamps, rows, fromMillis);
+            long end = toMillis == Long.MAX_VALUE ? rows : lowerBound(timestamps, rows, toMillis + 1);
+            return new long[]{start, end};
+        });
+    }
+
+    /** The newest {@code count} ticks, oldest first. */
+    public TickRange last(String symbol, int count) {
+        return read(symbol, (timestamps, rows) -> new long[]{Math.max(0, rows - count), rows});
+    }
+
+    private TickRange read(String symbol, RangeSelector selector) {
+        if (!enabled) {
+            return TickRange.EMPTY;
+        }
+        Path dir = symbolDir(symbol);
+        try {
+            long rows;
+            synchronized (locks.computeIfAbsent(symbol, s -> new Object())) {
+                if (!Files.exists(dir.resolve(Column.TIMESTAMP.fileName))) {
+                    return TickRange.EMPTY;
+                }
+                rows = repair(dir);
+            }
+            if (rows == 0) {
+                return TickRange.EMPTY;
+            }
+            // Rows past this count may be appended concurrently; they are simply not part of this read
+            LongBuffer timestamps = map(dir, Column.TIMESTAMP, 0, rows).asLongBuffer();
+            long[] range = selector.select(timestamps, rows);
+            long start = range[0];
+            long count = range[1] - range[0];
+            if (count <= 0) {
+                return TickRange.EMPTY;
+            }
+            return new TickRange(
+                    timestamps.slice((int) start, (int) count),
+                    map(dir, Column.OPEN, start, count).asDoubleBuffer(),
+                    map(dir, Column.HIGH, start, count).asDoubleBuffer(),
+                    map(dir, Column.LOW, start, count).asDoubleBuffer(),
+                    map(dir, Column.CLOSE, start, count).asDoubleBuffer(),
+                    map(dir, Column.VOLUME, start, count).asLongBuffer());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read tick archive for " + symbol, e);
+        }
+    }
+
+    private static MappedByteBuffer map(Path dir, Column column, long startRow, long rows) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.resolve(column.fileName), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, startRow * WIDTH, rows * WIDTH);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        }
+    }
+
+    /** First row whose timestamp is {@code >= target}. */
+    private static long lowerBound(LongBuffer timestamps, long rows, long target) {
+        long low = 0;
+        long high = rows;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestamps.get((int) mid) < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Path symbolDir(String symbol) {
+        // Exchange symbols contain characters such as '&' and '^' that are not portable in file names
+        String name = URLEncoder.encode(symbol, StandardCharsets.UTF_8).replace(".", "%2E");
+        return baseDir.resolve(name);
+    }
+
+    @FunctionalInterface
+    private interface RangeSelector {
+        long[] select(LongBuffer timestamps, long rows);
+    }
+}
@@ -0,0 +1,66 @@
+package com.stockanalysis.service;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * A contiguous, time-ordered slice of a symbol's tick archive.
+ * Columns are views over memory-mapped files, so reading a range copies nothing until the
+ * values are accessed. Indexes run from {@code 0} (oldest) to {@code size() - 1} (newest).
+ */
+public class TickRange {
+    static final TickRange EMPTY = new TickRange(LongBuffer.allocate(0), DoubleBuffer.allocate(0),
+            DoubleBuffer.allocate(0), DoubleBuffer.allocate(0), DoubleBuffer.allocate(0), LongBuffer.allocate(0));
+
+    private final LongBuffer timestamps;
+    private final DoubleBuffer opens;
+    private final DoubleBuffer highs;
+    private final DoubleBuffer lows;
+    private final DoubleBuffer closes;
+    private final LongBuffer volumes;
+
+    TickRange(LongBuffer timestamps, DoubleBuffer opens, DoubleBuffer highs,
+              DoubleBuffer lows, DoubleBuffer closes, LongBuffer volumes) {
+        this.timestamps = timestamps;
+        this.opens = opens;
+        this.highs = highs;
+        this.lows = lows;
+        this.closes = closes;
+        this.volumes = volumes;
+    }
+
+    public int size() {
+        return timestamps.limit();
+    }
+
+    public long timestamp(int index) {
+        return timestamps.get(index);
+    }
+
+    public double open(int index) {
+        return opens.get(index);
+    }
+
+    public double high(int index) {
+        return highs.get(index);
+    }
+
+    public double low(int index) {
+        return lows.get(index);
+    }
+
+    public double close(int index) {
+        return closes.get(index);
+    }
+
+    public long volume(int index) {
+        return volumes.get(index);
+    }
+
+    /** Feeds every tick, oldest first, into the given indicator state. */
+    public void replayInto(IndicatorState state) {
+        for (int i = 0, n = size(); i < n; i++) {
+            state.update(timestamps.get(i), closes.get(i), highs.get(i), lows.get(i), volumes.get(i));
+        }
+    }
+}
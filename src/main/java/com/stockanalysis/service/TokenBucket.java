@@ -0,0 +1,74 @@
+package com.stockanalysis.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-bucket rate limiter: permits refill continuously at {@code permitsPerSecond}
+ * up to {@code burst}, so short bursts are allowed but the long-run rate is capped.
+ */
+public class TokenBucket {
+    private final double permitsPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefill;
+
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /** Refills against {@code nanoClock}, so tests can advance time without sleeping. */
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    public synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** Whole permits that could be taken right now without waiting. */
+    public synchronized int availablePermits() {
+        refill();
+        return (int) tokens;
+    }
+
+    /** Waits up to {@code timeout} for a permit; returns false if none became available. */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = nanoClock.getAsLong() + unit.toNanos(timeout);
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return true;
+                }
+                waitNanos = (long) Math.ceil((1 - tokens) / permitsPerNano);
+            }
+            long remaining = deadline - nanoClock.getAsLong();
+            if (waitNanos > remaining) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,59 @@
+-- Range-partitions stock_bar by trade_date so retention can drop whole partitions and
+-- range scans only touch the days they ask for. Run once after Hibernate has created
+-- the table; MySQL requires the partition key in every unique key, hence the new primary key.
+-- Partitions are monthly and named after the month they hold (p2025_04 holds April 2025).
+
+ALTER TABLE stock_bar DROP PRIMARY KEY, ADD PRIMARY KEY (id, trade_date);
+
+DELIMITER //
+
+-- One partition per month from months_back months before the current month through
+-- months_ahead months after it, with catch-alls on both ends.
+CREATE PROCEDURE stock_bar_partition(IN months_back INT, IN months_ahead INT)
+BEGIN
+    DECLARE this_month DATE DEFAULT DATE_FORMAT(CURDATE(), '%Y-%m-01');
+    DECLARE month_start DATE DEFAULT DATE_SUB(this_month, INTERVAL months_back MONTH);
+    DECLARE last_month DATE DEFAULT DATE_ADD(this_month, INTERVAL months_ahead MONTH);
+    DECLARE partitions TEXT DEFAULT CONCAT('PARTITION p_past VALUES LESS THAN (''', month_start, ''')');
+
+    WHILE month_start <= last_month DO
+        SET partitions = CONCAT(partitions, ', PARTITION p', DATE_FORMAT(month_start, '%Y_%m'),
+                                ' VALUES LESS THAN (''', DATE_ADD(month_start, INTERVAL 1 MONTH), ''')');
+        SET month_start = DATE_ADD(month_start, INTERVAL 1 MONTH);
+    END WHILE;
+
+    SET @ddl = CONCAT('ALTER TABLE stock_bar PARTITION BY RANGE COLUMNS (trade_date) (', partitions,
+                      ', PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+    PREPARE statement FROM @ddl;
+    EXECUTE statement;
+    DEALLOCATE PREPARE statement;
+END //
+
+-- Splits next month out of p_future unless it already has its own partition, so it is safe
+-- to run as often as the event below does.
+CREATE PROCEDURE stock_bar_add_next_partition()
+BEGIN
+    DECLARE next_month DATE DEFAULT DATE_ADD(DATE_FORMAT(CURDATE(), '%Y-%m-01'), INTERVAL 1 MONTH);
+    DECLARE next_name VARCHAR(16) DEFAULT CONCAT('p', DATE_FORMAT(next_month, '%Y_%m'));
+
+    IF NOT EXISTS (SELECT 1 FROM information_schema.partitions
+                   WHERE table_schema = DATABASE() AND table_name = 'stock_bar'
+                     AND partition_name = next_name) THEN
+        SET @ddl = CONCAT('ALTER TABLE stock_bar REORGANIZE PARTITION p_future INTO (PARTITION ', next_name,
+                          ' VALUES LESS THAN (''', DATE_ADD(next_month, INTERVAL 1 MONTH), '''), ',
+                          'PARTITION p_future VALUES LESS THAN (MAXVALUE))');
+        PREPARE statement FROM @ddl;
+        EXECUTE statement;
+        DEALLOCATE PREPARE statement;
+    END IF;
+END //
+
+DELIMITER ;
+
+-- A year back covers the 5m bar retention; older hourly and daily bars land in p_past
+CALL stock_bar_partition(12, 2);
+
+-- Keeps a partition ready for next month (needs event_scheduler=ON)
+CREATE EVENT IF NOT EXISTS stock_bar_partition_maintenance
+    ON SCHEDULE EVERY 1 DAY
+    DO CALL stock_bar_add_next_partition();
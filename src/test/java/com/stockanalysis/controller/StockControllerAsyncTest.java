@@ -0,0 +1,175 @@
+package com.stockanalysis.controller;
+
+import com.stockanalysis.config.AsyncConfig;
+import com.stockanalysis.repository.StockDataRepository;
+import com.stockanalysis.service.ExchangeHttpClient;
+import com.stockanalysis.service.LatestSnapshotStore;
+import com.stockanalysis.service.NSEClientService;
+import com.stockanalysis.service.StockDataWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Drives the asynchronous NSE quote endpoint against a local stub server that answers after a
+ * fixed latency, or never for {@code HANG} symbols. Measures the p99 latency of many concurrent
+ * requests, and checks that a timed-out request gives its upstream thread back instead of
+ * holding it until the much longer fetch timeout.
+ */
+class StockControllerAsyncTest {
+    private static final long LATENCY_MS = 25;
+    private static final long FETCH_TIMEOUT_MS = 10_000;
+    private static final int THREADS = 32;
+
+    private final CountDownLatch releaseHanging = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private ExchangeHttpClient httpClient;
+    private ExecutorService upstreamExecutor;
+    private StockController controller;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/quote-equity", this::quote);
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        httpClient = new ExchangeHttpClient(meterRegistry, THREADS, THREADS, 3000, 10000, 16_777_216);
+        // Rate limit and circuit breaker are set wide open so only latency and timeouts matter
+        NSEClientService nseClientService = new NSEClientService(httpClient, meterRegistry,
+                mock(StockDataWriter.class), new LatestSnapshotStore(mock(StockDataRepository.class)),
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/api/",
+                true, THREADS, FETCH_TIMEOUT_MS,
+                1_000_000, 10_000, 2000, 60_000,
+                10_000, 30_000,
+                "detail", 86_400_000, 900_000);
+        upstreamExecutor = new AsyncConfig().upstreamExecutor(meterRegistry, THREADS, 4096);
+
+        controller = new StockController();
+        ReflectionTestUtils.setField(controller, "nseClientService", nseClientService);
+        ReflectionTestUtils.setField(controller, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(controller, "upstreamExecutor", upstreamExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseHanging.countDown();
+        upstreamExecutor.shutdownNow();
+        httpClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void quote(HttpExchange exchange) throws IOException {
+        String symbol = exchange.getRequestURI().getQuery().substring("symbol=".length());
+        try {
+            if (symbol.startsWith("HANG")) {
+                releaseHanging.await();
+            } else {
+                Thread.sleep(LATENCY_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = ("{\"info\":{\"symbol\":\"" + symbol + "\",\"companyName\":\"" + symbol + " Ltd\"},"
+                + "\"priceInfo\":{\"lastPrice\":101.5,\"open\":100,\"previousClose\":100,\"change\":1.5,"
+                + "\"pChange\":1.5,\"vwap\":100.8,\"intraDayHighLow\":{\"min\":99.5,\"max\":102}},"
+                + "\"metadata\":{\"lastUpdateTime\":\"17-Oct-2026 15:30:00\"}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Issues one request per symbol at once and returns each response's latency in ms, by status. */
+    private Map<Integer, List<Long>> load(String prefix, int count, long timeoutMs) {
+        ReflectionTestUtils.setField(controller, "exchangeTimeoutMs", timeoutMs);
+        Map<Integer, List<Long>> latencies = new ConcurrentHashMap<>();
+        List<CompletableFuture<?>> responses = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            CompletableFuture<ResponseEntity<Map<String, Object>>> response = controller.getNSEStockData(prefix + i);
+            responses.add(response.thenAccept(entity -> latencies
+                    .computeIfAbsent(entity.getStatusCode().value(), status -> Collections.synchronizedList(new ArrayList<>()))
+                    .add((System.nanoTime() - start) / 1_000_000)));
+        }
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).orTimeout(30, TimeUnit.SECONDS).join();
+        return latencies;
+    }
+
+    private static long p99(List<Long> latencies) {
+        List<Long> sorted = latencies.stream().sorted().toList();
+        return sorted.get((int) Math.ceil(sorted.size() * 0.99) - 1);
+    }
+
+    private double activeUpstreamThreads() {
+        return meterRegistry.get("executor.active").tag("name", "upstream").gauge().value();
+    }
+
+    @Test
+    void p99StaysWithinTheTimeoutUnderConcurrentLoad() {
+        // Ten times what the pool runs at once, so most requests queue before reaching the stub
+        int requests = THREADS * 10;
+        long timeoutMs = 5000;
+
+        Map<Integer, List<Long>> latencies = load("SYM", requests, timeoutMs);
+
+        assertEquals(Set.of(200), latencies.keySet());
+        assertEquals(requests, latencies.get(200).size());
+        // Queueing behind nine earlier rounds, not the stub, dominates the tail
+        long p99 = p99(latencies.get(200));
+        assertTrue(p99 < timeoutMs, "p99 of " + p99 + " ms");
+    }
+
+    @Test
+    void timedOutRequestsReleaseTheirUpstreamThreads() throws InterruptedException {
+        long timeoutMs = 200;
+
+        Map<Integer, List<Long>> hung = load("HANG", THREADS, timeoutMs);
+
+        // No stale quote exists, so every hung request answers 504 shortly after its timeout
+        assertEquals(THREADS, hung.get(504).size());
+        long p99 = p99(hung.get(504));
+        assertTrue(p99 < timeoutMs + 1000, "p99 of " + p99 + " ms");
+        // The stub never answers, so only cancellation can free the pool before the fetch timeout
+        long deadline = System.currentTimeMillis() + 2000;
+        while (activeUpstreamThreads() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, activeUpstreamThreads());
+
+        Map<Integer, List<Long>> after = load("SYM", THREADS, 3000);
+        assertEquals(THREADS, after.get(200).size());
+    }
+}
@@ -0,0 +1,210 @@
+package com.stockanalysis.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.stockanalysis.model.HistoryPage;
+import com.stockanalysis.model.QuoteSource;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataBatchInserter;
+import com.stockanalysis.repository.StockDataRepository;
+import com.stockanalysis.service.IndicatorRegistry;
+import com.stockanalysis.service.LatestSnapshotStore;
+import com.stockanalysis.service.StockDataWriter;
+import com.stockanalysis.service.StockService;
+import com.stockanalysis.service.TickArchive;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serves the paged and streamed history endpoints from the real service and repository on H2.
+ * Tests run outside a test transaction, as the endpoints do: pages are read on the query
+ * executor, and the stream has to open its own read-only transaction to keep its cursor open.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import({StockService.class, StockDataBatchInserter.class, StockControllerHistoryTest.Metrics.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StockControllerHistoryTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 1, 6, 9, 15);
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @MockitoBean
+    private StockDataWriter stockDataWriter;
+
+    @MockitoBean
+    private TickArchive tickArchive;
+
+    @MockitoBean
+    private LatestSnapshotStore latestSnapshotStore;
+
+    @MockitoBean
+    private IndicatorRegistry indicatorRegistry;
+
+    @Autowired
+    private StockService stockService;
+
+    @Autowired
+    private StockDataBatchInserter inserter;
+
+    @Autowired
+    private StockDataRepository repository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private ExecutorService queryExecutor;
+    private StockController controller;
+    private List<StockData> oldestFirst;
+
+    @BeforeEach
+    void setUp() {
+        // Minutes 0, 1, 1, 1, 2, 3, 3, inserted in order, so ids ascend with time
+        List<StockData> rows = new ArrayList<>();
+        for (int minute : new int[]{0, 1, 1, 1, 2, 3, 3}) {
+            rows.add(quote("AAA", TIME.plusMinutes(minute)));
+            rows.add(quote("BBB", TIME.plusMinutes(minute)));
+        }
+        inserter.insertAll(rows);
+        oldestFirst = rows.stream().filter(row -> row.getSymbol().equals("AAA")).toList();
+
+        queryExecutor = Executors.newFixedThreadPool(2);
+        controller = new StockController();
+        ReflectionTestUtils.setField(controller, "stockService", stockService);
+        ReflectionTestUtils.setField(controller, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(controller, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(controller, "queryExecutor", queryExecutor);
+        ReflectionTestUtils.setField(controller, "queryTimeoutMs", 10_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queryExecutor.shutdownNow();
+        repository.deleteAll();
+    }
+
+    private static StockData quote(String symbol, LocalDateTime time) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setSource(QuoteSource.NSE);
+        stockData.setCurrentPrice(BigDecimal.valueOf(100));
+        stockData.setLastUpdateTime(time);
+        return stockData;
+    }
+
+    private static List<Long> ids(List<StockData> rows) {
+        return rows.stream().map(StockData::getId).toList();
+    }
+
+    private ResponseEntity<HistoryPage> page(String cursor, int limit) {
+        return controller.getStockHistoryPage("AAA", null, null, cursor, limit).orTimeout(10, TimeUnit.SECONDS).join();
+    }
+
+    @Test
+    void pagesFollowTheCursorThroughEqualTimes() {
+        List<StockData> seen = new ArrayList<>();
+        List<String> cursors = new ArrayList<>();
+        String cursor = null;
+        do {
+            ResponseEntity<HistoryPage> response = page(cursor, 2);
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            seen.addAll(response.getBody().data());
+            cursor = response.getBody().nextCursor();
+            cursors.add(cursor);
+        } while (cursor != null);
+
+        assertEquals(ids(oldestFirst.reversed()), ids(seen));
+        // The second page ends inside the run of three rows at minute 1
+        StockData fourth = oldestFirst.get(3);
+        assertEquals(fourth.getLastUpdateTime() + "_" + fourth.getId(), cursors.get(1));
+    }
+
+    @Test
+    void aFullLastPageIsFollowedByAnEmptyOne() {
+        HistoryPage first = page(null, 7).getBody();
+        assertEquals(7, first.data().size());
+
+        HistoryPage second = page(first.nextCursor(), 7).getBody();
+
+        assertTrue(second.data().isEmpty());
+        assertNull(second.nextCursor());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"garbage", "2025-01-06T09:16_x", "x_1", "_", "2025-01-06T09:16_"})
+    void malformedCursorsAreBadRequests(String cursor) {
+        assertEquals(HttpStatus.BAD_REQUEST, page(cursor, 2).getStatusCode());
+    }
+
+    @Test
+    void streamsHistoryAsNdjsonOldestFirst() throws IOException {
+        StreamingResponseBody body = controller.streamStockHistory("AAA", TIME.plusMinutes(1), null).getBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        body.writeTo(out);
+
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.endsWith("\n"));
+        List<StockData> rows = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            rows.add(objectMapper.readValue(line, StockData.class));
+        }
+        assertEquals(ids(oldestFirst.subList(1, 7)), ids(rows));
+        assertEquals(TIME.plusMinutes(1), rows.get(0).getLastUpdateTime());
+    }
+
+    @Test
+    void streamsInsideItsOwnReadOnlyTransaction() {
+        List<Boolean> readOnly = new ArrayList<>();
+
+        stockService.streamHistory("AAA", null, null,
+                data -> readOnly.add(TransactionSynchronizationManager.isCurrentTransactionReadOnly()));
+
+        assertEquals(List.of(true, true, true, true, true, true, true), readOnly);
+        // Without it the repository refuses to open the stream
+        assertThrows(InvalidDataAccessApiUsageException.class,
+                () -> repository.streamHistory("AAA", TIME, TIME.plusMinutes(3)).close());
+    }
+}
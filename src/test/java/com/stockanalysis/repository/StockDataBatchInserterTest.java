@@ -0,0 +1,116 @@
+package com.stockanalysis.repository;
+
+import com.stockanalysis.model.QuoteSource;
+import com.stockanalysis.model.StockData;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Inserts snapshots into the Hibernate-generated schema on H2 and reads them back through the
+ * JPA repository, so the hand-written column list has to match the entity. Against a mocked
+ * connection it checks that a whole batch is a single statement execution.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+@Import(StockDataBatchInserter.class)
+class StockDataBatchInserterTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 1, 6, 9, 15);
+
+    @Autowired
+    private StockDataBatchInserter inserter;
+
+    @Autowired
+    private StockDataRepository repository;
+
+    private static StockData quote(String symbol, int i) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setSource(QuoteSource.NSE);
+        stockData.setCurrentPrice(BigDecimal.valueOf(100 + i));
+        stockData.setChange(BigDecimal.valueOf(-1.5));
+        stockData.setVolume(1_000L + i);
+        stockData.setLastUpdateTime(TIME.plusMinutes(i));
+        stockData.setRsi(BigDecimal.valueOf(55.25));
+        stockData.setHigh(BigDecimal.valueOf(110 + i));
+        return stockData;
+    }
+
+    @Test
+    void insertsEveryRowAndReadsBackTheGeneratedIds() {
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            rows.add(quote("SYM" + i, i));
+        }
+        rows.get(1).setVolume(null);
+
+        inserter.insertAll(rows);
+
+        for (int i = 0; i < rows.size(); i++) {
+            StockData row = rows.get(i);
+            assertNotNull(row.getId());
+            StockData stored = repository.findById(row.getId()).orElseThrow();
+            assertEquals("SYM" + i, stored.getSymbol());
+            assertEquals(QuoteSource.NSE, stored.getSource());
+            assertEquals(0, BigDecimal.valueOf(100 + i).compareTo(stored.getCurrentPrice()));
+            assertEquals(0, BigDecimal.valueOf(-1.5).compareTo(stored.getChange()));
+            assertEquals(0, BigDecimal.valueOf(110 + i).compareTo(stored.getHigh()));
+            assertEquals(TIME.plusMinutes(i), stored.getLastUpdateTime());
+            assertNotNull(stored.getCreatedAt());
+            assertNull(stored.getMa20());
+        }
+        assertNull(repository.findById(rows.get(1).getId()).orElseThrow().getVolume());
+    }
+
+    @Test
+    void sendsAWholeBatchAsOneStatementExecution() throws Exception {
+        int size = 50;
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet keys = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS))).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[size]);
+        when(statement.getGeneratedKeys()).thenReturn(keys);
+        AtomicInteger key = new AtomicInteger();
+        when(keys.next()).thenAnswer(invocation -> key.incrementAndGet() <= size);
+        when(keys.getLong(1)).thenAnswer(invocation -> 1000L + key.get());
+        List<StockData> rows = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            rows.add(quote("SYM" + i, i));
+        }
+
+        new StockDataBatchInserter(new JdbcTemplate(dataSource)).insertAll(rows);
+
+        verify(connection, times(1)).prepareStatement(anyString(), eq(Statement.RETURN_GENERATED_KEYS));
+        verify(statement, times(size)).addBatch();
+        verify(statement, times(1)).executeBatch();
+        verify(statement, never()).executeUpdate();
+        assertEquals(1001L, rows.get(0).getId());
+        assertEquals(1000L + size, rows.get(size - 1).getId());
+    }
+}
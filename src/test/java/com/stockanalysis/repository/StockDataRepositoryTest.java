@@ -0,0 +1,117 @@
+package com.stockanalysis.repository;
+
+import com.stockanalysis.model.QuoteSource;
+import com.stockanalysis.model.StockData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Walks the keyset queries on H2 over a history where several rows share a timestamp, so a
+ * cursor that compared the time alone would skip or repeat them at a page boundary.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+class StockDataRepositoryTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 1, 6, 9, 15);
+    private static final LocalDateTime MIN_DATE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime MAX_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Autowired
+    private StockDataRepository repository;
+
+    private List<StockData> oldestFirst;
+
+    private static StockData quote(String symbol, LocalDateTime time) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setSource(QuoteSource.NSE);
+        stockData.setCurrentPrice(BigDecimal.valueOf(100));
+        stockData.setLastUpdateTime(time);
+        return stockData;
+    }
+
+    @BeforeEach
+    void setUp() {
+        // Minutes 0, 1, 1, 1, 2, 3, 3: page size 2 cuts both runs of equal times
+        List<StockData> rows = new ArrayList<>();
+        for (int minute : new int[]{0, 1, 1, 1, 2, 3, 3}) {
+            rows.add(quote("AAA", TIME.plusMinutes(minute)));
+            rows.add(quote("BBB", TIME.plusMinutes(minute)));
+        }
+        repository.saveAll(rows);
+        oldestFirst = rows.stream()
+                .filter(row -> row.getSymbol().equals("AAA"))
+                .sorted(Comparator.comparing(StockData::getLastUpdateTime).thenComparing(StockData::getId))
+                .toList();
+    }
+
+    private static List<Long> ids(List<StockData> rows) {
+        return rows.stream().map(StockData::getId).toList();
+    }
+
+    @Test
+    void historyPagesContinueThroughEqualTimesNewestFirst() {
+        List<StockData> seen = new ArrayList<>();
+        LocalDateTime cursorTime = MAX_DATE;
+        long cursorId = Long.MAX_VALUE;
+        List<StockData> page;
+        do {
+            page = repository.findHistoryPage("AAA", MIN_DATE, cursorTime, cursorId, PageRequest.of(0, 2));
+            seen.addAll(page);
+            if (!page.isEmpty()) {
+                StockData last = page.get(page.size() - 1);
+                cursorTime = last.getLastUpdateTime();
+                cursorId = last.getId();
+            }
+        } while (page.size() == 2);
+
+        assertEquals(ids(oldestFirst.reversed()), ids(seen));
+    }
+
+    @Test
+    void historyPagesStopAtTheStartDate() {
+        List<StockData> page = repository.findHistoryPage("AAA", TIME.plusMinutes(2), MAX_DATE, Long.MAX_VALUE,
+                PageRequest.of(0, 10));
+
+        assertEquals(ids(oldestFirst.subList(4, 7).reversed()), ids(page));
+    }
+
+    @Test
+    void historyChunksContinueThroughEqualTimesOldestFirst() {
+        List<StockData> seen = new ArrayList<>();
+        LocalDateTime cursorTime = MIN_DATE;
+        long cursorId = 0;
+        List<StockData> chunk;
+        do {
+            chunk = repository.findHistoryChunk("AAA", cursorTime, cursorId, PageRequest.of(0, 2));
+            seen.addAll(chunk);
+            if (!chunk.isEmpty()) {
+                StockData last = chunk.get(chunk.size() - 1);
+                cursorTime = last.getLastUpdateTime();
+                cursorId = last.getId();
+            }
+        } while (chunk.size() == 2);
+
+        assertEquals(ids(oldestFirst), ids(seen));
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    void streamsTheRangeOldestFirstInAReadOnlyTransaction() {
+        try (Stream<StockData> history = repository.streamHistory("AAA", TIME.plusMinutes(1), TIME.plusMinutes(2))) {
+            assertEquals(ids(oldestFirst.subList(1, 5)), ids(history.toList()));
+        }
+    }
+}
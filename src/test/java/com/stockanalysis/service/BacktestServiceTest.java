@@ -0,0 +1,148 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BacktestRequest;
+import com.stockanalysis.model.BacktestResult;
+import com.stockanalysis.model.BacktestRun;
+import com.stockanalysis.model.BacktestTrade;
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.repository.StockBarRepository;
+import com.stockanalysis.repository.StockDataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the RSI strategy over daily bars with a known shape: 15 falling closes, so RSI(14) is 0
+ * on the first bar it is defined, then steady gains that lift Wilder's RSI above 70 on the
+ * sixth rising bar. Signals must be filled at the close of the bar after the signal.
+ * Interrupting the caller must cancel the sweep rather than wait for it.
+ */
+class BacktestServiceTest {
+    private static final LocalDateTime DAY0 = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+    private StockBarRepository stockBarRepository;
+    private BacktestService service;
+
+    @BeforeEach
+    void setUp() {
+        stockBarRepository = mock(StockBarRepository.class);
+        service = new BacktestService(mock(StockDataRepository.class), stockBarRepository, mock(TickArchive.class),
+                2, 1000, 100, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    /** Closes 100, 99, ..., 86 on days 0-14, then +5 per day; days from {@code crashFrom} on close at 1. */
+    private static List<StockBar> bars(String symbol, int crashFrom) {
+        List<StockBar> bars = new ArrayList<>();
+        for (int day = 0; day < 35; day++) {
+            double close = day <= 14 ? 100 - day : 86 + 5 * (day - 14);
+            if (day >= crashFrom) {
+                close = 1;
+            }
+            StockBar bar = new StockBar();
+            bar.setSymbol(symbol);
+            bar.setResolution(BarResolution.ONE_DAY);
+            bar.setBucketStart(DAY0.plusDays(day));
+            bar.setOpen(BigDecimal.valueOf(close));
+            bar.setHigh(BigDecimal.valueOf(close));
+            bar.setLow(BigDecimal.valueOf(close));
+            bar.setClose(BigDecimal.valueOf(close));
+            bar.setVolume(1_000L);
+            bars.add(bar);
+        }
+        return bars;
+    }
+
+    private BacktestRun run(String symbol) {
+        BacktestResult result = service.run(new BacktestRequest(List.of(symbol), "rsi",
+                List.of(Map.of("oversold", 30.0, "overbought", 70.0)), "1d", null, null, 100_000.0, 0.0));
+        assertEquals(List.of(), result.failedSymbols());
+        return result.runs().get(0);
+    }
+
+    @Test
+    void fillsSignalsAtTheNextBarsClose() {
+        when(stockBarRepository.findBars(eq("UP"), eq(BarResolution.ONE_DAY), any(), any()))
+                .thenReturn(bars("UP", Integer.MAX_VALUE));
+
+        BacktestRun run = run("UP");
+
+        assertEquals(35, run.bars());
+        assertEquals(1, run.tradeCount());
+        BacktestTrade trade = run.trades().get(0);
+        // BUY on day 14 (RSI 0), filled on day 15; SELL on day 20 (RSI ~73.7), filled on day 21
+        assertEquals(DAY0.plusDays(15), trade.entryTime());
+        assertEquals(91, trade.entryPrice());
+        assertEquals(DAY0.plusDays(21), trade.exitTime());
+        assertEquals(121, trade.exitPrice());
+        assertEquals(100_000.0 / 91 * 121, run.finalEquity(), 1e-6);
+    }
+
+    @Test
+    void laterBarsDoNotChangeEarlierTrades() {
+        when(stockBarRepository.findBars(eq("UP"), eq(BarResolution.ONE_DAY), any(), any()))
+                .thenReturn(bars("UP", Integer.MAX_VALUE));
+        // Identical up to the exit fill, then a crash a look-ahead would have traded on
+        when(stockBarRepository.findBars(eq("CRASH"), eq(BarResolution.ONE_DAY), any(), any()))
+                .thenReturn(bars("CRASH", 22));
+
+        BacktestTrade expected = run("UP").trades().get(0);
+        BacktestRun crash = run("CRASH");
+
+        assertEquals(expected, crash.trades().get(0));
+        assertEquals(2, crash.tradeCount());
+    }
+
+    @Test
+    void interruptingTheCallerCancelsTheSweep() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(stockBarRepository.findBars(eq("SLOW"), eq(BarResolution.ONE_DAY), any(), any())).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return bars("SLOW", Integer.MAX_VALUE);
+        });
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        Thread caller = new Thread(() -> {
+            try {
+                run("SLOW");
+            } catch (Throwable e) {
+                thrown.set(e);
+            }
+        });
+        caller.start();
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        caller.interrupt();
+        caller.join(5_000);
+
+        // The caller returns while the load is still blocked, instead of waiting for the sweep
+        assertFalse(caller.isAlive());
+        assertInstanceOf(CancellationException.class, thrown.get());
+        release.countDown();
+    }
+}
@@ -0,0 +1,141 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockBarRepository;
+import com.stockanalysis.repository.StockDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rolls up ticks from mocked repositories. Saved bars are copied as they are written, and no
+ * bars exist beforehand, so every run's output is exactly what it aggregated.
+ */
+class BarRollupServiceTest {
+    private static final LocalDateTime TEN = LocalDate.now().atTime(10, 0);
+
+    private StockDataRepository stockDataRepository;
+    private StockBarRepository stockBarRepository;
+    private LatestSnapshotStore latestSnapshotStore;
+    private BarRollupService service;
+    private final List<StockBar> saved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        stockDataRepository = mock(StockDataRepository.class);
+        stockBarRepository = mock(StockBarRepository.class);
+        latestSnapshotStore = new LatestSnapshotStore(stockDataRepository);
+        when(stockBarRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<StockBar> bars = invocation.getArgument(0);
+            bars.forEach(saved::add);
+            return List.of();
+        });
+        service = new BarRollupService(stockDataRepository, stockBarRepository, latestSnapshotStore, 7, 30, 365);
+    }
+
+    private static StockData tick(String symbol, LocalDateTime time, long volume) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setLastUpdateTime(time);
+        stockData.setCurrentPrice(BigDecimal.TEN);
+        stockData.setVolume(volume);
+        return stockData;
+    }
+
+    private List<StockBar> savedMinuteBars() {
+        List<StockBar> bars = saved.stream().filter(bar -> bar.getResolution() == BarResolution.ONE_MINUTE).toList();
+        saved.clear();
+        return bars;
+    }
+
+    @Test
+    void backfillsEachSymbolFromItsOldestTickAndSeedsVolumeAcrossRuns() {
+        // AAA is stamped by its exchange hours behind BBB; a global watermark would skip it
+        StockData a1 = tick("AAA", TEN.minusHours(3), 100);
+        StockData a2 = tick("AAA", TEN.minusHours(3).plusSeconds(70), 150);
+        StockData b1 = tick("BBB", TEN, 1_000);
+        when(stockDataRepository.findFirstUpdateTime("AAA")).thenReturn(a1.getLastUpdateTime());
+        when(stockDataRepository.findFirstUpdateTime("BBB")).thenReturn(b1.getLastUpdateTime());
+        when(stockDataRepository.streamAllSince(TEN.minusHours(3))).thenReturn(List.of(a1, a2, b1).stream());
+        latestSnapshotStore.update(a2);
+        latestSnapshotStore.update(b1);
+
+        service.rollUp();
+
+        List<StockBar> first = savedMinuteBars();
+        assertEquals(3, first.size());
+        assertEquals(50, first.get(1).getVolume());
+
+        // Only AAA has new ticks; the run resumes at its open minute and the first tick's delta
+        // is taken against the tick before that minute
+        StockData a3 = tick("AAA", TEN.minusHours(3).plusSeconds(100), 170);
+        when(stockDataRepository.streamAllSince(a2.getLastUpdateTime().withSecond(0)))
+                .thenReturn(List.of(a2, a3).stream());
+        latestSnapshotStore.update(a3);
+
+        service.rollUp();
+
+        List<StockBar> second = savedMinuteBars();
+        assertEquals(1, second.size());
+        assertEquals("AAA", second.get(0).getSymbol());
+        assertEquals(70, second.get(0).getVolume());
+        assertEquals(2, second.get(0).getSampleCount());
+    }
+
+    @Test
+    void retentionWaitsForTheBackfillAndKeepsUnrolledTicks() {
+        service.applyRetention();
+        verify(stockDataRepository, never()).deleteOlderThan(anyString(), any(), anyInt());
+
+        StockData tick = tick("AAA", TEN, 100);
+        when(stockDataRepository.findFirstUpdateTime("AAA")).thenReturn(TEN);
+        when(stockDataRepository.streamAllSince(TEN)).thenReturn(List.of(tick).stream());
+        latestSnapshotStore.update(tick);
+        service.rollUp();
+
+        LocalDateTime lagging = LocalDate.now().minusDays(10).atTime(15, 0);
+        // Tracked symbols come from the snapshot store, not a DISTINCT scan of the raw table
+        latestSnapshotStore.update(tick("BBB", lagging, 100));
+        latestSnapshotStore.update(tick("CCC", TEN, 100));
+        when(stockBarRepository.findLatestBucketStarts(BarResolution.ONE_MINUTE)).thenReturn(List.of(
+                latestBucket("AAA", TEN), latestBucket("BBB", lagging)));
+
+        service.applyRetention();
+
+        verify(stockDataRepository).deleteOlderThan(eq("AAA"),
+                eq(LocalDate.now().minusDays(7).atStartOfDay()), anyInt());
+        verify(stockDataRepository).deleteOlderThan(eq("BBB"), eq(lagging.toLocalDate().atStartOfDay()), anyInt());
+        verify(stockDataRepository, never()).deleteOlderThan(eq("CCC"), any(), anyInt());
+    }
+
+    private static StockBarRepository.LatestBucket latestBucket(String symbol, LocalDateTime bucketStart) {
+        return new StockBarRepository.LatestBucket() {
+            @Override
+            public String getSymbol() {
+                return symbol;
+            }
+
+            @Override
+            public LocalDateTime getBucketStart() {
+                return bucketStart;
+            }
+        };
+    }
+}
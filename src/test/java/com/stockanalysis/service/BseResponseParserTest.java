@@ -0,0 +1,65 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BseMarketQuote;
+import com.stockanalysis.model.BseQuote;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Decodes recorded {@code StockReachGraph} and {@code GetMarketData} payloads. BSE sends numbers
+ * as strings with Indian digit grouping ({@code "4,12,345"}), and {@code "-"} or nulls when a
+ * scrip has not traded.
+ */
+class BseResponseParserTest {
+    private final BseResponseParser parser = new BseResponseParser();
+
+    private static InputStream resource(String name) {
+        return BseResponseParserTest.class.getResourceAsStream("/bse/" + name);
+    }
+
+    private static void assertDecimal(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> expected + " but was " + actual);
+    }
+
+    @Test
+    void readsARecordedQuote() throws IOException {
+        BseQuote quote = parser.readQuote("500325", resource("stock-reach-graph.json"));
+
+        assertEquals("500325", quote.scripCode());
+        assertDecimal("1248.55", quote.currentPrice());
+        assertDecimal("1255.70", quote.previousClose());
+        assertDecimal("-7.15", quote.change());
+        assertDecimal("-0.57", quote.changePercent());
+        assertDecimal("1259.90", quote.dayHigh());
+        assertDecimal("1243.50", quote.dayLow());
+        assertEquals(412_345L, quote.volume());
+        assertDecimal("51.47", quote.tradedValue());
+    }
+
+    @Test
+    void readsEveryMarketDataRow() throws IOException {
+        List<BseMarketQuote> quotes = parser.readMarketData(resource("market-data.json"));
+
+        assertEquals(2, quotes.size());
+        BseMarketQuote reliance = quotes.get(0);
+        assertEquals("500325", reliance.scripCode());
+        assertEquals("RELIANCE", reliance.symbol());
+        assertDecimal("1248.55", reliance.currentPrice());
+        assertDecimal("-7.15", reliance.change());
+        assertDecimal("-0.57", reliance.changePercent());
+
+        // Numeric code, null name, "-" price, an object where a number belongs and a missing field
+        BseMarketQuote untraded = quotes.get(1);
+        assertEquals("532540", untraded.scripCode());
+        assertEquals("", untraded.symbol());
+        assertDecimal("0", untraded.currentPrice());
+        assertDecimal("0", untraded.change());
+        assertDecimal("0", untraded.changePercent());
+    }
+}
@@ -0,0 +1,96 @@
+package com.stockanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Walks the breaker through its states on a hand-advanced clock.
+ */
+class CircuitBreakerTest {
+    private static final long OPEN_MS = 30_000;
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, OPEN_MS, now::get);
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquirePermission());
+            breaker.recordFailure();
+        }
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresOnly() {
+        fail(2);
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.recordSuccess();
+        // The success reset the count, so two more failures still leave it closed
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(OPEN_MS, breaker.getRetryAfterMillis());
+        advanceMillis(10_000);
+        assertEquals(OPEN_MS - 10_000, breaker.getRetryAfterMillis());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void admitsOneTrialOnceTheOpenPeriodEnds() {
+        fail(3);
+        advanceMillis(OPEN_MS - 1);
+        assertFalse(breaker.tryAcquirePermission());
+
+        advanceMillis(1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        // Only one trial at a time
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(0, breaker.getRetryAfterMillis());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void aFailedTrialReopensForAFullPeriod() {
+        fail(3);
+        advanceMillis(OPEN_MS);
+        assertTrue(breaker.tryAcquirePermission());
+
+        breaker.recordFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(OPEN_MS, breaker.getRetryAfterMillis());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void anIgnoredTrialFreesTheSlotWithoutDecidingTheState() {
+        fail(3);
+        advanceMillis(OPEN_MS);
+        assertTrue(breaker.tryAcquirePermission());
+
+        breaker.recordIgnored();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,177 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.BarResolution;
+import com.stockanalysis.model.CorrelationPair;
+import com.stockanalysis.model.CorrelationResult;
+import com.stockanalysis.model.StockBar;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockBarRepository;
+import com.stockanalysis.repository.StockDataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Builds the matrix from daily bars, advances it incrementally, and checks every pair against
+ * a direct two-pass computation over the same aligned closes. Membership selection above the
+ * symbol cap is checked on its own.
+ */
+class CorrelationServiceTest {
+    private static final int WINDOW = 20;
+    private static final int DAYS = 40;
+    private static final List<String> SYMBOLS = List.of("AAA", "BBB", "CCC", "DDD", "EEE");
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final List<StockBar> bars = new ArrayList<>();
+    // closes[s][d] is the close of SYMBOLS[s] DAYS - d days ago, NaN where it has no bar
+    private final double[][] closes = new double[SYMBOLS.size()][DAYS + 1];
+    private StockBarRepository stockBarRepository;
+    private LatestSnapshotStore latestSnapshotStore;
+    private CorrelationService service;
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(11);
+        for (int s = 0; s < SYMBOLS.size(); s++) {
+            double close = 100;
+            for (int d = 0; d < DAYS; d++) {
+                // Partly shared moves so the pairs are correlated to different degrees
+                close *= 1 + 0.01 * (s * random.nextGaussian() + (SYMBOLS.size() - s) * Math.sin(d));
+                // CCC misses two sessions, which must count as zero returns
+                boolean missing = s == 2 && (d == 25 || d == 35);
+                closes[s][d] = missing ? Double.NaN : close;
+            }
+        }
+        stockBarRepository = mock(StockBarRepository.class);
+        when(stockBarRepository.findAllSince(eq(BarResolution.ONE_DAY), any())).thenAnswer(invocation -> {
+            LocalDateTime since = invocation.getArgument(1);
+            return bars.stream().filter(bar -> !bar.getBucketStart().isBefore(since)).toList();
+        });
+        latestSnapshotStore = new LatestSnapshotStore(mock(StockDataRepository.class));
+        SYMBOLS.forEach(symbol -> latestSnapshotStore.update(quote(symbol, 1_000)));
+        service = new CorrelationService(stockBarRepository, latestSnapshotStore, new SimpleMeterRegistry(),
+                true, "1d", WINDOW, 64, 2, 1.5);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private static StockData quote(String symbol, long volume) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setCurrentPrice(BigDecimal.TEN);
+        stockData.setVolume(volume);
+        stockData.setLastUpdateTime(TODAY.atStartOfDay());
+        return stockData;
+    }
+
+    /** Adds the bars of days {@code from} (inclusive) to {@code to} (exclusive). */
+    private void addBars(int from, int to) {
+        for (int s = 0; s < SYMBOLS.size(); s++) {
+            for (int d = from; d < to; d++) {
+                if (Double.isNaN(closes[s][d])) {
+                    continue;
+                }
+                StockBar bar = new StockBar();
+                bar.setSymbol(SYMBOLS.get(s));
+                bar.setResolution(BarResolution.ONE_DAY);
+                bar.setBucketStart(TODAY.minusDays(DAYS - d).atStartOfDay());
+                bar.setClose(BigDecimal.valueOf(closes[s][d]));
+                bars.add(bar);
+            }
+        }
+    }
+
+    /** The last WINDOW log returns of a symbol up to day {@code end}, carrying its close over missing days. */
+    private double[] returns(int s, int end) {
+        double[] carried = new double[end];
+        for (int d = 0; d < end; d++) {
+            carried[d] = Double.isNaN(closes[s][d]) ? carried[d - 1] : closes[s][d];
+        }
+        double[] returns = new double[WINDOW];
+        for (int w = 0; w < WINDOW; w++) {
+            int d = end - WINDOW + w;
+            returns[w] = Math.log(carried[d] / carried[d - 1]);
+        }
+        return returns;
+    }
+
+    private void assertMatchesBruteForce(int end) {
+        for (int i = 0; i < SYMBOLS.size(); i++) {
+            CorrelationResult result = service.getCorrelations(SYMBOLS.get(i), SYMBOLS.size());
+            assertNotNull(result);
+            assertEquals(WINDOW, result.observations());
+            assertEquals(TODAY.minusDays(DAYS - end + 1).atStartOfDay(), result.asOf());
+            assertEquals(SYMBOLS.size() - 1, result.mostCorrelated().size());
+            double[] x = returns(i, end);
+            for (CorrelationPair pair : result.mostCorrelated()) {
+                double[] y = returns(SYMBOLS.indexOf(pair.symbol()), end);
+                double meanX = 0;
+                double meanY = 0;
+                for (int w = 0; w < WINDOW; w++) {
+                    meanX += x[w] / WINDOW;
+                    meanY += y[w] / WINDOW;
+                }
+                double covariance = 0;
+                double varianceX = 0;
+                double varianceY = 0;
+                for (int w = 0; w < WINDOW; w++) {
+                    covariance += (x[w] - meanX) * (y[w] - meanY) / (WINDOW - 1);
+                    varianceX += (x[w] - meanX) * (x[w] - meanX) / (WINDOW - 1);
+                    varianceY += (y[w] - meanY) * (y[w] - meanY) / (WINDOW - 1);
+                }
+                String label = SYMBOLS.get(i) + "/" + pair.symbol() + " up to day " + end;
+                assertEquals(covariance, pair.covariance(), 1e-12, label);
+                assertEquals(covariance / Math.sqrt(varianceX * varianceY), pair.correlation(), 1e-9, label);
+            }
+        }
+    }
+
+    @Test
+    void incrementalUpdatesMatchADirectComputation() {
+        addBars(0, 30);
+        service.refresh();
+        assertMatchesBruteForce(30);
+
+        // Fewer new bars than the window, so the pair sums are only ever updated incrementally
+        addBars(30, DAYS);
+        service.refresh();
+        assertMatchesBruteForce(DAYS);
+    }
+
+    @Test
+    void membersAreOnlyReplacedByAClearlyLargerOutsider() {
+        List<String> members = List.of("AAA", "BBB");
+        // AAA trades 10,000 and BBB 20,000; CCC is ahead of AAA but within the margin
+        List<StockData> latest = new ArrayList<>(List.of(quote("AAA", 1_000), quote("BBB", 2_000),
+                quote("CCC", 1_400), quote("DDD", 100)));
+        assertEquals(members, CorrelationService.selectUniverse(latest, members, 2, 1.5));
+
+        latest.set(2, quote("CCC", 1_600));
+        assertEquals(List.of("BBB", "CCC"), CorrelationService.selectUniverse(latest, members, 2, 1.5));
+
+        // A member that is no longer tracked frees its seat for the largest outsider
+        latest.remove(1);
+        assertEquals(List.of("AAA", "CCC"), CorrelationService.selectUniverse(latest, members, 2, 1.5));
+
+        // Without members (first build) the most traded symbols are taken
+        assertEquals(List.of("AAA", "CCC"), CorrelationService.selectUniverse(latest, List.of(), 2, 1.5));
+    }
+}
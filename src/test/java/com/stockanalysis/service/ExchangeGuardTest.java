@@ -0,0 +1,242 @@
+package com.stockanalysis.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Drives the guard with a breaker and rate limiter on a hand-advanced clock. Coalescing and
+ * interruption run on real threads, with upstream calls held on a latch until every caller
+ * has joined.
+ */
+class ExchangeGuardTest {
+    private static final int FAILURE_THRESHOLD = 2;
+    private static final long OPEN_MS = 30_000;
+    private static final int WAITERS = 4;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private SimpleMeterRegistry meterRegistry;
+    private ExchangeGuard guard;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        guard = new ExchangeGuard("test", new TokenBucket(10, 10, now::get),
+                new CircuitBreaker(FAILURE_THRESHOLD, OPEN_MS, now::get), 0, meterRegistry);
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private String callFailing(IOException failure) throws IOException {
+        return guard.execute("quote:AAA", () -> {
+            upstreamCalls.incrementAndGet();
+            throw failure;
+        });
+    }
+
+    /** An upstream call that blocks until {@link #release}, then returns or throws {@code outcome}. */
+    private ExchangeGuard.UpstreamCall<String> held(Object outcome) {
+        return () -> {
+            upstreamCalls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                // As ExchangeHttpClient reports an interrupted fetch
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted fetching");
+            }
+            if (outcome instanceof IOException e) {
+                throw e;
+            }
+            return (String) outcome;
+        };
+    }
+
+    private double coalesced() {
+        return meterRegistry.counter("exchange.coalesced", "exchange", "test").count();
+    }
+
+    /** Starts {@code count} callers of one key and returns once all but the first have joined its call. */
+    private List<Future<String>> callTogether(int count, ExchangeGuard.UpstreamCall<String> call) throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        results.add(callers.submit(() -> guard.execute("quote:AAA", call)));
+        while (upstreamCalls.get() == 0) {
+            Thread.sleep(1);
+        }
+        for (int i = 1; i < count; i++) {
+            results.add(callers.submit(() -> guard.execute("quote:AAA", call)));
+        }
+        while (coalesced() < count - 1) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    /** Runs {@code call} under {@code key} on a new thread that records what it threw and whether it kept its interrupt. */
+    private Thread caller(String key, ExchangeGuard.UpstreamCall<String> call,
+                          AtomicReference<IOException> thrown, AtomicBoolean interrupted) {
+        Thread thread = new Thread(() -> {
+            try {
+                guard.execute(key, call);
+            } catch (IOException e) {
+                thrown.set(e);
+            }
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    void identicalCallsShareOneUpstreamCall() throws Exception {
+        List<Future<String>> results = callTogether(1 + WAITERS, held("quote"));
+
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("quote", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, upstreamCalls.get());
+        // Once the call has finished its key is free again
+        assertEquals("next", guard.execute("quote:AAA", () -> "next"));
+    }
+
+    @Test
+    void waitersShareTheFailureWhichCountsOnce() throws Exception {
+        IOException down = new IOException("down");
+        List<Future<String>> results = callTogether(1 + WAITERS, held(down));
+
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(down, e.getCause());
+        }
+        assertEquals(1, upstreamCalls.get());
+        // Every caller saw it, but it was one failed call, short of the threshold of two
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void opensAfterUpstreamFailuresAndProbesAgainLater() throws IOException {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThrows(ExchangeHttpException.class, () -> callFailing(new ExchangeHttpException("unavailable", 503)));
+        }
+        assertTrue(guard.isOpen());
+        assertEquals(0, guard.availablePermits());
+
+        ExchangeUnavailableException rejected = assertThrows(ExchangeUnavailableException.class,
+                () -> callFailing(new IOException("not called")));
+        assertEquals(OPEN_MS, rejected.getRetryAfterMillis());
+        assertEquals(FAILURE_THRESHOLD, upstreamCalls.get());
+
+        advanceMillis(OPEN_MS);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, guard.getState());
+        assertEquals("quote", guard.execute("quote:AAA", () -> "quote"));
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void clientErrorsDoNotCountButThrottlingDoes() {
+        for (int i = 0; i < FAILURE_THRESHOLD * 3; i++) {
+            assertThrows(ExchangeHttpException.class, () -> callFailing(new ExchangeHttpException("not found", 404)));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            assertThrows(ExchangeHttpException.class, () -> callFailing(new ExchangeHttpException("slow down", 429)));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+    }
+
+    @Test
+    void rateLimitedCallsAreRejectedWithoutTouchingTheBreaker() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            guard.execute("quote:" + i, () -> "quote");
+        }
+
+        assertThrows(ExchangeUnavailableException.class, () -> guard.execute("quote:AAA", () -> "quote"));
+        assertEquals(0, guard.availablePermits());
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+
+        advanceMillis(100);
+        assertEquals("quote", guard.execute("quote:AAA", () -> "quote"));
+    }
+
+    @Test
+    void interruptedCallsAreNotBreakerFailures() throws InterruptedException {
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            AtomicReference<IOException> thrown = new AtomicReference<>();
+            AtomicBoolean interrupted = new AtomicBoolean();
+            int calls = upstreamCalls.get();
+            Thread thread = caller("quote:" + i, held("quote"), thrown, interrupted);
+            while (upstreamCalls.get() == calls) {
+                Thread.sleep(1);
+            }
+
+            // What a timed-out controller request does to its upstream thread
+            thread.interrupt();
+            thread.join(5000);
+
+            assertInstanceOf(InterruptedIOException.class, thrown.get());
+            assertTrue(interrupted.get());
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+    }
+
+    @Test
+    void anAbandonedWaiterLeavesTheSharedCallRunning() throws Exception {
+        Future<String> leader = callTogether(1, held("quote")).get(0);
+        AtomicReference<IOException> thrown = new AtomicReference<>();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Thread waiter = caller("quote:AAA", held("unused"), thrown, interrupted);
+        while (coalesced() < 1) {
+            Thread.sleep(1);
+        }
+
+        waiter.interrupt();
+        waiter.join(5000);
+
+        assertInstanceOf(InterruptedIOException.class, thrown.get());
+        assertTrue(interrupted.get());
+        release.countDown();
+        assertEquals("quote", leader.get(5, TimeUnit.SECONDS));
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+    }
+}
@@ -0,0 +1,115 @@
+package com.stockanalysis.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serves bodies of known size from a local stub server, sent chunked without a Content-Length,
+ * and checks that they reach the parser intact and that the body limit holds.
+ */
+class ExchangeHttpClientTest {
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private ExchangeHttpClient httpClient;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        server.setExecutor(serverExecutor);
+        server.start();
+        meterRegistry = new SimpleMeterRegistry();
+        httpClient = new ExchangeHttpClient(meterRegistry, 4, 4, 3000, 10000, MAX_BODY_BYTES);
+    }
+
+    @AfterEach
+    void stopStub() {
+        httpClient.close();
+        server.stop(0);
+        serverExecutor.close();
+    }
+
+    private String serve(String path, byte[] body, boolean gzip) {
+        server.createContext(path, exchange -> respond(exchange, body, gzip));
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body, boolean gzip) throws IOException {
+        if (gzip) {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = gzip ? new GZIPOutputStream(exchange.getResponseBody()) : exchange.getResponseBody()) {
+            // Written in small pieces so the client sees many chunks
+            for (int offset = 0; offset < body.length; offset += 1000) {
+                out.write(body, offset, Math.min(1000, body.length - offset));
+                out.flush();
+            }
+        }
+    }
+
+    private static byte[] pattern(int length) {
+        byte[] body = new byte[length];
+        for (int i = 0; i < length; i++) {
+            body[i] = (byte) (i * 31);
+        }
+        return body;
+    }
+
+    private byte[] fetch(String url) throws IOException {
+        return httpClient.get(url, Map.of(), body -> {
+            ByteArrayOutputStream copy = new ByteArrayOutputStream();
+            body.transferTo(copy);
+            return copy.toByteArray();
+        });
+    }
+
+    @Test
+    void streamsPlainAndGzipBodiesIntoTheParser() throws IOException {
+        byte[] body = pattern(MAX_BODY_BYTES - 1);
+
+        assertArrayEquals(body, fetch(serve("/plain", body, false)));
+        assertArrayEquals(body, fetch(serve("/gzip", body, true)));
+    }
+
+    @Test
+    void failsBodiesLargerThanTheLimit() {
+        String url = serve("/large", pattern(MAX_BODY_BYTES + 1), false);
+
+        IOException e = assertThrows(IOException.class, () -> fetch(url));
+        assertTrue(e.getMessage().contains(String.valueOf(MAX_BODY_BYTES)), e.getMessage());
+    }
+
+    @Test
+    void failsGzipBodiesThatDecodePastTheLimit() {
+        // Compresses to a few hundred bytes, far below the limit on the wire
+        byte[] zeros = new byte[MAX_BODY_BYTES * 4];
+        Arrays.fill(zeros, (byte) 0);
+        String url = serve("/bomb", zeros, true);
+
+        assertThrows(IOException.class, () -> fetch(url));
+        assertEquals(1, meterRegistry.counter("exchange.http.parse.failures", "host", "127.0.0.1").count());
+    }
+}
@@ -0,0 +1,136 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.RecomputeStatus;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recomputes a symbol whose history spans several keyset chunks against a mocked repository
+ * and compares every row with a single sequential pass over the same history.
+ */
+class IndicatorRecomputeServiceTest {
+    private static final int ROWS = 40;
+    private static final int CHUNK_SIZE = 7;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 6, 9, 15);
+
+    private final List<StockData> history = new ArrayList<>();
+    private StockDataRepository repository;
+    private StockService stockService;
+    private LatestSnapshotStore latestSnapshotStore;
+    private IndicatorRecomputeService service;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < ROWS; i++) {
+            StockData row = new StockData();
+            row.setId((long) i + 1);
+            row.setSymbol("AAA");
+            // Two rows share a timestamp, so the cursor has to fall back to the id
+            row.setLastUpdateTime(START.plusMinutes(i == 11 ? 10 : i));
+            row.setCurrentPrice(i == 5 ? null : BigDecimal.valueOf(100 + Math.sin(i) * 5 + i * 0.1));
+            row.setVolume(1_000L + i * 10);
+            // Stale values from an earlier parameter set
+            row.setMa20(BigDecimal.valueOf(999));
+            row.setRsi(BigDecimal.valueOf(999));
+            history.add(row);
+        }
+        history.sort(Comparator.comparing(StockData::getLastUpdateTime).thenComparing(StockData::getId));
+
+        repository = mock(StockDataRepository.class);
+        when(repository.findHistoryChunk(eq("AAA"), any(), anyLong(), any())).thenAnswer(invocation -> {
+            LocalDateTime cursorTime = invocation.getArgument(1);
+            long cursorId = invocation.getArgument(2);
+            Pageable page = invocation.getArgument(3);
+            return history.stream()
+                    .filter(row -> row.getLastUpdateTime().isAfter(cursorTime)
+                            || (row.getLastUpdateTime().equals(cursorTime) && row.getId() > cursorId))
+                    .limit(page.getPageSize())
+                    .toList();
+        });
+        when(repository.findHistoryChunk(eq("BAD"), any(), anyLong(), any()))
+                .thenThrow(new IllegalStateException("connection lost"));
+
+        stockService = mock(StockService.class);
+        when(stockService.newIndicatorState(anyString()))
+                .thenAnswer(invocation -> new BarIndicatorState(null, IndicatorSet.BUILT_IN));
+        latestSnapshotStore = new LatestSnapshotStore(repository);
+        service = new IndicatorRecomputeService(repository, stockService, latestSnapshotStore,
+                mock(PlatformTransactionManager.class), 2, CHUNK_SIZE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private RecomputeStatus awaitFinish() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        RecomputeStatus status = service.getStatus();
+        while (status.running() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            status = service.getStatus();
+        }
+        return status;
+    }
+
+    @Test
+    void recomputesEveryRowAcrossChunksLikeASequentialPass() throws InterruptedException {
+        List<StockData> expected = new ArrayList<>();
+        IndicatorState reference = new IndicatorState();
+        for (StockData row : history) {
+            StockData copy = new StockData();
+            if (row.getCurrentPrice() != null) {
+                copy.setCurrentPrice(row.getCurrentPrice());
+                copy.setVolume(row.getVolume());
+                copy.setLastUpdateTime(row.getLastUpdateTime());
+                reference.update(copy);
+                reference.applyTo(copy);
+            }
+            expected.add(copy);
+        }
+
+        service.start(List.of("AAA", "BAD", "AAA"));
+        RecomputeStatus status = awaitFinish();
+
+        assertFalse(status.running());
+        assertEquals(2, status.totalSymbols());
+        assertEquals(List.of("BAD"), status.failedSymbols());
+        assertEquals("DONE", status.symbols().get("AAA"));
+        assertEquals(ROWS, status.rowsProcessed());
+        for (int i = 0; i < ROWS; i++) {
+            StockData row = history.get(i);
+            for (Indicator indicator : IndicatorSet.BUILT_IN.indicators()) {
+                for (Indicator.Field field : indicator.fields()) {
+                    assertEquals(field.getter().apply(expected.get(i)), field.getter().apply(row),
+                            field.name() + " of row " + i);
+                }
+            }
+        }
+        assertNull(history.get(0).getRsi());
+        assertSame(history.get(ROWS - 1), latestSnapshotStore.get("AAA"));
+        verify(stockService).resetIndicatorState("AAA");
+    }
+}
@@ -0,0 +1,381 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the incremental indicators against a straightforward batch recomputation over the
+ * full history at every period. The series is longer than the 1024-entry price buffer, so
+ * eviction from every rolling window is covered, and contains a flat stretch where the
+ * stochastic range and the loss side of RSI/MFI are zero.
+ */
+class IndicatorStateTest {
+    private static final int BARS = 1500;
+    private static final double TOLERANCE = 1e-6;
+    private static final String[] FIELDS = {
+            "ma20", "ma50", "rsi", "atr", "macd", "signalLine", "macdHistogram",
+            "bollingerUpper", "bollingerMiddle", "bollingerLower", "stochasticK", "stochasticD", "mfi"};
+
+    private static double[] close;
+    private static double[] high;
+    private static double[] low;
+    private static long[] volume;
+    private static List<Double> macds;
+
+    @BeforeAll
+    static void generateSeries() {
+        close = new double[BARS];
+        high = new double[BARS];
+        low = new double[BARS];
+        volume = new long[BARS];
+        Random random = new Random(42);
+        double price = 100;
+        for (int i = 0; i < BARS; i++) {
+            boolean flat = i >= 600 && i < 630;
+            if (!flat) {
+                price = Math.max(1, price * (1 + random.nextGaussian() * 0.02));
+            }
+            close[i] = price;
+            high[i] = flat ? price : price * (1 + random.nextDouble() * 0.01);
+            low[i] = flat ? price : price * (1 - random.nextDouble() * 0.01);
+            volume[i] = 1_000 + random.nextInt(1_000_000);
+        }
+        // A spike that has to leave the 14-period high window again
+        high[900] = close[900] * 3;
+
+        macds = new ArrayList<>();
+        for (int i = 25; i < BARS; i++) {
+            macds.add(macd(i));
+        }
+    }
+
+    @Test
+    void matchesBatchRecomputationAtEveryPeriod() {
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < BARS; i++) {
+            state.update(i, close[i], high[i], low[i], volume[i]);
+            for (String field : FIELDS) {
+                assertClose(reference(field, i), state.value(field), field + " at period " + i);
+            }
+        }
+    }
+
+    @Test
+    void warmUpEndsAtTheExpectedPeriod() {
+        IndicatorState state = new IndicatorState();
+        int[] firstReady = new int[FIELDS.length];
+        Arrays.fill(firstReady, -1);
+        for (int i = 0; i < 60; i++) {
+            state.update(i, close[i], high[i], low[i], volume[i]);
+            for (int f = 0; f < FIELDS.length; f++) {
+                if (firstReady[f] < 0 && !Double.isNaN(state.value(FIELDS[f]))) {
+                    firstReady[f] = i;
+                }
+            }
+        }
+        // Periods are zero-based: ma20 is first available on the 20th close
+        int[] expected = {19, 49, 14, 13, 25, 33, 33, 19, 19, 19, 13, 15, 14};
+        for (int f = 0; f < FIELDS.length; f++) {
+            assertEquals(expected[f], firstReady[f], FIELDS[f]);
+        }
+    }
+
+    @Test
+    void copyIsIndependentOfTheOriginal() {
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < 100; i++) {
+            state.update(i, close[i], high[i], low[i], volume[i]);
+        }
+        double rsi = state.getRsi();
+        double macd = state.getMacd();
+
+        IndicatorState preview = state.copy();
+        preview.update(100, close[100] * 2, high[100] * 2, low[100], volume[100]);
+
+        assertEquals(rsi, state.getRsi());
+        assertEquals(macd, state.getMacd());
+        assertTrue(preview.getRsi() > rsi);
+        assertEquals(100, state.getCount());
+    }
+
+    @Test
+    void previewMatchesACommittedPeriodAndLeavesTheStateUnchanged() {
+        // Runs past the 1024-entry buffer, so previews also overwrite and restore the oldest entry
+        IndicatorState state = new IndicatorState();
+        IndicatorState committed = new IndicatorState();
+        for (int i = 0; i < BARS; i++) {
+            StockData preview = new StockData();
+            state.preview(i, close[i] * 1.01, high[i] * 1.01, low[i], volume[i], preview);
+            StockData expected = new StockData();
+            IndicatorState next = committed.copy();
+            next.update(i, close[i] * 1.01, high[i] * 1.01, low[i], volume[i]);
+            next.applyTo(expected);
+            assertEquals(expected, preview, "preview at period " + i);
+
+            state.update(i, close[i], high[i], low[i], volume[i]);
+            committed.update(i, close[i], high[i], low[i], volume[i]);
+        }
+        assertEquals(BARS, state.getCount());
+        for (String field : FIELDS) {
+            assertClose(reference(field, BARS - 1), state.value(field), field);
+        }
+    }
+
+    @Test
+    void disabledIndicatorsAreNotWritten() {
+        IndicatorState state = new IndicatorState(new IndicatorSet(List.of(new RsiIndicator())));
+        for (int i = 0; i < 60; i++) {
+            state.update(i, close[i], high[i], low[i], volume[i]);
+        }
+        StockData data = new StockData();
+        state.applyTo(data);
+
+        assertEquals(BigDecimal.valueOf(reference("rsi", 59)).setScale(2, RoundingMode.HALF_UP), data.getRsi());
+        assertTrue(Double.isNaN(state.getMa20()));
+        assertEquals(-1, state.getIndicators().fieldIndex("ma20"));
+        assertEquals(state.getRsi(), state.value(state.getIndicators().fieldIndex("rsi")));
+        assertNull(data.getMa20());
+        assertNull(data.getMacd());
+    }
+
+    @Test
+    void clearRemovesEveryBuiltInField() {
+        StockData data = new StockData();
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < 60; i++) {
+            state.update(i, close[i], high[i], low[i], volume[i]);
+        }
+        state.applyTo(data);
+        assertEquals(BigDecimal.class, data.getMfi().getClass());
+
+        IndicatorState.clear(data);
+        for (Indicator indicator : IndicatorSet.BUILT_IN.indicators()) {
+            for (Indicator.Field field : indicator.fields()) {
+                assertNull(field.getter().apply(data), field.name());
+            }
+        }
+    }
+
+    @Test
+    void updateFromStockDataFallsBackToThePriceForMissingFields() {
+        IndicatorState state = new IndicatorState();
+        for (int i = 0; i < 20; i++) {
+            StockData quote = new StockData();
+            quote.setCurrentPrice(BigDecimal.valueOf(close[i]));
+            state.update(quote);
+        }
+
+        assertEquals(20, state.getCount());
+        assertClose(sma(19, 20), state.getMa20(), "ma20");
+        // Without volume there is no money flow to divide by
+        assertTrue(Double.isNaN(state.getMfi()));
+    }
+
+    private static void assertClose(double expected, double actual, String message) {
+        if (Double.isNaN(expected)) {
+            assertTrue(Double.isNaN(actual), message + ": expected NaN but was " + actual);
+        } else {
+            assertEquals(expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)), message);
+        }
+    }
+
+    // Batch reference: every value is recomputed from the first period up to period i
+
+    private static double reference(String field, int i) {
+        return switch (field) {
+            case "ma20" -> sma(i, 20);
+            case "ma50" -> sma(i, 50);
+            case "rsi" -> rsi(i);
+            case "atr" -> atr(i);
+            case "macd" -> macd(i);
+            case "signalLine" -> signal(i);
+            case "macdHistogram" -> macd(i) - signal(i);
+            case "bollingerUpper" -> sma(i, 20) + 2 * deviation(i, 20);
+            case "bollingerMiddle" -> sma(i, 20);
+            case "bollingerLower" -> sma(i, 20) - 2 * deviation(i, 20);
+            case "stochasticK" -> stochasticK(i);
+            case "stochasticD" -> stochasticD(i);
+            case "mfi" -> mfi(i);
+            default -> throw new IllegalArgumentException(field);
+        };
+    }
+
+    private static double sma(int i, int period) {
+        if (i + 1 < period) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (int j = i - period + 1; j <= i; j++) {
+            sum += close[j];
+        }
+        return sum / period;
+    }
+
+    private static double deviation(int i, int period) {
+        if (i + 1 < period) {
+            return Double.NaN;
+        }
+        double mean = sma(i, period);
+        double sumSquares = 0;
+        for (int j = i - period + 1; j <= i; j++) {
+            sumSquares += (close[j] - mean) * (close[j] - mean);
+        }
+        return Math.sqrt(sumSquares / period);
+    }
+
+    /** Wilder RSI: seeded with the mean gain/loss of the first 14 changes, then smoothed. */
+    private static double rsi(int i) {
+        int period = 14;
+        if (i < period) {
+            return Double.NaN;
+        }
+        double avgGain = 0;
+        double avgLoss = 0;
+        for (int j = 1; j <= period; j++) {
+            avgGain += Math.max(close[j] - close[j - 1], 0);
+            avgLoss += Math.max(close[j - 1] - close[j], 0);
+        }
+        avgGain /= period;
+        avgLoss /= period;
+        for (int j = period + 1; j <= i; j++) {
+            avgGain = (avgGain * (period - 1) + Math.max(close[j] - close[j - 1], 0)) / period;
+            avgLoss = (avgLoss * (period - 1) + Math.max(close[j - 1] - close[j], 0)) / period;
+        }
+        if (avgLoss == 0) {
+            return avgGain == 0 ? 50 : 100;
+        }
+        return 100 - 100 / (1 + avgGain / avgLoss);
+    }
+
+    private static double trueRange(int j) {
+        if (j == 0) {
+            return high[0] - low[0];
+        }
+        return Math.max(high[j] - low[j],
+                Math.max(Math.abs(high[j] - close[j - 1]), Math.abs(low[j] - close[j - 1])));
+    }
+
+    /** Wilder ATR: seeded with the mean of the first 14 true ranges, then smoothed. */
+    private static double atr(int i) {
+        int period = 14;
+        if (i + 1 < period) {
+            return Double.NaN;
+        }
+        double atr = 0;
+        for (int j = 0; j < period; j++) {
+            atr += trueRange(j);
+        }
+        atr /= period;
+        for (int j = period; j <= i; j++) {
+            atr = (atr * (period - 1) + trueRange(j)) / period;
+        }
+        return atr;
+    }
+
+    /** EMA of {@code values[0..i]} seeded with the SMA of the first {@code period} values. */
+    private static double ema(List<Double> values, int i, int period) {
+        if (i + 1 < period) {
+            return Double.NaN;
+        }
+        double ema = 0;
+        for (int j = 0; j < period; j++) {
+            ema += values.get(j);
+        }
+        ema /= period;
+        double multiplier = 2.0 / (period + 1);
+        for (int j = period; j <= i; j++) {
+            ema = (values.get(j) - ema) * multiplier + ema;
+        }
+        return ema;
+    }
+
+    private static List<Double> closes() {
+        List<Double> closes = new ArrayList<>(BARS);
+        for (double c : close) {
+            closes.add(c);
+        }
+        return closes;
+    }
+
+    private static double macd(int i) {
+        if (i < 25) {
+            return Double.NaN;
+        }
+        List<Double> closes = closes();
+        return ema(closes, i, 12) - ema(closes, i, 26);
+    }
+
+    private static double signal(int i) {
+        if (i < 25) {
+            return Double.NaN;
+        }
+        return ema(macds, i - 25, 9);
+    }
+
+    private static double stochasticK(int i) {
+        int period = 14;
+        if (i + 1 < period) {
+            return Double.NaN;
+        }
+        double highest = Double.NEGATIVE_INFINITY;
+        double lowest = Double.POSITIVE_INFINITY;
+        for (int j = i - period + 1; j <= i; j++) {
+            highest = Math.max(highest, high[j]);
+            lowest = Math.min(lowest, low[j]);
+        }
+        double range = highest - lowest;
+        return range > 0 ? (close[i] - lowest) * 100 / range : Double.NaN;
+    }
+
+    /** Mean of the last three defined %K values, while the current %K is defined. */
+    private static double stochasticD(int i) {
+        if (Double.isNaN(stochasticK(i))) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        int found = 0;
+        for (int j = i; j >= 0 && found < 3; j--) {
+            double k = stochasticK(j);
+            if (!Double.isNaN(k)) {
+                sum += k;
+                found++;
+            }
+        }
+        return found == 3 ? sum / 3 : Double.NaN;
+    }
+
+    private static double typicalPrice(int j) {
+        return (high[j] + low[j] + close[j]) / 3;
+    }
+
+    /** Money flow of the last 14 periods, each classified against the previous typical price. */
+    private static double mfi(int i) {
+        int period = 14;
+        if (i < period) {
+            return Double.NaN;
+        }
+        double positive = 0;
+        double negative = 0;
+        for (int j = i - period + 1; j <= i; j++) {
+            double flow = typicalPrice(j) * volume[j];
+            if (typicalPrice(j) > typicalPrice(j - 1)) {
+                positive += flow;
+            } else {
+                negative += flow;
+            }
+        }
+        return negative > 0 ? 100 - 100 / (1 + positive / negative) : Double.NaN;
+    }
+}
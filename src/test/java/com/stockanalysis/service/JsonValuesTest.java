@@ -0,0 +1,91 @@
+package com.stockanalysis.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Decodes single values the way the exchange parsers see them, each as the value of a field
+ * followed by a sentinel field, so a value that is not fully skipped shows up as a wrong
+ * next token.
+ */
+class JsonValuesTest {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /** Positions a parser on the value of {@code {"v": value, "next": 1}}. */
+    private static JsonParser at(String value) throws IOException {
+        JsonParser parser = JSON.createParser("{\"v\":" + value + ",\"next\":1}");
+        parser.nextToken();
+        parser.nextToken();
+        parser.nextToken();
+        return parser;
+    }
+
+    private static void assertAtSentinel(JsonParser parser) throws IOException {
+        parser.nextToken();
+        assertEquals("next", parser.currentName());
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "1234                | 1234",
+            "-12                 | -12",
+            "12.9                | 12",
+            "'\"1,234,567\"'     | 1234567",
+            "'\"4,12,345\"'      | 412345",
+            "'\"-12\"'           | -12",
+            "'\"+12\"'           | 12",
+            "'\"-1,250.75\"'     | -1250",
+            "'\"-\"'             | 0",
+            "'\"\"'              | 0",
+            "'\"12a\"'           | 0",
+            "'\"1-2\"'           | 0",
+            "null                | 0",
+            "'{\"a\":[1,2]}'     | 0",
+            "'[1,{\"a\":2}]'     | 0"
+    })
+    void readsLongs(String json, long expected) throws IOException {
+        JsonParser parser = at(json);
+        assertEquals(expected, JsonValues.readLong(parser));
+        assertAtSentinel(parser);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "1248.55             | 1248.55",
+            "-7.15               | -7.15",
+            "'\"1,248.55\"'      | 1248.55",
+            "'\"1,00,250.5\"'    | 100250.5",
+            "'\"-0.57\"'         | -0.57",
+            "'\"-\"'             | 0",
+            "'\"n/a\"'           | 0",
+            "null                | 0",
+            "'{\"min\":1}'       | 0"
+    })
+    void readsDecimals(String json, String expected) throws IOException {
+        JsonParser parser = at(json);
+        assertEquals(0, new BigDecimal(expected).compareTo(JsonValues.readDecimal(parser)));
+        assertAtSentinel(parser);
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "'\"RELIANCE\"'      | RELIANCE",
+            "532540              | 532540",
+            "true                | true",
+            "null                | ''",
+            "'[\"EQ\"]'          | ''",
+            "'{\"a\":\"b\"}'     | ''"
+    })
+    void readsText(String json, String expected) throws IOException {
+        JsonParser parser = at(json);
+        assertEquals(expected, JsonValues.readText(parser));
+        assertAtSentinel(parser);
+    }
+}
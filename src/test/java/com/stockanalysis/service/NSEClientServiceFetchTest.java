@@ -0,0 +1,225 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Runs the concurrent NSE quote fan-out against a local stub server that answers every quote
+ * after a fixed latency, and checks that failing and hanging symbols only cost their own result.
+ * The index snapshot is served with {@code HOLD} symbols, whose quotes wait on a latch, so the
+ * detail refresh can be held in flight while the snapshot returns.
+ */
+class NSEClientServiceFetchTest {
+    private static final long LATENCY_MS = 20;
+    private static final long FETCH_TIMEOUT_MS = 1000;
+    private static final int CONCURRENCY = 64;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final CountDownLatch releaseHanging = new CountDownLatch(1);
+    private final CountDownLatch releaseHeld = new CountDownLatch(1);
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SimpleMeterRegistry meterRegistry;
+    private ExchangeHttpClient httpClient;
+    private StockDataWriter writer;
+    private NSEClientService service;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        serverExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/quote-equity", this::quote);
+        server.createContext("/api/equity-stockIndices", this::index);
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        httpClient = new ExchangeHttpClient(meterRegistry, CONCURRENCY, CONCURRENCY, 3000, 10000, 16_777_216);
+        writer = mock(StockDataWriter.class);
+        service = newService(true, "detail");
+    }
+
+    private NSEClientService newService(boolean parallel, String indexIngestionMode) {
+        // Rate limit and circuit breaker are set wide open so they never interfere with the fan-out
+        return new NSEClientService(httpClient, meterRegistry, writer, mock(LatestSnapshotStore.class),
+                "http://127.0.0.1:" + server.getAddress().getPort() + "/api/",
+                parallel, CONCURRENCY, FETCH_TIMEOUT_MS,
+                1_000_000, 10_000, 2000, 60_000,
+                10_000, 30_000,
+                indexIngestionMode, 86_400_000, 900_000);
+    }
+
+    @AfterEach
+    void stopStub() {
+        releaseHanging.countDown();
+        releaseHeld.countDown();
+        httpClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    private void quote(HttpExchange exchange) throws IOException {
+        String symbol = exchange.getRequestURI().getQuery().substring("symbol=".length());
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            if (symbol.startsWith("HANG")) {
+                releaseHanging.await();
+            } else if (symbol.startsWith("HOLD")) {
+                releaseHeld.await();
+            } else {
+                Thread.sleep(LATENCY_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        if (symbol.startsWith("FAIL")) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = ("{\"info\":{\"symbol\":\"" + symbol + "\",\"companyName\":\"" + symbol + " Ltd\"},"
+                + "\"priceInfo\":{\"lastPrice\":101.5,\"open\":100,\"previousClose\":100,\"change\":1.5,"
+                + "\"pChange\":1.5,\"vwap\":100.8,\"intraDayHighLow\":{\"min\":99.5,\"max\":102}},"
+                + "\"metadata\":{\"lastUpdateTime\":\"17-Oct-2026 15:30:00\"}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void index(HttpExchange exchange) throws IOException {
+        StringBuilder json = new StringBuilder("{\"name\":\"NIFTY 50\",\"data\":[")
+                .append("{\"priority\":1,\"symbol\":\"NIFTY 50\",\"lastPrice\":22397.2}");
+        for (String symbol : symbols("HOLD", 3)) {
+            json.append(",{\"priority\":0,\"symbol\":\"").append(symbol).append("\",\"lastPrice\":101.5,")
+                    .append("\"lastUpdateTime\":\"17-Oct-2026 15:30:00\"}");
+        }
+        byte[] body = json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static List<String> symbols(String prefix, int count) {
+        return IntStream.range(0, count).mapToObj(i -> prefix + i).toList();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {50, 500, 2000})
+    void fansOutConcurrentlyWithinTheConfiguredLimit(int count) {
+        int fetched = service.fetchQuotes(symbols("SYM", count));
+
+        assertEquals(count, fetched);
+        verify(writer, times(count)).submit(any(StockData.class));
+        // The stub sees overlapping requests, but never more than the fan-out allows
+        assertTrue(peakInFlight.get() > 1, "requests were not concurrent");
+        assertTrue(peakInFlight.get() <= CONCURRENCY, "peak of " + peakInFlight.get() + " in flight");
+    }
+
+    @Test
+    void sequentialFetchKeepsOneRequestInFlight() {
+        NSEClientService sequential = newService(false, "detail");
+
+        assertEquals(10, sequential.fetchQuotes(symbols("SYM", 10)));
+        assertEquals(1, peakInFlight.get());
+    }
+
+    @Test
+    void returnsPartialResultsWhenSomeSymbolsFail() {
+        List<String> symbols = new ArrayList<>(symbols("SYM", 45));
+        symbols.addAll(symbols("FAIL", 3));
+        symbols.addAll(symbols("HANG", 2));
+
+        // Hanging symbols are abandoned after the per-symbol timeout; the stub never answers them
+        int fetched = assertTimeoutPreemptively(Duration.ofMillis(FETCH_TIMEOUT_MS * 10),
+                () -> service.fetchQuotes(symbols));
+
+        assertEquals(45, fetched);
+        verify(writer, times(45)).submit(any(StockData.class));
+    }
+
+    @Test
+    void indexSnapshotReturnsWithoutWaitingForTheDetailRefresh() throws Exception {
+        NSEClientService snapshots = newService(true, "snapshot");
+
+        // The held detail fetches would keep a blocking refresh busy until the fetch timeout
+        List<Map<String, Object>> first = assertTimeoutPreemptively(Duration.ofMillis(FETCH_TIMEOUT_MS / 2),
+                snapshots::getAllStockDetails);
+        assertEquals(4, first.size());
+        while (inFlight.get() < 3) {
+            Thread.sleep(1);
+        }
+        assertTrue(snapshots.isRefreshingDetails());
+
+        // A snapshot taken meanwhile leaves the running refresh to finish alone
+        snapshots.getAllStockDetails();
+        releaseHeld.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (snapshots.isRefreshingDetails() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertFalse(snapshots.isRefreshingDetails());
+        assertEquals(1, meterRegistry.timer("exchange.fanout", "exchange", "nse").count());
+
+        // The refreshed details go into the next snapshot, which has nothing left to refresh
+        snapshots.getAllStockDetails();
+        assertFalse(snapshots.isRefreshingDetails());
+        assertEquals(1, meterRegistry.timer("exchange.fanout", "exchange", "nse").count());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<StockData>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(writer, times(3)).submitAll(batches.capture());
+        verify(writer, never()).submit(any(StockData.class));
+        List<Collection<StockData>> stored = batches.getAllValues();
+        for (StockData row : stored.get(0)) {
+            assertNull(row.getVwap());
+        }
+        assertEquals(3, stored.get(2).size());
+        for (StockData row : stored.get(2)) {
+            assertEquals(0, new BigDecimal("100.8").compareTo(row.getVwap()));
+        }
+    }
+}
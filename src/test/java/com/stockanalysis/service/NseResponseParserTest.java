@@ -0,0 +1,124 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.NseIndexQuote;
+import com.stockanalysis.model.NseQuote;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decodes recorded {@code quote-equity} and {@code equity-stockIndices} payloads. The index
+ * payload's last constituent carries the irregular values NSE sends: comma-grouped strings,
+ * {@code "-"}, nulls and missing fields.
+ */
+class NseResponseParserTest {
+    private final NseResponseParser parser = new NseResponseParser();
+
+    private static InputStream resource(String name) {
+        return NseResponseParserTest.class.getResourceAsStream("/nse/" + name);
+    }
+
+    private static InputStream json(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertDecimal(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), () -> expected + " but was " + actual);
+    }
+
+    @Test
+    void readsARecordedQuote() throws IOException {
+        NseQuote quote = parser.readQuote(resource("quote-equity.json"));
+
+        assertEquals("RELIANCE", quote.symbol());
+        assertEquals("Reliance Industries Limited", quote.companyName());
+        assertEquals("Refineries & Marketing", quote.industry());
+        assertDecimal("1248.55", quote.currentPrice());
+        assertDecimal("1252.0", quote.open());
+        assertDecimal("1255.7", quote.previousClose());
+        assertDecimal("-7.15", quote.change());
+        assertDecimal("-0.5694", quote.changePercent());
+        assertDecimal("1249.93", quote.vwap());
+        // Nested ranges, and circuit limits sent as strings
+        assertDecimal("1243.6", quote.dayLow());
+        assertDecimal("1259.85", quote.dayHigh());
+        assertDecimal("1156.0", quote.weekLow());
+        assertDecimal("1608.8", quote.weekHigh());
+        assertDecimal("1130.15", quote.lowerCircuit());
+        assertDecimal("1381.25", quote.upperCircuit());
+        assertEquals(10_482_134L, quote.volume());
+        // Taken from metadata, not from the pre-open section that also has one
+        assertEquals("14-Mar-2025 16:00:00", quote.lastUpdateTime());
+    }
+
+    @Test
+    void readsTheIndexRowAndItsConstituents() throws IOException {
+        List<NseIndexQuote> quotes = parser.readIndex(resource("equity-stockIndices.json"));
+
+        assertEquals(List.of("NIFTY 50", "RELIANCE", "TCS"), quotes.stream().map(NseIndexQuote::symbol).toList());
+        NseIndexQuote index = quotes.get(0);
+        assertTrue(index.isIndexRow());
+        assertEquals(1, index.priority());
+        assertDecimal("22397.2", index.currentPrice());
+        assertEquals(257_409_853L, index.volume());
+        assertEquals("", index.companyName());
+
+        NseIndexQuote reliance = quotes.get(1);
+        assertFalse(reliance.isIndexRow());
+        // From the nested meta object, whose own nested objects and arrays are skipped
+        assertEquals("Reliance Industries Limited", reliance.companyName());
+        assertEquals("Refineries & Marketing", reliance.industry());
+        assertDecimal("-7.15", reliance.change());
+        assertDecimal("1608.8", reliance.yearHigh());
+        assertEquals("14-Mar-2025 15:59:58", reliance.lastUpdateTime());
+    }
+
+    @Test
+    void decodesGroupedDashNullAndMissingValues() throws IOException {
+        NseIndexQuote tcs = parser.readIndex(resource("equity-stockIndices.json")).get(2);
+
+        assertDecimal("3512.40", tcs.currentPrice());
+        assertDecimal("3530.10", tcs.dayHigh());
+        assertEquals(1_234_567L, tcs.volume());
+        assertDecimal("-12", tcs.change());
+        assertDecimal("0", tcs.changePercent());
+        assertDecimal("0", tcs.yearHigh());
+        assertDecimal("0", tcs.yearLow());
+        assertDecimal("0", tcs.dayLow());
+        assertEquals("", tcs.lastUpdateTime());
+        assertEquals("Tata Consultancy Services Limited", tcs.companyName());
+    }
+
+    @Test
+    void skipsUnknownAndMistypedSections() throws IOException {
+        NseQuote quote = parser.readQuote(json("{\"extra\":{\"a\":[1,{\"b\":2}]},"
+                + "\"info\":[\"not\",\"an\",\"object\"],"
+                + "\"priceInfo\":{\"lastPrice\":\"1,00,250.5\",\"unknown\":{\"lastPrice\":1},"
+                + "\"intraDayHighLow\":\"-\",\"weekHighLow\":{\"min\":null,\"max\":\"2,000\"}},"
+                + "\"metadata\":{\"lastUpdateTime\":\"17-Oct-2026 15:30:00\"}}"));
+
+        assertEquals("", quote.symbol());
+        assertDecimal("100250.5", quote.currentPrice());
+        assertDecimal("0", quote.dayLow());
+        assertDecimal("0", quote.dayHigh());
+        assertDecimal("0", quote.weekLow());
+        assertDecimal("2000", quote.weekHigh());
+        assertEquals("17-Oct-2026 15:30:00", quote.lastUpdateTime());
+    }
+
+    @Test
+    void nonObjectResponsesDecodeToEmpty() throws IOException {
+        assertEquals(List.of(), parser.readIndex(json("[]")));
+        assertEquals(List.of(), parser.readIndex(json("{\"data\":{}}")));
+        assertEquals("", parser.readQuote(json("null")).symbol());
+    }
+}
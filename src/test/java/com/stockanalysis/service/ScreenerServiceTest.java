@@ -0,0 +1,100 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.ScreenRequest;
+import com.stockanalysis.model.ScreenResult;
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.model.StockSnapshotView;
+import com.stockanalysis.repository.StockDataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Screens a snapshot store that is updated between screens, and checks the bounded top-k
+ * selection against a plain sort of the same rows.
+ */
+class ScreenerServiceTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 1, 6, 10, 0);
+
+    private LatestSnapshotStore store;
+    private ScreenerService screener;
+
+    @BeforeEach
+    void setUp() {
+        store = new LatestSnapshotStore(mock(StockDataRepository.class));
+        store.update(quote("EARLY", 50.0, 10, NOW));
+        screener = new ScreenerService(store, new SimpleMeterRegistry(), 100, 1000);
+    }
+
+    private static StockData quote(String symbol, Double rsi, long volume, LocalDateTime time) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setCurrentPrice(BigDecimal.TEN);
+        stockData.setRsi(rsi != null ? BigDecimal.valueOf(rsi) : null);
+        stockData.setVolume(volume);
+        stockData.setLastUpdateTime(time);
+        return stockData;
+    }
+
+    private ScreenResult screen(String sortBy, boolean descending, int limit) {
+        return screener.screen(new ScreenRequest(
+                List.of(new ScreenRequest.Condition("currentPrice", ">", 0.0, null)), sortBy, descending, limit));
+    }
+
+    private static List<String> symbols(ScreenResult result) {
+        return result.results().stream().map(StockSnapshotView::getSymbol).toList();
+    }
+
+    @Test
+    void screensSeeEachUpdateWithoutLosingOtherSymbols() {
+        store.update(quote("AAA", 25.0, 10, NOW));
+        store.update(quote("BBB", 40.0, 10, NOW));
+        assertEquals(List.of("AAA", "BBB"), symbols(screener.screen(new ScreenRequest(
+                List.of(new ScreenRequest.Condition("rsi", "<", 45.0, null)), "rsi", false, 10))));
+
+        store.update(quote("AAA", 70.0, 10, NOW.plusMinutes(1)));
+        // An older quote arriving late must not replace the newer one
+        store.update(quote("AAA", 10.0, 10, NOW));
+        ScreenResult result = screener.screen(new ScreenRequest(
+                List.of(new ScreenRequest.Condition("rsi", "<", 45.0, null)), "rsi", false, 10));
+
+        assertEquals(3, result.scanned());
+        assertEquals(List.of("BBB"), symbols(result));
+    }
+
+    @Test
+    void topKMatchesAFullSortWithMissingValuesLast() {
+        Random random = new Random(7);
+        List<StockData> quotes = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // Ties and missing values in both directions
+            Double rsi = i % 17 == 0 ? null : (double) random.nextInt(60);
+            StockData quote = quote(String.format("S%03d", i), rsi, i, NOW);
+            quotes.add(quote);
+            store.update(quote);
+        }
+        quotes.add(0, store.get("EARLY"));
+
+        for (boolean descending : new boolean[]{false, true}) {
+            Comparator<StockData> byRsi = Comparator.comparing(StockData::getRsi,
+                    Comparator.nullsLast(descending ? Comparator.<BigDecimal>reverseOrder() : Comparator.naturalOrder()));
+            for (int limit : new int[]{1, 10, 100, 1000}) {
+                List<BigDecimal> expected = quotes.stream().sorted(byRsi).limit(limit).map(StockData::getRsi).toList();
+                List<BigDecimal> actual = screen("rsi", descending, limit).results().stream()
+                        .map(view -> store.get(view.getSymbol()).getRsi())
+                        .toList();
+                assertEquals(expected, actual, "descending=" + descending + ", limit=" + limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.stockanalysis.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Expiry and eviction on a hand-advanced clock, and single-flight loading with real threads
+ * held on a latch until every caller is inside the load or waiting on it.
+ */
+class SnapshotCacheTest {
+    private static final long TTL_MS = 1000;
+    private static final int CALLERS = 8;
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger loaderCalls = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<Thread> callerThreads = new CopyOnWriteArrayList<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task);
+        callerThreads.add(thread);
+        return thread;
+    });
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private SnapshotCache<String> cache(int maxSize) {
+        return new SnapshotCache<>(TTL_MS, maxSize, now::get);
+    }
+
+    private String load(String key) {
+        return key + "@" + loaderCalls.incrementAndGet();
+    }
+
+    /** A loader that blocks until {@link #release}, then returns a value or throws {@code failure}. */
+    private Function<String, String> held(RuntimeException failure) {
+        return key -> {
+            loaderCalls.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return key + "@loaded";
+        };
+    }
+
+    /** Starts {@link #CALLERS} concurrent gets of one key and returns once all are parked in the loader or behind it. */
+    private List<Future<String>> missTogether(SnapshotCache<String> cache, Function<String, String> loader)
+            throws InterruptedException {
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> cache.get("AAA", loader)));
+        }
+        while (cache.missCount() < CALLERS
+                || !callerThreads.stream().allMatch(thread -> thread.getState() == Thread.State.WAITING)) {
+            Thread.sleep(1);
+        }
+        return results;
+    }
+
+    @Test
+    void servesHitsUntilTheTtlHasPassed() {
+        SnapshotCache<String> cache = cache(100);
+
+        assertEquals("AAA@1", cache.get("AAA", this::load));
+        advanceMillis(TTL_MS);
+        assertEquals("AAA@1", cache.get("AAA", this::load));
+        assertEquals("AAA@1", cache.getIfPresent("AAA"));
+
+        advanceMillis(1);
+        assertNull(cache.getIfPresent("AAA"));
+        assertEquals("AAA@2", cache.get("AAA", this::load));
+        assertEquals("AAA@2", cache.get("AAA", this::load));
+
+        assertEquals(2, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(0.5, cache.hitRatio());
+        assertEquals(2L, cache.getStats().get("loads"));
+        assertEquals(0L, cache.getStats().get("loadFailures"));
+    }
+
+    @Test
+    void concurrentMissesShareOneLoad() throws Exception {
+        SnapshotCache<String> cache = cache(100);
+        List<Future<String>> results = missTogether(cache, held(null));
+
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("AAA@loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1L, cache.getStats().get("loads"));
+        assertEquals(CALLERS, cache.missCount());
+        assertEquals("AAA@loaded", cache.get("AAA", this::load));
+        assertEquals(1, cache.hitCount());
+    }
+
+    @Test
+    void aFailedLoadIsSharedAndDoesNotBlockTheNextOne() throws Exception {
+        SnapshotCache<String> cache = cache(100);
+        IllegalStateException down = new IllegalStateException("down");
+        List<Future<String>> results = missTogether(cache, held(down));
+
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(down, e.getCause());
+        }
+        assertEquals(1, loaderCalls.get());
+        assertEquals(1L, cache.getStats().get("loadFailures"));
+        assertNull(cache.getIfPresent("AAA"));
+
+        // The failed load no longer holds the key, so the next miss loads again
+        assertEquals("AAA@2", cache.get("AAA", this::load));
+    }
+
+    @Test
+    void evictsExpiredEntriesFirstThenTheOldest() {
+        SnapshotCache<String> cache = cache(3);
+        cache.put("A", "a");
+        advanceMillis(500);
+        cache.put("B", "b");
+        advanceMillis(100);
+        cache.put("C", "c");
+        // A is now past its TTL; B and C are not
+        advanceMillis(500);
+
+        cache.put("D", "d");
+
+        assertEquals(3, cache.size());
+        assertNull(cache.getIfPresent("A"));
+        assertEquals(1, cache.evictionCount());
+
+        // Nothing has expired, so the oldest live entry goes
+        advanceMillis(10);
+        cache.put("E", "e");
+
+        assertEquals(3, cache.size());
+        assertNull(cache.getIfPresent("B"));
+        assertEquals("c", cache.getIfPresent("C"));
+        assertEquals("d", cache.getIfPresent("D"));
+        assertEquals("e", cache.getIfPresent("E"));
+        assertEquals(2, cache.evictionCount());
+    }
+
+    @Test
+    void evictsAMarginBeyondTheExcess() {
+        SnapshotCache<String> cache = cache(20);
+        for (int i = 0; i < 20; i++) {
+            cache.put("S" + i, "s" + i);
+            advanceMillis(1);
+        }
+
+        cache.put("NEW", "new");
+
+        // One over the limit, plus a tenth of the capacity so the next puts do not rescan
+        assertEquals(18, cache.size());
+        assertEquals(3, cache.evictionCount());
+        for (int i = 0; i < 3; i++) {
+            assertNull(cache.getIfPresent("S" + i));
+        }
+        assertEquals("s3", cache.getIfPresent("S3"));
+        assertEquals("new", cache.getIfPresent("NEW"));
+    }
+}
@@ -0,0 +1,210 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import com.stockanalysis.repository.StockDataBatchInserter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives the write-behind writer against a mocked batch inserter. Each insert and archive call
+ * is copied as it happens, because the writer reuses its batch list afterwards.
+ */
+class StockDataWriterTest {
+    private static final long WAIT_SECONDS = 5;
+
+    private final BlockingQueue<List<StockData>> batches = new LinkedBlockingQueue<>();
+    private final BlockingQueue<List<StockData>> archived = new LinkedBlockingQueue<>();
+    private StockDataBatchInserter inserter;
+    private TickArchive tickArchive;
+    private SimpleMeterRegistry meterRegistry;
+    private StockDataWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        inserter = mock(StockDataBatchInserter.class);
+        tickArchive = mock(TickArchive.class);
+        meterRegistry = new SimpleMeterRegistry();
+        doAnswer(invocation -> recordBatch(invocation.getArgument(0))).when(inserter).insertAll(any());
+        doAnswer(invocation -> archived.add(new ArrayList<>(invocation.<List<StockData>>getArgument(0))))
+                .when(tickArchive).append(any());
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    private boolean recordBatch(List<StockData> rows) {
+        return batches.add(new ArrayList<>(rows));
+    }
+
+    private void startWriter(int queueCapacity, int batchSize, long flushIntervalMs, long offerTimeoutMs) {
+        writer = new StockDataWriter(inserter, mock(LatestSnapshotStore.class), mock(QuoteStreamService.class),
+                tickArchive, meterRegistry, queueCapacity, batchSize, flushIntervalMs, offerTimeoutMs);
+        writer.start();
+    }
+
+    private static StockData quote(String symbol) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setCurrentPrice(BigDecimal.TEN);
+        return stockData;
+    }
+
+    private List<StockData> nextBatch() throws InterruptedException {
+        return next(batches);
+    }
+
+    private static List<StockData> next(BlockingQueue<List<StockData>> calls) throws InterruptedException {
+        List<StockData> rows = calls.poll(WAIT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(rows, "no rows were written");
+        return rows;
+    }
+
+    @Test
+    void flushesAsSoonAsTheBatchIsFull() throws InterruptedException {
+        // The interval is far longer than the wait, so only the size can trigger the flush
+        startWriter(100, 5, 60_000, 1000);
+        for (int i = 0; i < 5; i++) {
+            writer.submit(quote("SYM" + i));
+        }
+
+        assertEquals(5, nextBatch().size());
+        assertEquals(5, next(archived).size());
+    }
+
+    @Test
+    void flushesAPartialBatchOnceTheIntervalHasPassed() throws InterruptedException {
+        startWriter(100, 50, 1000, 1000);
+        for (int i = 0; i < 3; i++) {
+            writer.submit(quote("SYM" + i));
+        }
+
+        verify(inserter, after(200).never()).insertAll(any());
+        assertEquals(3, nextBatch().size());
+    }
+
+    @Test
+    void producersWaitForRoomAndRowsKeepTheirOrder() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return recordBatch(invocation.getArgument(0));
+        }).doAnswer(invocation -> recordBatch(invocation.getArgument(0))).when(inserter).insertAll(any());
+        startWriter(2, 1, 10, 50);
+
+        // The drainer blocks on the first row, so the next two fill the queue
+        writer.submit(quote("FIRST"));
+        assertTrue(writing.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        writer.submit(quote("QUEUED1"));
+        writer.submit(quote("QUEUED2"));
+        Thread producer = new Thread(() -> writer.submit(quote("OVERFLOW")));
+        producer.start();
+
+        // The overflow row is neither written nor archived by its producer, which keeps waiting
+        producer.join(300);
+        assertTrue(producer.isAlive());
+        assertTrue(meterRegistry.counter("stock.writer.backpressure").count() >= 1);
+        assertTrue(archived.isEmpty());
+
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            order.add(nextBatch().get(0).getSymbol());
+        }
+        assertEquals(List.of("FIRST", "QUEUED1", "QUEUED2", "OVERFLOW"), order);
+        assertEquals(0, meterRegistry.counter("stock.persist.dropped").count());
+    }
+
+    @Test
+    void shutdownWritesEverythingStillQueued() throws InterruptedException {
+        startWriter(100, 50, 1000, 1000);
+        for (int i = 0; i < 10; i++) {
+            writer.submit(quote("SYM" + i));
+        }
+        writer.shutdown();
+
+        List<List<StockData>> written = new ArrayList<>();
+        batches.drainTo(written);
+        assertEquals(10, written.stream().mapToInt(List::size).sum());
+
+        // Once stopped, snapshots are dropped and counted rather than written by the caller
+        writer.submit(quote("LATE"));
+        assertTrue(batches.isEmpty());
+        assertEquals(1, meterRegistry.counter("stock.persist.dropped").count());
+        writer = null;
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRowAndOnlyTheBadRowIsDropped() throws InterruptedException {
+        doAnswer(invocation -> {
+            List<StockData> rows = invocation.getArgument(0);
+            if (rows.stream().anyMatch(row -> row.getSymbol().equals("BAD"))) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return recordBatch(rows);
+        }).when(inserter).insertAll(any());
+        startWriter(100, 3, 60_000, 1000);
+        writer.submit(quote("GOOD1"));
+        writer.submit(quote("BAD"));
+        writer.submit(quote("GOOD2"));
+
+        assertEquals(List.of("GOOD1", "GOOD2"), next(archived).stream().map(StockData::getSymbol).toList());
+        // One failed batch of three, then each row on its own
+        verify(inserter, times(4)).insertAll(any());
+        assertEquals(1, meterRegistry.counter("stock.persist.failures").count());
+        assertEquals(1, meterRegistry.counter("stock.persist.batch.failures").count());
+    }
+
+    @Test
+    void rowsAreKeptAndRetriedWhileTheDatabaseIsUnavailable() throws InterruptedException {
+        CannotGetJdbcConnectionException unavailable = new CannotGetJdbcConnectionException("down");
+        // The batch and the first row-by-row attempt fail, then the retried batch goes through
+        doThrow(unavailable)
+                .doThrow(unavailable)
+                .doAnswer(invocation -> recordBatch(invocation.getArgument(0)))
+                .when(inserter).insertAll(any());
+        startWriter(100, 2, 50, 1000);
+        StockData first = quote("SYM1");
+        first.setId(42L);
+        writer.submit(first);
+        writer.submit(quote("SYM2"));
+
+        List<StockData> retried = nextBatch();
+        assertEquals(List.of("SYM1", "SYM2"), retried.stream().map(StockData::getSymbol).toList());
+        // The id from the rolled-back attempt is not reused
+        assertNull(retried.get(0).getId());
+        assertEquals(0, meterRegistry.counter("stock.persist.failures").count());
+    }
+}
@@ -0,0 +1,162 @@
+package com.stockanalysis.service;
+
+import com.stockanalysis.model.StockData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Appends ticks to an archive in a temporary directory and checks the on-disk layout, recovery
+ * from a torn append, range boundaries and the handling of late rows.
+ */
+class TickArchiveTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 1, 6, 9, 15);
+    private static final long BASE_MILLIS = BASE.toInstant(ZoneOffset.UTC).toEpochMilli();
+    private static final String[] FILES = {"timestamp.col", "open.col", "high.col", "low.col", "close.col", "volume.col"};
+
+    @TempDir
+    Path dir;
+
+    private TickArchive archive;
+
+    @BeforeEach
+    void setUp() {
+        archive = new TickArchive(true, dir.toString());
+    }
+
+    /** A tick {@code seconds} after BASE with close {@code 100 + seconds}. */
+    private static StockData tick(String symbol, long seconds) {
+        StockData stockData = new StockData();
+        stockData.setSymbol(symbol);
+        stockData.setLastUpdateTime(BASE.plusSeconds(seconds));
+        stockData.setCurrentPrice(BigDecimal.valueOf(100 + seconds));
+        stockData.setOpen(BigDecimal.valueOf(99.5));
+        stockData.setHigh(BigDecimal.valueOf(101 + seconds));
+        stockData.setLow(BigDecimal.valueOf(98.25));
+        stockData.setVolume(1_000 + seconds);
+        return stockData;
+    }
+
+    private void append(String symbol, long... seconds) {
+        List<StockData> rows = new ArrayList<>();
+        for (long s : seconds) {
+            rows.add(tick(symbol, s));
+        }
+        archive.append(rows);
+    }
+
+    /** The range's timestamps as seconds after BASE. */
+    private static List<Long> seconds(TickRange range) {
+        List<Long> seconds = new ArrayList<>();
+        for (int i = 0; i < range.size(); i++) {
+            seconds.add((range.timestamp(i) - BASE_MILLIS) / 1000);
+        }
+        return seconds;
+    }
+
+    private static long millis(long seconds) {
+        return BASE_MILLIS + seconds * 1000;
+    }
+
+    @Test
+    void columnsAreFixedWidthLittleEndianFiles() throws IOException {
+        append("M&M", 0, 1);
+        // '&' is not portable in file names, so the directory is URL-encoded
+        Path symbolDir = dir.resolve("M%26M");
+
+        for (String file : FILES) {
+            assertEquals(2 * Long.BYTES, Files.size(symbolDir.resolve(file)), file);
+        }
+        ByteBuffer timestamps = ByteBuffer.wrap(Files.readAllBytes(symbolDir.resolve("timestamp.col"))).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer highs = ByteBuffer.wrap(Files.readAllBytes(symbolDir.resolve("high.col"))).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer volumes = ByteBuffer.wrap(Files.readAllBytes(symbolDir.resolve("volume.col"))).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(millis(0), timestamps.getLong(0));
+        assertEquals(millis(1), timestamps.getLong(Long.BYTES));
+        assertEquals(101.0, highs.getDouble(0));
+        assertEquals(102.0, highs.getDouble(Long.BYTES));
+        assertEquals(1_001L, volumes.getLong(Long.BYTES));
+
+        TickRange range = archive.last("M&M", 2);
+        assertEquals(99.5, range.open(1));
+        assertEquals(102.0, range.high(1));
+        assertEquals(98.25, range.low(1));
+        assertEquals(101.0, range.close(1));
+        assertEquals(1_001L, range.volume(1));
+    }
+
+    @Test
+    void repairTruncatesATornAppendToTheShortestColumn() throws IOException {
+        append("TORN", 0, 1, 2);
+        // A crash after three of six column writes leaves a fourth row in only some files
+        Path symbolDir = dir.resolve("TORN");
+        byte[] row = new byte[Long.BYTES];
+        for (int c = 0; c < 3; c++) {
+            Files.write(symbolDir.resolve(FILES[c]), row, StandardOpenOption.APPEND);
+        }
+        // and a partial value in another
+        Files.write(symbolDir.resolve("close.col"), new byte[3], StandardOpenOption.APPEND);
+
+        assertEquals(3, archive.last("TORN", 10).size());
+        for (String file : FILES) {
+            assertEquals(3 * Long.BYTES, Files.size(symbolDir.resolve(file)), file);
+        }
+
+        // The next append lines up with the repaired columns
+        append("TORN", 3);
+        TickRange range = archive.last("TORN", 10);
+        assertEquals(4, range.size());
+        assertEquals(millis(3), range.timestamp(3));
+        assertEquals(103.0, range.close(3));
+        assertEquals(1_003L, range.volume(3));
+    }
+
+    @Test
+    void scanBoundsAreInclusiveAtStoredTimestamps() {
+        append("RANGE", 10, 20, 20, 30);
+
+        assertEquals(List.of(20L, 20L), seconds(archive.scan("RANGE", millis(20), millis(20))));
+        assertEquals(List.of(10L), seconds(archive.scan("RANGE", millis(10), millis(10))));
+        assertEquals(List.of(10L, 20L, 20L), seconds(archive.scan("RANGE", millis(10), millis(20))));
+        assertEquals(List.of(20L, 20L, 30L), seconds(archive.scan("RANGE", millis(15), millis(30))));
+        // Between stored timestamps, after the last one, and an inverted range
+        assertEquals(0, archive.scan("RANGE", millis(21), millis(29)).size());
+        assertEquals(0, archive.scan("RANGE", millis(31), Long.MAX_VALUE).size());
+        assertEquals(0, archive.scan("RANGE", millis(30), millis(10)).size());
+        // Long.MAX_VALUE as the upper bound must not overflow into an empty range
+        assertEquals(List.of(30L), seconds(archive.scan("RANGE", millis(30), Long.MAX_VALUE)));
+        assertEquals(4, archive.scan("RANGE", Long.MIN_VALUE, Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void lastReturnsEveryRowWhenAskedForMore() {
+        append("FEW", 0, 1, 2);
+
+        assertEquals(List.of(0L, 1L, 2L), seconds(archive.last("FEW", 10)));
+        assertEquals(List.of(1L, 2L), seconds(archive.last("FEW", 2)));
+        assertEquals(0, archive.last("FEW", 0).size());
+        assertEquals(0, archive.last("NONE", 10).size());
+    }
+
+    @Test
+    void rowsOlderThanTheLastArchivedTickAreSkipped() {
+        append("LATE", 5, 3, 6);
+        // Older than the last stored tick in a later batch, then equal to it
+        append("LATE", 4, 7, 6, 7);
+
+        assertEquals(List.of(5L, 6L, 7L, 7L), seconds(archive.last("LATE", 10)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.stockanalysis.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Burst and refill on a hand-advanced clock; timed acquisition on the real one, since it sleeps.
+ */
+class TokenBucketTest {
+    private final AtomicLong now = new AtomicLong();
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    void allowsABurstThenRefillsAtTheRate() {
+        TokenBucket bucket = new TokenBucket(10, 5, now::get);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+        assertEquals(0, bucket.availablePermits());
+
+        // One permit per 100 ms
+        advanceMillis(99);
+        assertFalse(bucket.tryAcquire());
+        advanceMillis(1);
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        advanceMillis(250);
+        assertEquals(2, bucket.availablePermits());
+    }
+
+    @Test
+    void refillStopsAtTheBurst() {
+        TokenBucket bucket = new TokenBucket(10, 5, now::get);
+        bucket.tryAcquire();
+
+        advanceMillis(60_000);
+
+        assertEquals(5, bucket.availablePermits());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void givesUpAtOnceWhenThePermitWouldComeTooLate() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 1, now::get);
+        assertTrue(bucket.tryAcquire());
+
+        // The next permit is a second away; the clock never moves, so a sleep would hang the test
+        assertFalse(bucket.tryAcquire(999, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void waitsForTheNextPermit() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(50, 1);
+        assertTrue(bucket.tryAcquire());
+
+        long start = System.nanoTime();
+        assertTrue(bucket.tryAcquire(1, TimeUnit.SECONDS));
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // One permit per 20 ms
+        assertTrue(waitedMs >= 15 && waitedMs < 1000, "waited " + waitedMs + " ms");
+    }
+
+    @Test
+    void rejectsNonPositiveSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+    }
+}